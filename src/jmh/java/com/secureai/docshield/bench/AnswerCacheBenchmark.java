@@ -0,0 +1,86 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.domain.AnswerCacheEntry;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.repository.AnswerCacheRepository;
+import com.secureai.docshield.service.AnswerCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * /api/ask 답변 캐시 조회 비용 — 질문 정규화(NFKC, 공백/문장부호) + SHA-256 키 + 메모리 LRU.
+ *
+ * hit 는 미리 채운 질문을 표기만 바꿔(공백, 물음표) 다시 묻는 경우, miss 는 매번 새 질문이라
+ * 계산 함수(즉시 반환)를 부르고 저장까지 하는 경우다. DB는 호출마다 비어 있는 것처럼 응답하는 가짜 저장소로 대신한다.
+ * 여러 스레드가 같은 LRU 잠금을 쓰므로 스레드 수를 바꿔 경합을 본다.
+ *
+ * gradle jmh -Pjmh.includes=AnswerCacheBenchmark -Pjmh.args="-t 1"   (그리고 -t 8)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(4)
+public class AnswerCacheBenchmark {
+
+    private static final String ANSWER = "## 요약\n\n" + DocumentCorpus.text(4 * 1024);
+
+    @Param({"2000"})
+    public int entries;
+
+    private AnswerCacheService cache;
+    private DocumentResult[] docs;
+    private final AtomicLong fresh = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        cache = new AnswerCacheService(emptyRepository(), new SimpleMeterRegistry(), Duration.ofHours(1), entries, 100_000);
+        docs = new DocumentResult[entries / 10];
+        for (int d = 0; d < docs.length; d++) {
+            docs[d] = new DocumentResult("doc-" + d, DocumentType.values()[d % DocumentType.values().length],
+                    d + ".pdf", ProcessingStatus.COMPLETED, null, null);
+            for (int q = 0; q < 10; q++) cache.put(docs[d], question(q), ANSWER);
+        }
+    }
+
+    private static String question(int q) {
+        return "이 문서에서 " + q + "번째 위험 요소는 무엇인가요";
+    }
+
+    @Benchmark
+    public String hit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        DocumentResult doc = docs[random.nextInt(docs.length)];
+        return cache.answer(doc, "  " + question(random.nextInt(10)) + " ?", () -> ANSWER);
+    }
+
+    @Benchmark
+    public String miss() {
+        DocumentResult doc = docs[ThreadLocalRandom.current().nextInt(docs.length)];
+        return cache.answer(doc, "새 질문 " + fresh.incrementAndGet(), () -> ANSWER);
+    }
+
+    // 조회는 항상 없음, 저장은 받은 행을 그대로 돌려준다. (나머지 메서드는 쓰지 않는다)
+    private static AnswerCacheRepository emptyRepository() {
+        return (AnswerCacheRepository) Proxy.newProxyInstance(AnswerCacheRepository.class.getClassLoader(),
+                new Class<?>[]{AnswerCacheRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByDocIdAndDocTypeAndQuestionKey" -> Optional.<AnswerCacheEntry>empty();
+                    case "save" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "emptyRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
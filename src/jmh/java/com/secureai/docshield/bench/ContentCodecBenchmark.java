@@ -0,0 +1,72 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.util.ContentCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * document_contents 본문 압축 — 압축률과 encode/decode/스트리밍 decode 처리량.
+ * 압축률(원문 UTF-8 바이트 / 저장 글자 수)은 trial 시작 시 한 줄로 출력한다.
+ * 처리량은 ops/s이므로 sizeKb를 곱하면 KB/s다.
+ *
+ * gradle jmh -Pjmh.includes=ContentCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ContentCodecBenchmark {
+
+    @Param({"16", "256", "2048"})
+    public int sizeKb;
+
+    // json: 업로드 결과 (PythonResponse JSON, 유형별 사전), answer: Gemini 답변 (공통 사전)
+    @Param({"json", "answer"})
+    public String kind;
+
+    private String text;
+    private String stored;
+    private final char[] buf = new char[8192];
+
+    @Setup
+    public void setUp() {
+        String body = DocumentCorpus.text(sizeKb * 1024);
+        text = kind.equals("json")
+                ? "{\"markdown\":\"" + body.replace("\n", "\\n") + "\",\"documentType\":\"HR_INFO\"}"
+                : body;
+        stored = ContentCodec.encode(text);
+
+        int raw = text.getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf("%n[ContentCodec] %s %dKB: %d bytes -> %d chars (ratio %.1fx)%n",
+                kind, sizeKb, raw, stored.length(), (double) raw / stored.length());
+    }
+
+    @Benchmark
+    public String encode() {
+        return ContentCodec.encode(text);
+    }
+
+    @Benchmark
+    public String decode() {
+        return ContentCodec.decode(stored);
+    }
+
+    // /api/result 경로: 본문을 String으로 만들지 않고 Reader로 끝까지 읽는다.
+    @Benchmark
+    public long decodeStreaming() throws IOException {
+        long chars = 0;
+        try (Reader reader = ContentCodec.openReader(new StringReader(stored))) {
+            for (int n; (n = reader.read(buf)) != -1; ) {
+                chars += n;
+            }
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,109 @@
+package com.secureai.docshield.bench;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 벤치마크용 합성 문서 생성기. 대략 targetBytes 크기의 TXT/PDF/DOCX/XLSX 바이트를 만든다.
+ */
+public final class DocumentCorpus {
+
+    private static final String[] LINES = {
+            "인사총무팀은 출퇴근 기록 시스템을 기반으로 근태 데이터를 자동 분석한다.",
+            "성명: 김민수, 연락처: 010-1234-5678, 이메일: minsu.kim@example.com",
+            "주민등록번호 900101-1234567 / 급여계좌 110-234-567890 (신한은행)",
+            "2025년 상반기 프로젝트 성과 평가 결과 A등급, 연봉 인상률 5.5% 적용 예정",
+            "The quarterly security review covers access control, audit logging and DLP."
+    };
+
+    private DocumentCorpus() {
+    }
+
+    public static String line(int i) {
+        return LINES[i % LINES.length];
+    }
+
+    public static String text(int targetBytes) {
+        StringBuilder sb = new StringBuilder(targetBytes);
+        for (int i = 0; sb.length() * 2 < targetBytes; i++) {
+            sb.append(i).append(". ").append(line(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static byte[] generate(String format, int targetBytes) throws IOException {
+        return switch (format) {
+            case "txt" -> text(targetBytes).getBytes(StandardCharsets.UTF_8);
+            case "xlsx" -> xlsx(targetBytes);
+            case "docx" -> docx(targetBytes);
+            case "pdf" -> pdf(targetBytes);
+            default -> throw new IllegalArgumentException("unknown format: " + format);
+        };
+    }
+
+    // 셀 텍스트는 공유 문자열로 들어가므로 행마다 숫자를 섞어 압축률을 현실적으로 맞춘다.
+    private static byte[] xlsx(int targetBytes) throws IOException {
+        int rows = Math.max(1, targetBytes / 40);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100)) {
+            Sheet sheet = wb.createSheet("data");
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                row.createCell(1).setCellValue(line(r));
+                row.createCell(2).setCellValue(r * 1.5);
+                row.createCell(3).setCellValue("EMP-" + r);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            wb.write(out);
+            wb.dispose();
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] docx(int targetBytes) throws IOException {
+        int paragraphs = Math.max(1, targetBytes / 60);
+        try (XWPFDocument doc = new XWPFDocument()) {
+            for (int i = 0; i < paragraphs; i++) {
+                doc.createParagraph().createRun().setText(i + ". " + line(i));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    // 표준 14 폰트는 한글 글리프가 없으므로 PDF 본문은 라틴 문자만 사용한다.
+    private static byte[] pdf(int targetBytes) throws IOException {
+        int pages = Math.max(1, targetBytes / 2500);
+        try (PDDocument doc = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(PDType1Font.HELVETICA, 10);
+                    cs.setLeading(12);
+                    cs.newLineAtOffset(40, 750);
+                    for (int l = 0; l < 50; l++) {
+                        cs.showText("Page " + p + " line " + l + ": " + LINES[4]);
+                        cs.newLine();
+                    }
+                    cs.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
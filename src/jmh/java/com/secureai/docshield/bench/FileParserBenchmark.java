@@ -0,0 +1,52 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.service.FileParserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileParserService 스트리밍 추출 vs 기존 DOM 추출 비교.
+ * 할당량은 -prof gc 의 gc.alloc.rate.norm(바이트/op)을 sizeMb 로 나눠 MB당 값으로 본다.
+ * 최대 힙 사용량은 {@link ParserHeapProbe} 로 측정한다.
+ *
+ * gradle jmh -Pjmh.includes=FileParserBenchmark -Pjmh.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class FileParserBenchmark {
+
+    @Param({"txt", "pdf", "docx", "xlsx"})
+    public String format;
+
+    @Param({"1", "8", "32"})
+    public int sizeMb;
+
+    private byte[] content;
+    private String filename;
+    private final FileParserService streaming = new FileParserService(true);
+    private final FileParserService inMemory = new FileParserService(false);
+
+    @Setup
+    public void setUp() throws IOException {
+        content = DocumentCorpus.generate(format, sizeMb * 1024 * 1024);
+        filename = "bench." + format;
+    }
+
+    @Benchmark
+    public void streamingExtract(Blackhole bh) throws IOException {
+        streaming.extract(filename, new ByteArrayInputStream(content), text -> bh.consume(text.length()));
+    }
+
+    @Benchmark
+    public String inMemoryParse() throws IOException {
+        return inMemory.parse(filename, new ByteArrayInputStream(content));
+    }
+}
@@ -0,0 +1,82 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.config.RestTemplateConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기본 RestTemplate(HttpURLConnection) vs 커넥션 풀 RestTemplate 처리량 비교.
+ * 로컬 스텁 Python 서버의 /process 를 32개 스레드가 동시에 호출한다.
+ *
+ * gradle jmh -Pjmh.includes=HttpClientLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(32)
+public class HttpClientLoadBenchmark {
+
+    private static final Map<String, String> BODY = Map.of("content", DocumentCorpus.text(4096));
+
+    // 스텁 서버의 처리 지연 (LLM 마스킹 대신 고정 지연)
+    @Param({"0", "5"})
+    public int latencyMs;
+
+    private StubHttpServer stub;
+    private AnnotationConfigApplicationContext context;
+    private RestTemplate defaultClient;
+    private RestTemplate pooledClient;
+    private String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = StubHttpServer.create(0).route("/process", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            StubHttpServer.sleep(latencyMs);
+            StubHttpServer.json(exchange, "{\"markdown\":\"[MASKED]\",\"documentType\":\"HR_INFO\"}");
+        }).start();
+        url = stub.baseUrl() + "/process";
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("bench", Map.of(
+                "python.server.url", stub.baseUrl(),
+                "gemini.api.base-url", stub.baseUrl())));
+        context.registerBean(RestTemplateBuilder.class, () -> new RestTemplateBuilder());
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(RestTemplateConfig.class);
+        context.refresh();
+
+        pooledClient = context.getBean("restTemplate", RestTemplate.class);
+        defaultClient = new RestTemplate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stub.close();
+    }
+
+    @Benchmark
+    public String defaultRestTemplate() {
+        return defaultClient.postForObject(url, BODY, String.class);
+    }
+
+    @Benchmark
+    public String pooledRestTemplate() {
+        return pooledClient.postForObject(url, BODY, String.class);
+    }
+}
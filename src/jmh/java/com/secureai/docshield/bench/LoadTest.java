@@ -0,0 +1,251 @@
+package com.secureai.docshield.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.DocshieldApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /api/upload, /api/ask 종단 간 부하 테스트.
+ *
+ * 스텁 Python/Gemini 서버(StubUpstreams)와 앱을 한 JVM에 띄운 뒤, 동시 클라이언트 --clients개가
+ * 단계마다 --warmup초 동안 데워 두고 --duration초 동안 요청을 보내 처리량과 p50/p90/p99/최대 지연을 출력한다.
+ *
+ * 1) upload — 합성 문서(DocumentCorpus, --format, --size-kb)를 올린다. 같은 문서의 마스킹 재사용을 피하려고
+ *    기본으로 마스킹 캐시를 끈다. (--mask-cache true 로 켜면 두 번째 업로드부터 재사용 경로를 잰다)
+ * 2) ask — 1)에서 올린 문서에 --questions개 질문을 돌려 가며 묻는다. 질문 수가 적을수록 답변 캐시 적중이 늘어난다.
+ *
+ * gradle loadTest -Pload.args="--clients 16 --duration 30 --format docx --size-kb 256"
+ * 이미 떠 있는 앱을 대상으로 하려면 --target http://host:8080 (스텁과 앱을 띄우지 않는다)
+ */
+public final class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String BOUNDARY = "docshield-load-" + UUID.randomUUID();
+
+    private record Phase(String name, int requests, int errors, double seconds, long[] latencies) {
+    }
+
+    /** 요청 하나. HTTP 상태 코드를 돌려준다. */
+    @FunctionalInterface
+    private interface Call {
+        int run(int client, int n) throws Exception;
+    }
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool(daemon("load-http")))
+            .build();
+    private final String baseUrl;
+    private final int clients;
+    private final Duration warmup;
+    private final Duration duration;
+
+    private LoadTest(String baseUrl, int clients, Duration warmup, Duration duration) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>(Map.of(
+                "--clients", "16", "--warmup", "5", "--duration", "20",
+                "--format", "txt", "--size-kb", "64", "--questions", "50", "--mask-cache", "false",
+                "--mask-ms", "50", "--first-token-ms", "200", "--token-ms", "5"));
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!opts.containsKey(args[i]) && !args[i].equals("--target")) {
+                throw new IllegalArgumentException("알 수 없는 옵션: " + args[i]);
+            }
+            opts.put(args[i], args[i + 1]);
+        }
+
+        StubHttpServer stub = null;
+        ConfigurableApplicationContext app = null;
+        String target = opts.get("--target");
+        try {
+            if (target == null) {
+                stub = new StubUpstreams(Long.parseLong(opts.get("--mask-ms")), Long.parseLong(opts.get("--first-token-ms")),
+                        Long.parseLong(opts.get("--token-ms")), "HR_INFO").start(0);
+                app = new SpringApplicationBuilder(DocshieldApplication.class)
+                        .properties(
+                                "server.port=0",
+                                "spring.main.banner-mode=off",
+                                "spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+                                "spring.servlet.multipart.max-file-size=200MB",
+                                "spring.servlet.multipart.max-request-size=200MB",
+                                // jmh 소스셋의 logback-test.xml 대신 앱의 비동기 로그 설정을 쓴다.
+                                "logging.config=classpath:logback-spring.xml",
+                                "logging.level.root=WARN",
+                                "python.server.url=" + stub.baseUrl(),
+                                "gemini.api.base-url=" + stub.baseUrl(),
+                                "gemini.api.key=load-test",
+                                "docshield.mask-cache.enabled=" + opts.get("--mask-cache"))
+                        .run();
+                target = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+            }
+
+            LoadTest test = new LoadTest(target, Integer.parseInt(opts.get("--clients")),
+                    Duration.ofSeconds(Long.parseLong(opts.get("--warmup"))),
+                    Duration.ofSeconds(Long.parseLong(opts.get("--duration"))));
+            System.out.println("🚦 부하 테스트 대상: " + target + " (클라이언트 " + test.clients + ", "
+                    + test.duration.toSeconds() + "초, " + opts.get("--format") + " " + opts.get("--size-kb") + "KB)");
+
+            String format = opts.get("--format");
+            byte[] document = DocumentCorpus.generate(format, Integer.parseInt(opts.get("--size-kb")) * 1024);
+            List<String> docIds = new CopyOnWriteArrayList<>();
+            report(test.run("upload", (client, n) -> test.upload(format, document, client, n, docIds)));
+
+            if (docIds.isEmpty()) {
+                System.out.println("⚠️ 업로드에 성공한 문서가 없어 ask 단계를 건너뜁니다.");
+                return;
+            }
+            int questions = Integer.parseInt(opts.get("--questions"));
+            report(test.run("ask", (client, n) -> test.ask(docIds.get((client + n) % docIds.size()),
+                    "이 문서의 " + ((client * 31 + n) % questions) + "번째 핵심 위험은 무엇인가요?")));
+        } finally {
+            if (app != null) app.close();
+            if (stub != null) stub.close();
+        }
+    }
+
+    private int upload(String format, byte[] document, int client, int n, List<String> docIds) throws Exception {
+        // txt는 매번 내용을 조금 바꿔 같은 문서로 취급되지 않게 한다.
+        byte[] content = format.equals("txt")
+                ? concat(("load " + client + "-" + n + "\n").getBytes(StandardCharsets.UTF_8), document)
+                : document;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/upload"))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipart("file", "load-" + client + "-" + n + "." + format, content)))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+            docIds.add(MAPPER.readTree(response.body()).path("id").asText());
+        }
+        return response.statusCode();
+    }
+
+    private int ask(String docId, String question) throws Exception {
+        String form = "docId=" + URLEncoder.encode(docId, StandardCharsets.UTF_8)
+                + "&question=" + URLEncoder.encode(question, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/ask"))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // 클라이언트마다 앞 요청이 끝나면 바로 다음 요청을 보낸다. (closed loop) 지연은 warmup이 지난 요청만 모은다.
+    private Phase run(String name, Call call) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(clients, daemon("load-" + name));
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            futures.add(pool.submit(() -> {
+                long[] mine = new long[1024];
+                int count = 0;
+                for (int n = 0; System.nanoTime() < end; n++) {
+                    long t0 = System.nanoTime();
+                    boolean ok;
+                    try {
+                        int status = call.run(client, n);
+                        ok = status < 400;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long t1 = System.nanoTime();
+                    if (t0 < measureFrom || t1 > end) continue;
+                    if (!ok) errors.incrementAndGet();
+                    if (count == mine.length) mine = Arrays.copyOf(mine, count * 2);
+                    mine[count++] = t1 - t0;
+                }
+                latencies[client] = mine;
+                counts[client] = count;
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        pool.shutdown();
+
+        int total = 0;
+        for (int count : counts) total += count;
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        Arrays.sort(all);
+        return new Phase(name, total, errors.get(), duration.toNanos() / 1e9, all);
+    }
+
+    private static void report(Phase phase) {
+        long[] l = phase.latencies();
+        System.out.printf("📈 %-6s 요청 %d (오류 %d)  처리량 %.1f req/s  p50 %.1fms  p90 %.1fms  p99 %.1fms  최대 %.1fms%n",
+                phase.name(), phase.requests(), phase.errors(), phase.requests() / phase.seconds(),
+                percentile(l, 0.50), percentile(l, 0.90), percentile(l, 0.99), l.length == 0 ? 0 : l[l.length - 1] / 1e6);
+    }
+
+    // 정렬된 지연(ns)의 p 분위수를 ms로 (nearest-rank)
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static byte[] multipart(String field, String fileName, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 256);
+        out.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + field + "\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(content);
+        out.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
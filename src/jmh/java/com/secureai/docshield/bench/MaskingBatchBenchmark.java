@@ -0,0 +1,76 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.config.PipelineConfig;
+import com.secureai.docshield.config.RestTemplateConfig;
+import com.secureai.docshield.service.MaskingBatcher;
+import com.secureai.docshield.service.PythonApiClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 건별 /process vs MaskingBatcher 묶음 전송 — 처리량과 꼬리 지연 비교.
+ *
+ * 스텁 Python 서버는 로컬 LLM처럼 한 번에 한 요청만 처리하고(serial), 한 번에 20ms + 묶음의 건당 2ms가 걸린다.
+ * 동시성에 따른 변화는 스레드 수를 바꿔 본다.
+ *
+ * gradle jmh -Pjmh.includes=MaskingBatchBenchmark -Pjmh.args="-t 1"   (그리고 -t 4, -t 16, -t 64)
+ * SampleTime 결과의 p0.50 / p0.99 가 꼬리 지연, Throughput 결과가 초당 마스킹 건수다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(16)
+public class MaskingBatchBenchmark {
+
+    private static final String CHUNK = DocumentCorpus.text(2048);
+
+    @Param({"false", "true"})
+    public boolean batching;
+
+    private StubHttpServer stub;
+    private AnnotationConfigApplicationContext context;
+    private MaskingBatcher batcher;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = new StubUpstreams(20, 0, 0, "HR_INFO").model(true, 2).start(0);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("bench", Map.of(
+                "python.server.url", stub.baseUrl(),
+                "gemini.api.base-url", stub.baseUrl(),
+                "docshield.python.batch.enabled", Boolean.toString(batching),
+                "docshield.python.batch.max-size", "32",
+                "docshield.upstream.python.max-concurrent", "256")));
+        context.registerBean(RestTemplateBuilder.class, () -> new RestTemplateBuilder());
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(RestTemplateConfig.class, PipelineConfig.class, PythonApiClient.class, MaskingBatcher.class);
+        context.refresh();
+
+        batcher = context.getBean(MaskingBatcher.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stub.close();
+    }
+
+    @Benchmark
+    public String mask() {
+        return batcher.mask(CHUNK);
+    }
+}
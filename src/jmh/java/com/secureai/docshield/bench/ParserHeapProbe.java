@@ -0,0 +1,62 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.service.FileParserService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 파싱 한 번 동안의 최대 힙 증가량을 입력 MB 기준으로 출력한다.
+ * JMH 할당량(gc.alloc.rate.norm)과 달리 동시에 살아 있는 메모리의 상한을 본다.
+ *
+ * java -Xmx2g -cp build/classes/java/jmh:... com.secureai.docshield.bench.ParserHeapProbe [sizeMb...]
+ */
+public final class ParserHeapProbe {
+
+    private static final String[] FORMATS = {"txt", "pdf", "docx", "xlsx"};
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[]{4, 16, 64} : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        FileParserService streaming = new FileParserService(true);
+        FileParserService inMemory = new FileParserService(false);
+
+        System.out.printf("%-6s %6s %12s %18s %18s%n", "format", "MB", "input(MB)", "dom heap/MB", "streaming heap/MB");
+        for (String format : FORMATS) {
+            for (int size : sizes) {
+                byte[] content = DocumentCorpus.generate(format, size * 1024 * 1024);
+                double inputMb = content.length / (1024.0 * 1024.0);
+                String filename = "probe." + format;
+
+                long dom = peakDuring(() -> inMemory.parse(filename, new ByteArrayInputStream(content)));
+                long stream = peakDuring(() -> streaming.extract(filename, new ByteArrayInputStream(content), text -> { }));
+
+                System.out.printf("%-6s %6d %12.1f %18.1f %18.1f%n", format, size, inputMb,
+                        dom / inputMb / (1024 * 1024), stream / inputMb / (1024 * 1024));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParseTask {
+        void run() throws IOException;
+    }
+
+    private static long peakDuring(ParseTask task) throws IOException {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        long baseline = pools.stream().mapToLong(p -> p.getUsage().getUsed()).sum();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        task.run();
+
+        long peak = pools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+        return Math.max(0, peak - baseline);
+    }
+}
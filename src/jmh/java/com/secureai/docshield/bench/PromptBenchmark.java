@@ -0,0 +1,46 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.service.GeminiPromptBuilder;
+import com.secureai.docshield.service.PromptTemplateRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/ask 프롬프트 조립 비용 — 토큰 추정, 문서/질문 이스케이프, 템플릿 조각 복사.
+ * 512KB 문서는 기본 상한(32000토큰)을 넘으므로 뒷부분을 잘라 내는 경로까지 포함한다.
+ *
+ * gradle jmh -Pjmh.includes=PromptBenchmark -Pjmh.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PromptBenchmark {
+
+    @Param({"4", "64", "512"})
+    public int docKb;
+
+    @Param({"HR_INFO", "TECH_INFO"})
+    public DocumentType type;
+
+    private GeminiPromptBuilder builder;
+    private String markdown;
+
+    @Setup
+    public void setUp() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry("", Duration.ofMillis(500));
+        builder = new GeminiPromptBuilder(registry, new SimpleMeterRegistry(), 32_000, "", 2_000, 500, true);
+        markdown = DocumentCorpus.text(docKb * 1024);
+    }
+
+    @Benchmark
+    public GeminiPromptBuilder.Prompt build() {
+        return builder.build(markdown, "이 문서에서 \"개인정보\" 처리와 관련된 위험 요소를 정리해 주세요.", type);
+    }
+}
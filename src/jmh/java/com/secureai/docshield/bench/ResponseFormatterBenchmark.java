@@ -0,0 +1,96 @@
+package com.secureai.docshield.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.dto.PythonResponse;
+import com.secureai.docshield.dto.ReportResponse;
+import com.secureai.docshield.service.ResponseFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Python 마스킹 응답과 Gemini 보고서 응답의 JSON 파싱 비용.
+ *
+ * python 은 청크 하나의 {"markdown": ..., "documentType": ...} 응답 (sizeKb는 markdown 크기),
+ * gemini 는 candidates[0].content.parts[0].text 안에 ```json 코드블록으로 감싼 보고서 JSON이 든 응답이다.
+ * 요청당 할당량은 -prof gc 의 gc.alloc.rate.norm(바이트/op)으로 본다.
+ * legacy* 는 스트리밍 파싱 이전 경로(Python: Map으로 받아 다시 직렬화한 뒤 파싱, Gemini: 요청마다 JsonNode 트리 두 벌과
+ * replaceAll 세 번)를 그대로 재현한 기준선이다. 같은 sizeKb의 python/legacyPython, gemini/legacyGemini를 비교한다.
+ *
+ * gradle jmh -Pjmh.includes=ResponseFormatterBenchmark -Pjmh.args="-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ResponseFormatterBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int sizeKb;
+
+    private final ResponseFormatter formatter = new ResponseFormatter();
+    private final ObjectMapper legacyMapper = new ObjectMapper();
+    private String pythonJson;
+    private String geminiJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String markdown = DocumentCorpus.text(sizeKb * 1024);
+        pythonJson = mapper.writeValueAsString(Map.of("markdown", markdown, "documentType", "HR_INFO"));
+
+        // 보고서 JSON도 sizeKb 정도가 되도록 위험/권고 항목을 채운다.
+        String[] lines = markdown.split("\n");
+        List<String> risks = List.of(lines).subList(0, lines.length / 2);
+        List<String> recommendations = List.of(lines).subList(lines.length / 2, lines.length);
+        String report = mapper.writeValueAsString(Map.of(
+                "summary", lines[0],
+                "risks", risks,
+                "recommendations", recommendations,
+                "confidence", 0.82,
+                "documentType", "HR_INFO"));
+        String text = "```json\n" + report + "\n```";
+        geminiJson = mapper.writeValueAsString(Map.of("candidates",
+                List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text)))))));
+    }
+
+    @Benchmark
+    public PythonResponse python() {
+        return formatter.parsePythonResponse(pythonJson);
+    }
+
+    @Benchmark
+    public ReportResponse gemini() {
+        return formatter.parseGeminiJson(geminiJson);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public PythonResponse legacyPython() throws Exception {
+        // RestTemplate가 Map으로 풀고, PythonApiClient가 다시 문자열로 만든 뒤, ResponseFormatter가 파싱하던 경로
+        Map<String, Object> response = legacyMapper.readValue(pythonJson, Map.class);
+        String json = legacyMapper.writeValueAsString(response);
+        return legacyMapper.readValue(json, PythonResponse.class);
+    }
+
+    @Benchmark
+    public ReportResponse legacyGemini() throws Exception {
+        JsonNode root = legacyMapper.readTree(geminiJson);
+        String text = root.path("candidates").get(0).path("content").path("parts").get(0).path("text").asText();
+        String cleaned = text.replaceAll("(?s)```json", "").replaceAll("(?s)```", "").replaceAll("(?s)`", "").trim();
+        JsonNode json = legacyMapper.readTree(cleaned);
+        List<String> risks = new ArrayList<>();
+        json.path("risks").forEach(item -> risks.add(item.asText()));
+        List<String> recommendations = new ArrayList<>();
+        json.path("recommendations").forEach(item -> recommendations.add(item.asText()));
+        Map<String, Object> extra = new HashMap<>();
+        json.fieldNames().forEachRemaining(name -> {
+            if (!Set.of("summary", "risks", "recommendations").contains(name)) extra.put(name, json.get(name));
+        });
+        return new ReportResponse(json.path("summary").asText("요약 없음"), risks, recommendations, extra);
+    }
+}
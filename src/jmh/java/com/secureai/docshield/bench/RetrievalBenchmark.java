@@ -0,0 +1,46 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.service.PassageIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 단락 BM25 색인 생성 비용(업로드 시 1회)과 질문당 점수 계산 비용.
+ * embeddingDim 0 은 BM25만, 256 은 off-heap 해시 벡터를 함께 쓰는 경우.
+ *
+ * gradle jmh -Pjmh.includes=RetrievalBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class RetrievalBenchmark {
+
+    @Param({"256", "4096"})
+    public int sizeKb;
+
+    @Param({"0", "256"})
+    public int embeddingDim;
+
+    private String markdown;
+    private PassageIndex index;
+
+    @Setup
+    public void setUp() {
+        markdown = DocumentCorpus.text(sizeKb * 1024);
+        index = PassageIndex.build(markdown, 1200, embeddingDim);
+    }
+
+    @Benchmark
+    public PassageIndex build() {
+        return PassageIndex.build(markdown, 1200, embeddingDim);
+    }
+
+    @Benchmark
+    public double[] score() {
+        return index.score("영업팀 직원 연락처와 급여 내역", 0.3);
+    }
+}
@@ -0,0 +1,90 @@
+package com.secureai.docshield.bench;
+
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.service.DocumentSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체 문서 검색 색인 — 문서 수에 따른 질의 지연과 문서 한 건 색인 비용.
+ *
+ * 문서마다 코퍼스 문장과 무작위 한글 단어를 섞어 ~1KB 본문을 만든다. (어휘가 문서마다 달라지도록)
+ * common 은 대부분의 문서에 나오는 토큰(포스팅이 가장 긴 경우), rare 는 수십 건에만 나오는 토큰,
+ * phrase 는 토큰 여러 개의 교집합이다. filtered 는 같은 질의를 유형 하나로 거른다.
+ *
+ * gradle jmh -Pjmh.includes=SearchBenchmark
+ * 100000건에서도 질의는 밀리초 단위여야 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SearchBenchmark {
+
+    private static final String SYLLABLES = "가나다라마바사아자차카타파하거너더러머버서어저처커터퍼허고노도로모보소오조초";
+    private static final Set<DocumentType> HR_ONLY = EnumSet.of(DocumentType.HR_INFO);
+
+    @Param({"10000", "100000"})
+    public int documents;
+
+    private DocumentSearchIndex index;
+    private String extraDoc;
+    private int extra;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new DocumentSearchIndex();
+        for (int d = 0; d < documents; d++) {
+            index.put("doc-" + d, DocumentType.values()[d % DocumentType.values().length], d + ".txt",
+                    Instant.ofEpochSecond(d), document(random, d));
+        }
+        extraDoc = document(random, documents);
+    }
+
+    private static String document(Random random, int seed) {
+        StringBuilder sb = new StringBuilder(1100);
+        for (int i = seed; sb.length() < 1000; i++) {
+            sb.append(DocumentCorpus.line(i + random.nextInt(5))).append(' ');
+            for (int w = 0; w < 3; w++) {
+                for (int k = 0; k < 3; k++) sb.append(SYLLABLES.charAt(random.nextInt(SYLLABLES.length())));
+                sb.append(' ');
+            }
+            sb.append("EMP-").append(random.nextInt(1_000_000)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public DocumentSearchIndex.Result common() {
+        return index.search("급여계좌", null, 0, 20);
+    }
+
+    @Benchmark
+    public DocumentSearchIndex.Result rare() {
+        return index.search("가나다", null, 0, 20);
+    }
+
+    @Benchmark
+    public DocumentSearchIndex.Result phrase() {
+        return index.search("근태 데이터 자동 분석", null, 0, 20);
+    }
+
+    @Benchmark
+    public DocumentSearchIndex.Result filtered() {
+        return index.search("급여계좌", HR_ONLY, 0, 20);
+    }
+
+    // 업로드 한 건이 색인에 더해지는 비용 (같은 id로 바꿔 넣으므로 색인 크기는 그대로)
+    @Benchmark
+    public void put() {
+        index.put("doc-extra-" + (extra++ & 1023), DocumentType.HR_INFO, "extra.txt", Instant.EPOCH, extraDoc);
+    }
+}
@@ -0,0 +1,81 @@
+package com.secureai.docshield.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 벤치마크/부하 테스트용 로컬 스텁 서버 (JDK 내장 HttpServer, keep-alive 지원).
+ */
+public final class StubHttpServer implements AutoCloseable {
+
+    static {
+        // 응답 헤더/본문이 Nagle + delayed ACK 로 40ms씩 묶이지 않게 한다.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "stub-http");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private StubHttpServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.setExecutor(executor);
+    }
+
+    /** port 0 이면 빈 포트를 자동으로 잡는다. */
+    public static StubHttpServer create(int port) throws IOException {
+        return new StubHttpServer(port);
+    }
+
+    public StubHttpServer route(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    public StubHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void json(HttpExchange exchange, String body) throws IOException {
+        respond(exchange, 200, "application/json", body);
+    }
+
+    public static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,237 @@
+package com.secureai.docshield.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Python 마스킹 서버와 Gemini API를 흉내 내는 로컬 스텁.
+ *
+ * - POST /process                              → {"markdown": 마스킹된 내용, "documentType": ...}
+ * - POST /process/batch                        → {"results": [위와 같은 객체, ...]} ({"contents": [...]}의 순서대로)
+ * - POST /v1beta/models/{m}:generateContent    → 전체 답변을 한 번에
+ * - POST /v1beta/models/{m}:streamGenerateContent?alt=sse → 답변을 단어 단위 SSE로
+ *
+ * 마스킹 모델: 한 번에 n건을 처리하는 데 --mask-ms + --batch-item-ms × (n-1) 가 걸린다.
+ * --serial true 이면 로컬 LLM처럼 한 번에 한 요청(또는 한 묶음)만 처리한다.
+ * 장애 주입: --error-rate 0.2 이면 요청의 20%에 503, --hang-rate 0.05 이면 5%는 --hang-ms 동안 응답하지 않고,
+ * --jitter-ms 200 이면 응답마다 0~200ms를 더 늦춘다. (UpstreamGuard의 재시도/회로 차단기 확인용)
+ *
+ * 실행: gradle stubUpstreams -Pstub.args="--port 8765 --first-token-ms 400 --token-ms 30"
+ * 그리고 앱을 --python.server.url=http://127.0.0.1:8765 --gemini.api.base-url=http://127.0.0.1:8765 로 띄운다.
+ */
+public final class StubUpstreams {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern PHONE = Pattern.compile("01[016789]-?\\d{3,4}-?\\d{4}");
+    private static final Pattern EMAIL = Pattern.compile("[\\w.+-]+@[\\w-]+\\.[\\w.]+");
+
+    private final long maskDelayMs;
+    private final long firstTokenMs;
+    private final long tokenMs;
+    private final String documentType;
+    private volatile double errorRate;
+    private volatile double hangRate;
+    private volatile long hangMs = 600_000;
+    private volatile long jitterMs;
+    private volatile boolean serial;
+    private volatile long batchItemMs = 5;
+    private final Object model = new Object();
+
+    public StubUpstreams(long maskDelayMs, long firstTokenMs, long tokenMs, String documentType) {
+        this.maskDelayMs = maskDelayMs;
+        this.firstTokenMs = firstTokenMs;
+        this.tokenMs = tokenMs;
+        this.documentType = documentType;
+    }
+
+    public StubUpstreams model(boolean serial, long batchItemMs) {
+        this.serial = serial;
+        this.batchItemMs = batchItemMs;
+        return this;
+    }
+
+    /** 실행 중에도 바꿀 수 있다. */
+    public StubUpstreams faults(double errorRate, double hangRate, long hangMs, long jitterMs) {
+        this.errorRate = errorRate;
+        this.hangRate = hangRate;
+        this.hangMs = hangMs;
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    public StubHttpServer start(int port) throws IOException {
+        return StubHttpServer.create(port)
+                .route("/process", this::process)
+                .route("/process/batch", this::processBatch)
+                .route("/v1beta/models/", this::gemini)
+                .start();
+    }
+
+    // 장애를 주입했으면 true (응답을 이미 보냈거나, 멈췄다가 끊었다)
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (jitterMs > 0) StubHttpServer.sleep(random.nextLong(jitterMs + 1));
+        if (random.nextDouble() < hangRate) {
+            StubHttpServer.sleep(hangMs);
+            exchange.close();
+            return true;
+        }
+        if (random.nextDouble() < errorRate) {
+            StubHttpServer.respond(exchange, 503, "application/json", "{\"error\":\"injected\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private void process(HttpExchange exchange) throws IOException {
+        JsonNode body = readJson(exchange);
+        if (injectFault(exchange)) return;
+        runModel(1);
+        StubHttpServer.json(exchange, MAPPER.writeValueAsString(masked(body.path("content").asText(""))));
+    }
+
+    private void processBatch(HttpExchange exchange) throws IOException {
+        JsonNode body = readJson(exchange);
+        if (injectFault(exchange)) return;
+        JsonNode contents = body.path("contents");
+        runModel(contents.size());
+        ObjectNode out = MAPPER.createObjectNode();
+        ArrayNode results = out.putArray("results");
+        for (JsonNode content : contents) results.add(masked(content.asText("")));
+        StubHttpServer.json(exchange, MAPPER.writeValueAsString(out));
+    }
+
+    private ObjectNode masked(String content) {
+        ObjectNode out = MAPPER.createObjectNode();
+        out.put("markdown", mask(content));
+        out.put("documentType", documentType);
+        return out;
+    }
+
+    // 묶음 크기에 따라 처리 시간이 조금씩만 느는 모델 추론을 흉내 낸다.
+    private void runModel(int items) {
+        long cost = maskDelayMs + batchItemMs * Math.max(0, items - 1);
+        if (serial) {
+            synchronized (model) {
+                StubHttpServer.sleep(cost);
+            }
+        } else {
+            StubHttpServer.sleep(cost);
+        }
+    }
+
+    static String mask(String content) {
+        String masked = PHONE.matcher(content).replaceAll("[PHONE]");
+        return EMAIL.matcher(masked).replaceAll("[EMAIL]");
+    }
+
+    private void gemini(HttpExchange exchange) throws IOException {
+        JsonNode body = readJson(exchange);
+        if (injectFault(exchange)) return;
+        String answer = answerFor(body);
+        String path = exchange.getRequestURI().getPath();
+
+        if (path.endsWith(":streamGenerateContent")) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                StubHttpServer.sleep(firstTokenMs);
+                for (String token : answer.split("(?<= )")) {
+                    out.write(("data: " + MAPPER.writeValueAsString(candidate(token)) + "\r\n\r\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    StubHttpServer.sleep(tokenMs);
+                }
+            }
+            return;
+        }
+
+        int tokens = answer.split(" ").length;
+        StubHttpServer.sleep(firstTokenMs + tokens * tokenMs);
+        ObjectNode out = MAPPER.valueToTree(candidate(answer));
+        // 토큰 지표(docshield.gemini.tokens)가 채워지도록 대략적인 사용량을 붙인다. (한글 기준 2글자당 1토큰)
+        out.putObject("usageMetadata")
+                .put("promptTokenCount", promptChars(body) / 2)
+                .put("candidatesTokenCount", tokens);
+        StubHttpServer.json(exchange, MAPPER.writeValueAsString(out));
+    }
+
+    private static String answerFor(JsonNode body) {
+        int promptChars = 0;
+        String question = "";
+        for (JsonNode content : body.path("contents")) {
+            for (JsonNode part : content.path("parts")) {
+                String text = part.path("text").asText("");
+                promptChars += text.length();
+                int q = text.lastIndexOf("질문: ");
+                if (q >= 0) question = text.substring(q + 4);
+            }
+        }
+        return "## 요약\n\n질문 \"" + question + "\" 에 대한 스텁 답변입니다. "
+                + "프롬프트 길이는 " + promptChars + "자 입니다. "
+                + "이 문장은 스트리밍 동작을 확인하기 위해 여러 단어로 나뉘어 전송됩니다.\n";
+    }
+
+    private static int promptChars(JsonNode body) {
+        int chars = 0;
+        for (JsonNode content : body.path("contents")) {
+            for (JsonNode part : content.path("parts")) chars += part.path("text").asText("").length();
+        }
+        return chars;
+    }
+
+    private static Map<String, Object> candidate(String text) {
+        return Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))));
+    }
+
+    private static JsonNode readJson(HttpExchange exchange) throws IOException {
+        boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        try (InputStream in = gzip ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody()) {
+            return MAPPER.readTree(in.readAllBytes());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 8765;
+        long maskDelay = 50, firstToken = 400, token = 30;
+        String type = "HR_INFO";
+        double errorRate = 0, hangRate = 0;
+        long hangMs = 600_000, jitterMs = 0, batchItem = 5;
+        boolean serial = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--mask-ms" -> maskDelay = Long.parseLong(args[i + 1]);
+                case "--first-token-ms" -> firstToken = Long.parseLong(args[i + 1]);
+                case "--token-ms" -> token = Long.parseLong(args[i + 1]);
+                case "--type" -> type = args[i + 1];
+                case "--error-rate" -> errorRate = Double.parseDouble(args[i + 1]);
+                case "--hang-rate" -> hangRate = Double.parseDouble(args[i + 1]);
+                case "--hang-ms" -> hangMs = Long.parseLong(args[i + 1]);
+                case "--jitter-ms" -> jitterMs = Long.parseLong(args[i + 1]);
+                case "--serial" -> serial = Boolean.parseBoolean(args[i + 1]);
+                case "--batch-item-ms" -> batchItem = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("알 수 없는 옵션: " + args[i]);
+            }
+        }
+        StubHttpServer server = new StubUpstreams(maskDelay, firstToken, token, type)
+                .model(serial, batchItem)
+                .faults(errorRate, hangRate, hangMs, jitterMs)
+                .start(port);
+        System.out.println("🧪 스텁 업스트림 실행 중: " + server.baseUrl());
+        Thread.currentThread().join();
+    }
+}
@@ -2,12 +2,24 @@ package com.secureai.docshield;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class DocshieldApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(DocshieldApplication.class, args);
+		SpringApplication application = new SpringApplication(DocshieldApplication.class);
+		// application.yml(비공개)에 없을 때만 쓰는 기본값 — /actuator/prometheus 노출과 docshield.* 지표의 히스토그램 버킷
+		application.setDefaultProperties(Map.of(
+				"management.endpoints.web.exposure.include", "health,info,metrics,prometheus",
+				"management.metrics.distribution.percentiles-histogram.docshield", "true",
+				"management.metrics.distribution.percentiles-histogram.http.server.requests", "true",
+				"management.metrics.distribution.percentiles-histogram.http.client.requests", "true"
+		));
+		application.run(args);
 	}
 
 }
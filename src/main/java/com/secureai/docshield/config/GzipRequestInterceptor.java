@@ -0,0 +1,38 @@
+package com.secureai.docshield.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 일정 크기 이상의 요청 본문을 gzip으로 압축해서 보낸다. (Content-Encoding: gzip)
+ * 상대 서버가 압축 요청을 받아 줄 때만 켠다.
+ */
+public class GzipRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final int minBytes;
+
+    public GzipRequestInterceptor(int minBytes) {
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (body.length < minBytes || request.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return execution.execute(request, body);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return execution.execute(request, out.toByteArray());
+    }
+}
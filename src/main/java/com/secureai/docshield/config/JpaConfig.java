@@ -0,0 +1,20 @@
+package com.secureai.docshield.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    // 일괄 업로드가 saveAll로 넣는 행을 JDBC 배치로 묶어 보낸다. (spring.jpa.properties.hibernate.* 로 덮어쓸 수 있다)
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching(@Value("${docshield.jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+        };
+    }
+}
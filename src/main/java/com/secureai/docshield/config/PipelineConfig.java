@@ -0,0 +1,78 @@
+package com.secureai.docshield.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Configuration
+public class PipelineConfig {
+
+    // 업로드 파이프라인의 파싱/마스킹 단계가 겹쳐 돌 수 있도록 하는 작업 스레드
+    // (문서당 동시 마스킹 요청 수는 DocumentPipelineService가 제한한다)
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService pipelineExecutor() {
+        return Executors.newCachedThreadPool(namedDaemon("doc-pipeline-"));
+    }
+
+    // 비동기 업로드 작업 실행기. 동시 작업 수와 대기열 상한은 UploadJobService가 관리한다.
+    // JDK 21 이상에서 docshield.jobs.virtual-threads=true 이면 가상 스레드를 쓴다.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService uploadJobExecutor(@Value("${docshield.jobs.workers:4}") int workers,
+                                             @Value("${docshield.jobs.virtual-threads:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("⚠️ 가상 스레드를 지원하지 않는 JDK — 고정 크기 풀({})을 사용합니다.", workers);
+            }
+        }
+        return Executors.newFixedThreadPool(workers, namedDaemon("upload-job-"));
+    }
+
+    // /api/ask/stream 에서 Gemini 스트림을 읽어 SSE로 흘려보내는 스레드 (요청 스레드를 붙잡지 않도록)
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService askStreamExecutor(@Value("${docshield.ask.stream-workers:32}") int workers) {
+        return Executors.newFixedThreadPool(workers, namedDaemon("ask-stream-"));
+    }
+
+    // 멀티 문서 질의의 문서별 Gemini 호출 (전체 상한 — 요청당 동시 호출 수는 MultiAskService가 제한한다)
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService askFanoutExecutor(@Value("${docshield.ask.fanout-workers:16}") int workers) {
+        return Executors.newFixedThreadPool(workers, namedDaemon("ask-fanout-"));
+    }
+
+    // MaskingBatcher가 모은 묶음을 Python 서버로 보내는 스레드 (동시에 보내는 묶음 수는 MaskingBatcher가 제한한다)
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService maskBatchExecutor() {
+        return Executors.newCachedThreadPool(namedDaemon("mask-batch-"));
+    }
+
+    // /api/upload/bulk 의 파일(ZIP 항목)별 파이프라인 실행기 — 코어 수만큼 (요청당 동시 파일 수는 BulkUploadService가 제한한다)
+    // 요청마다 항목을 읽어 나눠 주는 스레드는 bulkCoordinatorExecutor에서 돈다.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService bulkUploadExecutor(@Value("${docshield.bulk.workers:0}") int workers) {
+        int size = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(size, namedDaemon("bulk-upload-"));
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService bulkCoordinatorExecutor() {
+        return Executors.newCachedThreadPool(namedDaemon("bulk-coordinator-"));
+    }
+
+    private static ThreadFactory namedDaemon(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -1,13 +1,191 @@
 package com.secureai.docshield.config;
 
+import com.secureai.docshield.service.UpstreamGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Python 마스킹 서버와 Gemini API가 함께 쓰는 HTTP 클라이언트 설정.
+ *
+ * 커넥션 풀(keep-alive) 하나를 두 RestTemplate이 공유하고, 호스트(route)별 최대 커넥션 수와
+ * 연결/응답 타임아웃을 따로 준다. 응답 gzip 해제는 HttpClient가 자동으로 처리하고,
+ * 요청 gzip 압축은 백엔드별 설정으로 켠다. 풀 사용량은 httpcomponents.httpclient.pool.* 메트릭으로,
+ * 지연 시간은 RestTemplateBuilder가 붙이는 http.client.requests 메트릭으로 노출된다.
+ * 업스트림별 격벽/재시도/회로 차단기(UpstreamGuard)는 docshield.upstream.{python|gemini}.* 로 설정한다.
+ */
 @Configuration
 public class RestTemplateConfig {
+
+    @Value("${python.server.url}")
+    private String pythonServerUrl;
+
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com}")
+    private String geminiBaseUrl;
+
+    @Value("${docshield.http.max-total:200}")
+    private int maxTotal;
+
+    @Value("${docshield.http.python.max-per-route:32}")
+    private int pythonMaxPerRoute;
+
+    @Value("${docshield.http.gemini.max-per-route:64}")
+    private int geminiMaxPerRoute;
+
+    @Value("${docshield.http.connect-timeout:PT3S}")
+    private Duration connectTimeout;
+
+    // 풀에서 커넥션을 빌려오기까지 기다리는 최대 시간
+    @Value("${docshield.http.pool-timeout:PT5S}")
+    private Duration poolTimeout;
+
+    @Value("${docshield.http.idle-eviction:PT30S}")
+    private Duration idleEviction;
+
+    @Value("${docshield.http.python.read-timeout:PT120S}")
+    private Duration pythonReadTimeout;
+
+    @Value("${docshield.http.gemini.read-timeout:PT90S}")
+    private Duration geminiReadTimeout;
+
+    @Value("${docshield.http.python.gzip-requests:false}")
+    private boolean pythonGzipRequests;
+
+    @Value("${docshield.http.gemini.gzip-requests:false}")
+    private boolean geminiGzipRequests;
+
+    // true 이면 Gemini 호출은 JDK HttpClient(HTTP/2, ALPN 협상)로 보낸다.
+    @Value("${docshield.http.gemini.http2:false}")
+    private boolean geminiHttp2;
+
+    @Value("${docshield.http.gzip-min-bytes:2048}")
+    private int gzipMinBytes;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager() {
+        PoolingHttpClientConnectionManager manager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(pythonMaxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setTcpNoDelay(true)
+                        .setSoKeepAlive(true)
+                        .build())
+                .build();
+        manager.setMaxPerRoute(route(pythonServerUrl), pythonMaxPerRoute);
+        manager.setMaxPerRoute(route(geminiBaseUrl), geminiMaxPerRoute);
+        return manager;
+    }
+
+    // 클라이언트가 실제로 쓰는 route와 같아야 하므로 기본 포트와 TLS 여부까지 맞춰 만든다.
+    private static HttpRoute route(String url) {
+        URI uri = URI.create(url);
+        HttpHost host = RoutingSupport.normalize(HttpHost.create(uri), DefaultSchemePortResolver.INSTANCE);
+        return new HttpRoute(host, null, "https".equalsIgnoreCase(uri.getScheme()));
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient pooledHttpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .build();
+    }
+
+    @Bean
+    public MeterBinder httpConnectionPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpConnectionManager, "upstream");
+    }
+
+    // Python 마스킹 서버용 (기본 RestTemplate)
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient pooledHttpClient) {
+        RestTemplateBuilder configured = builder.requestFactory(() -> pooledFactory(pooledHttpClient, pythonReadTimeout));
+        if (pythonGzipRequests) configured = configured.additionalInterceptors(new GzipRequestInterceptor(gzipMinBytes));
+        return configured.build();
+    }
+
+    @Bean
+    public RestTemplate geminiRestTemplate(RestTemplateBuilder builder, CloseableHttpClient pooledHttpClient) {
+        RestTemplateBuilder configured = geminiHttp2
+                ? builder.requestFactory(this::http2Factory)
+                : builder.requestFactory(() -> pooledFactory(pooledHttpClient, geminiReadTimeout));
+        if (geminiGzipRequests) configured = configured.additionalInterceptors(new GzipRequestInterceptor(gzipMinBytes));
+        return configured.build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public UpstreamGuard pythonGuard(Environment env, MeterRegistry meterRegistry) {
+        return guard("python", env, meterRegistry, pythonMaxPerRoute, pythonReadTimeout.plusSeconds(30));
+    }
+
+    @Bean
+    public UpstreamGuard geminiGuard(Environment env, MeterRegistry meterRegistry) {
+        return guard("gemini", env, meterRegistry, geminiMaxPerRoute, geminiReadTimeout.plusSeconds(30));
+    }
+
+    // 동시 호출 한도는 기본으로 route별 커넥션 수와 같게 두어, 풀에서 커넥션을 기다리는 대신 격벽에서 기다리거나 거절한다.
+    // (업로드 마스킹은 callQueued로 마감 안에서 줄을 서고, /api/ask 호출만 max-wait 뒤 바로 거절된다)
+    private static UpstreamGuard guard(String name, Environment env, MeterRegistry meterRegistry,
+                                       int defaultConcurrent, Duration defaultBudget) {
+        String p = "docshield.upstream." + name + ".";
+        return new UpstreamGuard(name, meterRegistry,
+                env.getProperty(p + "max-concurrent", Integer.class, defaultConcurrent),
+                env.getProperty(p + "max-wait", Duration.class, Duration.ofSeconds(2)),
+                env.getProperty(p + "max-attempts", Integer.class, 3),
+                env.getProperty(p + "backoff", Duration.class, Duration.ofMillis(200)),
+                env.getProperty(p + "max-backoff", Duration.class, Duration.ofSeconds(5)),
+                env.getProperty(p + "time-budget", Duration.class, defaultBudget),
+                env.getProperty(p + "window", Integer.class, 20),
+                env.getProperty(p + "min-calls", Integer.class, 10),
+                env.getProperty(p + "failure-rate", Integer.class, 50),
+                env.getProperty(p + "open-duration", Duration.class, Duration.ofSeconds(30)));
+    }
+
+    private HttpComponentsClientHttpRequestFactory pooledFactory(CloseableHttpClient client, Duration readTimeout) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
+        factory.setConnectionRequestTimeout(poolTimeout);
+        factory.setReadTimeout(readTimeout);
+        return factory;
+    }
+
+    private JdkClientHttpRequestFactory http2Factory() {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(geminiReadTimeout);
+        return factory;
     }
 }
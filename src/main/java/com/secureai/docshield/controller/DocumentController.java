@@ -1,156 +1,352 @@
 package com.secureai.docshield.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.secureai.docshield.domain.*;
 import com.secureai.docshield.dto.*;
 import com.secureai.docshield.repository.DocumentResultRepository;
 import com.secureai.docshield.service.*;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
+@Slf4j
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class DocumentController {
 
-    private final FileParserService fileParserService;
-    private final PythonApiClient pythonApiClient;
-    private final ResponseFormatter responseFormatter;
+    private final DocumentPipelineService documentPipelineService;
+    private final UploadJobService uploadJobService;
+    private final BulkUploadService bulkUploadService;
+    private final PromptTemplateRegistry templateRegistry;
     private final DocumentResultRepository repository;
-    private final DocumentCache documentCache;
     private final AiPromptService aiPromptService;
+    private final AnswerCacheService answerCacheService;
+    private final AskStreamService askStreamService;
+    private final RetrievalService retrievalService;
+    private final MultiAskService multiAskService;
+    private final DocumentListService documentListService;
+    private final SearchService searchService;
+    private final DocumentContentService contentService;
+    private final ObjectMapper objectMapper;
 
     /**
      * 1️⃣ 문서 업로드 → Python 서버로 전송 (보안 마스킹 및 Markdown 생성)
+     *    파싱/마스킹/저장은 청크 단위 파이프라인으로 겹쳐서 처리된다.
+     *    async=true 이면 작업 id를 바로 돌려주고 /api/jobs/{id} 로 진행 상황을 조회한다.
+     *    previousId를 주면 그 완료 문서의 다음 판이 되고, 바뀌지 않은 청크는 다시 마스킹하지 않는다.
      */
     @PostMapping("/upload")
-    public ResponseEntity<Map<String, String>> upload(@RequestParam MultipartFile file) throws IOException {
-        String text = fileParserService.parseFile(file);
-        String pythonMarkdown = pythonApiClient.sendToPython(text);
-        PythonResponse parsed = responseFormatter.parsePythonResponse(pythonMarkdown);
-        DocumentType type = parsed.getDocumentType();
-        String fileName = file.getOriginalFilename();
+    public ResponseEntity<Map<String, String>> upload(
+            @RequestParam MultipartFile file,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestParam(required = false) String previousId
+    ) throws IOException {
+        if (async) {
+            try {
+                UploadJob job = uploadJobService.submit(file, previousId);
+                Map<String, String> response = new HashMap<>();
+                response.put("id", job.getId());
+                response.put("jobId", job.getId());
+                response.put("state", job.getState().name());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            } catch (RejectedExecutionException e) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .body(Map.of("error", e.getMessage()));
+            }
+        }
 
-        String id = UUID.randomUUID().toString();
-        repository.save(new DocumentResult(id, type, pythonMarkdown, null, fileName));
-        documentCache.save(id, text);
+        DocumentResult result;
+        try {
+            result = documentPipelineService.process(file, previousId);
+        } catch (UnknownPreviousVersionException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (UpstreamUnavailableException e) {
+            // Python 서버 회로가 열려 있거나 동시 호출 한도가 참 — 기다리지 않고 바로 알려준다.
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter(e))
+                    .body(Map.of("error", e.getMessage()));
+        }
 
         // ✅ JSON으로 감싸서 반환
         Map<String, String> response = new HashMap<>();
-        response.put("id", id);
+        response.put("id", result.getId());
+        // previousId로 이어 올린 경우 직전 판과 판 번호
+        response.put("version", Integer.toString(result.versionNumber()));
+        if (result.getPreviousId() != null) response.put("previousId", result.getPreviousId());
 
         return ResponseEntity.ok(response);
     }
 
 
+    /**
+     * 1️⃣-1 일괄 업로드 — 파일 여러 개(files) 또는 ZIP을 받아 파일별 처리 결과를 NDJSON으로 흘려보낸다.
+     *      마지막 줄(event=done)에 파일별 결과 매니페스트가 담긴다.
+     */
+    @PostMapping(value = "/upload/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> uploadBulk(@RequestParam("files") List<MultipartFile> files) {
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(bulkUploadService.upload(files));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+    }
+
+
     /**
      * 2️⃣ 사용자 질문 → Gemini 호출 (Markdown 문서 기반 질의)
+     *    docIds 로 문서를 여러 개 넘기면 문서별로 병렬 질의한 뒤 답변을 합치고 metrics를 함께 돌려준다.
      */
     @PostMapping("/ask")
     public ResponseEntity<GenericAiResponse> ask(
-            @RequestParam String docId,
+            @RequestParam(required = false) String docId,
+            @RequestParam(required = false) List<String> docIds,
             @RequestParam String question
-    ) {
-        System.out.println("🟢 [ASK 요청 시작]");
-        System.out.println("📨 docId = " + docId);
-        System.out.println("❓ question = " + question);
+    ) throws InterruptedException {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(docIds != null ? docIds : List.of()));
+        if (docId != null && !ids.contains(docId)) ids.add(0, docId);
+        if (ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(new GenericAiResponse("❌ docId 또는 docIds가 필요합니다."));
+        }
+        if (ids.size() > 1) {
+            log.debug("🟢 [멀티 ASK 요청] 문서 {}개", ids.size());
+            return ResponseEntity.ok(multiAskService.ask(ids, question));
+        }
+        docId = ids.get(0);
 
-        boolean exists = repository.existsById(docId);
-        System.out.println("📦 DB 존재 여부: " + exists);
+        log.debug("🟢 [ASK 요청] docId = {}", docId);
 
-        if (!exists) {
-            System.err.println("❌ DB에 해당 문서 없음 — 업로드 후 서버가 재시작되었거나 H2가 메모리 모드일 수 있음");
+        // 메타데이터만 한 번 조회 (본문은 document_contents에서 필요할 때만 읽는다)
+        Optional<DocumentResult> found = repository.findById(docId);
+
+        if (found.isEmpty()) {
+            log.debug("❌ DB에 해당 문서 없음 — 업로드 후 서버가 재시작되었거나 H2가 메모리 모드일 수 있음: {}", docId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new GenericAiResponse("❌ 문서를 찾을 수 없습니다. 업로드가 잘 되었는지 확인하세요."));
         }
 
-        DocumentResult result = repository.findById(docId)
-                .orElseThrow(() -> new IllegalArgumentException("❌ 해당 문서를 찾을 수 없습니다."));
+        DocumentResult result = found.get();
 
-        System.out.println("✅ DB 조회 성공: " + result.getFileName());
-        System.out.println("📄 DocumentType = " + result.getType());
-        System.out.println("📄 PythonMarkdown 길이 = " +
-                (result.getPythonMarkdown() != null ? result.getPythonMarkdown().length() : 0));
+        if (!result.isCompleted()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new GenericAiResponse("⏳ 문서가 아직 처리 중이거나 처리에 실패했습니다. (" + result.getStatus() + ")"));
+        }
 
-        // ✅ Gemini 호출
-        String maskedMarkdown = result.getPythonMarkdown();
+        // ✅ Gemini 호출 (같은 문서·같은 질문은 답변 캐시에서 재사용, 동시 요청은 한 번만 호출)
+        //    큰 문서는 질문과 관련된 단락만 토큰 예산 안에서 골라 보낸다.
         DocumentType type = result.getType();
 
-        System.out.println("🚀 Gemini 호출 시작...");
-        String geminiMarkdown = aiPromptService.askGemini(maskedMarkdown, question, type.name());
-        System.out.println("🤖 Gemini 응답 수신 완료 (길이: " + geminiMarkdown.length() + ")");
+        String geminiMarkdown;
+        try {
+            geminiMarkdown = answerCacheService.answer(result, question,
+                    () -> aiPromptService.askGemini(retrievalService.contextFor(result, question), question, type));
+        } catch (PromptTooLargeException e) {
+            // Gemini를 부르기 전에 토큰 상한으로 거절됨
+            log.info("❌ 프롬프트 토큰 상한 초과: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(new GenericAiResponse("❌ " + e.getMessage()));
+        } catch (UpstreamUnavailableException e) {
+            log.info("❌ Gemini 호출 차단: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter(e))
+                    .body(new GenericAiResponse("⚠️ Gemini를 잠시 사용할 수 없습니다. 잠시 후 다시 시도하세요."));
+        }
 
-        // ✅ 결과 저장
-        result.setGeminiMarkdown(geminiMarkdown);
-        repository.save(result);
-        System.out.println("💾 Gemini 결과 DB 저장 완료");
+        // ✅ 결과 저장 (답변 이력은 answer_cache 테이블에 남고, 여기에는 마지막 답변만 둔다)
+        contentService.saveAnswer(docId, geminiMarkdown);
+        log.debug("✅ [ASK 완료] docId = {}, 답변 {}자", docId, geminiMarkdown.length());
 
-        GenericAiResponse response = new GenericAiResponse(geminiMarkdown);
-        System.out.println("✅ [ASK 완료] 응답 전송");
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(new GenericAiResponse(geminiMarkdown));
+    }
+
+
+    /**
+     * 2️⃣-1 사용자 질문 → Gemini 답변을 SSE로 스트리밍 (event: delta / done / error)
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> askStream(
+            @RequestParam String docId,
+            @RequestParam String question
+    ) {
+        Optional<DocumentResult> result = repository.findById(docId);
+        if (result.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (!result.get().isCompleted()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(askStreamService.stream(result.get(), question));
     }
 
 
     /**
      * 3️⃣ Python 결과(Markdown) 조회
+     *    본문 CLOB을 String으로 올리지 않고 DB에서 읽는 대로 JSON으로 흘려보낸다.
      */
     @GetMapping("/result/{id}")
-    public ResponseEntity<Map<String, Object>> getPythonResult(@PathVariable String id) {
-        DocumentResult result = repository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("결과 없음"));
+    public ResponseEntity<StreamingResponseBody> getPythonResult(@PathVariable String id) {
+        Optional<DocumentResult> found = repository.findById(id);
+        if (found.isEmpty()) {
+            // 대기 중(QUEUED)이거나 아직 행을 만들기 전인 비동기 작업은 작업 상태로 답한다.
+            Optional<UploadJob> job = uploadJobService.find(id);
+            if (job.isEmpty()) return ResponseEntity.notFound().build();
+            Map<String, Object> status = Map.of("jobId", id, "state", job.get().getState());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, status));
+        }
+        DocumentResult result = found.get();
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("documentType", result.getType());        // ✅ DB에 저장된 문서 유형
-        response.put("markdown", result.getPythonMarkdown());  // ✅ 실제 마스킹 결과 텍스트
+        // 처리 중인 문서는 결과 대신 상태만 알려준다.
+        if (!result.isCompleted()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, Map.of("status", result.getStatus())));
+        }
 
-        return ResponseEntity.ok(response);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeStringField("documentType", result.getType() == null ? null : result.getType().name()); // ✅ DB에 저장된 문서 유형
+                gen.writeFieldName("markdown");                                                                // ✅ 실제 마스킹 결과 텍스트
+                if (!contentService.streamPythonMarkdown(id, reader -> gen.writeString(reader, -1))) {
+                    gen.writeNull();
+                }
+                gen.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
-     * 4️⃣ 카테고리별 문서 목록 조회 (id + fileName만 반환)
+     * 4️⃣ 카테고리별 문서 목록 조회 (id + fileName + createdAt)
+     *    size개씩 키셋 페이지로 반환하고, 다음 페이지가 있으면 X-Next-Cursor 헤더에 커서를 담는다.
+     *    sort=desc(기본, 최근 업로드 순) | asc
      */
     @GetMapping("/documents")
-    public ResponseEntity<List<Map<String, String>>> getDocumentsByType(@RequestParam DocumentType type) {
-        List<DocumentResult> docs = repository.findAll();
-
-        // type에 해당하는 문서만 필터링 후 단순 구조로 반환
-        List<Map<String, String>> response = docs.stream()
-                .filter(doc -> doc.getType() == type)
-                .map(doc -> Map.of(
-                        "id", doc.getId(),
-                        "fileName", doc.getFileName()
-                ))
-                .toList();
+    public ResponseEntity<List<DocumentSummary>> getDocumentsByType(
+            @RequestParam DocumentType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "desc") String sort
+    ) {
+        if (size < 1 || size > 500 || !(sort.equalsIgnoreCase("desc") || sort.equalsIgnoreCase("asc"))) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        return ResponseEntity.ok(response);
+        DocumentListService.Page page;
+        try {
+            page = documentListService.list(type, cursor, size, sort.equalsIgnoreCase("desc"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) response.header("X-Next-Cursor", page.nextCursor());
+        return response.body(page.items());
+    }
+
+    /**
+     * 4️⃣-1 전체 문서 검색 — 마스킹 결과에 검색어(의 모든 토큰)가 들어 있는 문서를 관련도 순으로 돌려준다.
+     *      types로 유형을 거를 수 있고(여러 개 가능), page/size로 페이지를 나눈다. 발췌의 일치 부분은 <em>으로 감싼다.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<SearchResponse> search(
+            @RequestParam String q,
+            @RequestParam(required = false) List<DocumentType> types,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        // 점수 순 페이지는 앞 페이지를 모두 계산해야 하므로 깊이를 1000건으로 제한한다.
+        if (q.isBlank() || page < 0 || size < 1 || size > 100 || ((long) page + 1) * size > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<DocumentType> filter = types == null || types.isEmpty() ? Set.of() : EnumSet.copyOf(types);
+        return ResponseEntity.ok(searchService.search(q, filter, page, size));
     }
+
     /**
      * 5️⃣ 문서 타입별 테스트 데이터 조회 (프론트 참고용)
+     *    기동 시 읽어 둔 바이트를 그대로 보내고, If-None-Match가 같으면 304로 본문을 생략한다.
      */
     @GetMapping("/example")
-    public ResponseEntity<String> getExampleData(@RequestParam DocumentType type) {
-        String fileName = switch (type) {
-            case HR_INFO -> "HRsearchTest.txt";
-            case BUSINESS_INFO -> "BusinessSearchTest.txt";
-            case TECH_INFO -> "TechSearchTest.txt";
-            case PERSONAL_INFO -> "PersonalSearchTest.txt";
-            case PUBLIC_INFO -> "PublicSearchTest.txt";
-        };
+    public ResponseEntity<byte[]> getExampleData(@RequestParam DocumentType type,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        PromptTemplateRegistry.Template template = templateRegistry.get(type);
+        if (template.bytes() == null) {
+            log.warn("⚠️ 예시파일 로드 실패: {}", type.getReferenceFile());
+            return ResponseEntity.status(500)
+                    .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                    .body("예시 데이터를 불러오지 못했습니다.".getBytes(StandardCharsets.UTF_8));
+        }
+        if (PromptTemplateRegistry.matches(ifNoneMatch, template.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(template.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(template.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(template.bytes());
+    }
 
-        try {
-            var resource = new org.springframework.core.io.ClassPathResource(fileName);
-            String content = Files.readString(resource.getFile().toPath(), StandardCharsets.UTF_8);
-            return ResponseEntity.ok(content);
-        } catch (Exception e) {
-            System.err.println("⚠️ 예시파일 로드 실패: " + e.getMessage());
-            return ResponseEntity.status(500).body("예시 데이터를 불러오지 못했습니다.");
+    /**
+     * 6️⃣ 비동기 업로드 작업 상태 조회
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String id) {
+        Optional<UploadJob> job = uploadJobService.find(id);
+        if (job.isPresent()) {
+            UploadJob j = job.get();
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", j.getId());
+            response.put("docId", j.getId());
+            response.put("fileName", j.getFileName());
+            response.put("state", j.getState());
+            response.put("parsedChunks", j.getParsedChunks());
+            response.put("maskedChunks", j.getMaskedChunks());
+            response.put("parsingDone", j.isParsingDone());
+            response.put("predictedType", j.getPredictedType());
+            response.put("progress", j.progress());
+            response.put("error", j.getError());
+            return ResponseEntity.ok(response);
         }
+
+        // 메모리에서 정리된 작업은 문서 상태로 대신 응답한다.
+        return repository.findById(id)
+                .map(doc -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("jobId", id);
+                    response.put("docId", id);
+                    response.put("fileName", doc.getFileName());
+                    response.put("state", doc.isCompleted() ? UploadJob.State.COMPLETED
+                            : doc.getStatus() == ProcessingStatus.FAILED ? UploadJob.State.FAILED
+                            : UploadJob.State.RUNNING);
+                    return ResponseEntity.ok(response);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Retry-After는 초 단위 정수 (최소 1초)
+    private static String retryAfter(UpstreamUnavailableException e) {
+        return Long.toString(Math.max(1, e.getRetryAfter().toSeconds()));
     }
 }
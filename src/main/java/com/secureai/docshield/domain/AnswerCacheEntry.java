@@ -0,0 +1,47 @@
+package com.secureai.docshield.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 문서별 Gemini 답변 캐시. (docId, 문서 유형, 정규화된 질문) 하나당 한 행.
+ */
+@Entity
+@Table(name = "answer_cache",
+        indexes = {
+                @Index(name = "idx_answer_cache_key", columnList = "doc_id, doc_type, question_key", unique = true),
+                @Index(name = "idx_answer_cache_created", columnList = "created_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnswerCacheEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doc_id", nullable = false)
+    private String docId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "doc_type")
+    private DocumentType docType;
+
+    // 정규화된 질문의 SHA-256 (hex)
+    @Column(name = "question_key", length = 64, nullable = false)
+    private String questionKey;
+
+    @Column(length = 2000)
+    private String question;
+
+    @Column(columnDefinition = "CLOB")
+    private String answer;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
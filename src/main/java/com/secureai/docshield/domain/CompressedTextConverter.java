@@ -0,0 +1,22 @@
+package com.secureai.docshield.domain;
+
+import com.secureai.docshield.util.ContentCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * 본문 컬럼을 압축해서 저장하고 읽을 때 푼다. 압축 전에 저장된 행은 그대로 읽힌다.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, String> {
+
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+        return ContentCodec.encode(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+        return ContentCodec.decode(dbData);
+    }
+}
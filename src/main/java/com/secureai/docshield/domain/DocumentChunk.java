@@ -0,0 +1,41 @@
+package com.secureai.docshield.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 업로드 파이프라인에서 마스킹이 끝난 청크. 문서 단위 결과는 seq 순서로 이어 붙여 만든다.
+ * 같은 파일의 다음 판이 올라오면 contentHash가 같은 청크의 마스킹 결과를 그대로 가져다 쓴다.
+ * 첫 청크(seq 0)의 contentHash는 캐시 창보다 큰 문서의 재업로드를 알아보는 데도 쓴다.
+ */
+@Entity
+@Table(name = "document_chunks", indexes = {
+        @Index(name = "idx_document_chunks_doc", columnList = "doc_id, seq"),
+        @Index(name = "idx_document_chunks_hash", columnList = "content_hash, seq")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doc_id", nullable = false)
+    private String docId;
+
+    private int seq;
+
+    @Enumerated(EnumType.STRING)
+    private DocumentType type;
+
+    @Column(columnDefinition = "CLOB")
+    private String markdown;
+
+    // 마스킹 전 청크 원문의 SHA-256 (hex). 컬럼 도입 전 청크는 null → 재사용하지 않는다.
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+}
@@ -0,0 +1,32 @@
+package com.secureai.docshield.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 문서 본문 (마스킹 결과, 마지막 Gemini 답변).
+ * 메타데이터(DocumentResult)와 테이블을 나눠 목록/상태 조회가 CLOB을 끌고 오지 않게 한다.
+ * id는 DocumentResult.id와 같다.
+ * 두 본문 컬럼은 CompressedTextConverter로 압축해서 저장한다.
+ */
+@Entity
+@Table(name = "document_contents")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentContent {
+
+    @Id
+    private String id;
+
+    // Python 응답 형태 그대로의 JSON 문자열 ({"markdown": ..., "documentType": ...})
+    @Column(columnDefinition = "CLOB")
+    @Convert(converter = CompressedTextConverter.class)
+    private String pythonMarkdown;
+
+    @Column(columnDefinition = "CLOB")
+    @Convert(converter = CompressedTextConverter.class)
+    private String geminiMarkdown;
+}
@@ -1,16 +1,31 @@
 package com.secureai.docshield.domain;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
+import java.time.Instant;
+
+/**
+ * 문서 메타데이터. 본문(마스킹 결과, Gemini 답변)은 DocumentContent에 따로 둔다.
+ * 업로드 때 previousId를 준 문서는 새 행(새 id)이 되고 previousId로 직전 판을 가리킨다.
+ */
 @Entity
-@Table(name = "document_results")
+@Table(name = "document_results",
+        indexes = {
+                @Index(name = "idx_document_results_hash", columnList = "content_hash"),
+                // 유형별 목록을 업로드 시각 순으로 키셋 페이지네이션 (/api/documents)
+                @Index(name = "idx_document_results_type_created", columnList = "type, created_at, id")
+        })
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-public class DocumentResult {
+public class DocumentResult implements Persistable<String> {
 
     @Id
     private String id;
@@ -18,11 +33,81 @@ public class DocumentResult {
     @Enumerated(EnumType.STRING)
     private DocumentType type;
 
-    @Column(columnDefinition = "CLOB")
-    private String pythonMarkdown;
+    private String fileName;
 
-    @Column(columnDefinition = "CLOB")
-    private String geminiMarkdown;
+    // 업로드 파이프라인이 끝나야 COMPLETED가 된다. (상태 컬럼 도입 전 데이터는 null → 완료로 취급)
+    @Enumerated(EnumType.STRING)
+    private ProcessingStatus status;
 
-    private String fileName;
+    // 추출 텍스트의 SHA-256 (hex). 같은 내용이 다시 올라오면 마스킹 결과를 재사용한다.
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // 직전 판 문서 id와 판 번호. 첫 판은 previousId가 null이고 판 번호 1 (컬럼 도입 전 문서는 null → 1로 취급)
+    @Column(name = "previous_id", length = 36)
+    private String previousId;
+
+    @Column(name = "doc_version")
+    private Integer version;
+
+    // 업로드 시각. 처음 저장될 때 채워지고 이후 merge로는 바뀌지 않는다.
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    // 새 행이라고 표시되면 save/saveAll이 merge(행마다 SELECT) 대신 바로 persist한다. → INSERT가 JDBC 배치로 묶인다.
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean newRow;
+
+    public DocumentResult(String id, DocumentType type, String fileName, ProcessingStatus status,
+                          String contentHash, Instant createdAt) {
+        this.id = id;
+        this.type = type;
+        this.fileName = fileName;
+        this.status = status;
+        this.contentHash = contentHash;
+        this.createdAt = createdAt;
+    }
+
+    /** 아직 DB에 없는 행 (일괄 업로드에서 saveAll 전에 표시한다) */
+    public DocumentResult asNew() {
+        this.newRow = true;
+        return this;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRow;
+    }
+
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) createdAt = Instant.now();
+    }
+
+    @PostPersist
+    @PostLoad
+    void onStored() {
+        newRow = false;
+    }
+
+    /** previous의 다음 판으로 표시한다. (previous가 null이면 그대로) */
+    public DocumentResult nextVersionOf(DocumentResult previous) {
+        if (previous != null) {
+            this.previousId = previous.getId();
+            this.version = previous.versionNumber() + 1;
+        }
+        return this;
+    }
+
+    public int versionNumber() {
+        return version == null ? 1 : version;
+    }
+
+    public boolean isCompleted() {
+        return status == null || status == ProcessingStatus.COMPLETED;
+    }
 }
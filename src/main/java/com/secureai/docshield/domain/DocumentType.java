@@ -2,19 +2,26 @@ package com.secureai.docshield.domain;
 
 public enum DocumentType {
 
-    HR_INFO("인사 정보"),
-    BUSINESS_INFO("사업 관련 정보 "),
-    TECH_INFO("기술 정보"),
-    PUBLIC_INFO("공개 정보"),
-    PERSONAL_INFO("개인 정보 )");
+    HR_INFO("인사 정보", "HRsearchTest.txt"),
+    BUSINESS_INFO("사업 관련 정보 ", "BusinessSearchTest.txt"),
+    TECH_INFO("기술 정보", "TechSearchTest.txt"),
+    PUBLIC_INFO("공개 정보", "PublicSearchTest.txt"),
+    PERSONAL_INFO("개인 정보 )", "PersonalSearchTest.txt");
 
     private final String description;
+    // 유형별 예시 코퍼스 (src/main/resources)
+    private final String referenceFile;
 
-    DocumentType(String description) {
+    DocumentType(String description, String referenceFile) {
         this.description = description;
+        this.referenceFile = referenceFile;
     }
 
     public String getDescription() {
         return description;
     }
+
+    public String getReferenceFile() {
+        return referenceFile;
+    }
 }
@@ -0,0 +1,7 @@
+package com.secureai.docshield.domain;
+
+public enum ProcessingStatus {
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,88 @@
+package com.secureai.docshield.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 비동기 업로드 작업의 진행 상태 (메모리에만 유지, 완료 후 일정 시간이 지나면 정리된다).
+ * 작업 id는 생성될 DocumentResult의 id와 같다.
+ */
+@Getter
+public class UploadJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final Instant createdAt = Instant.now();
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger parsedChunks = new AtomicInteger();
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger maskedChunks = new AtomicInteger();
+    private volatile boolean parsingDone;
+    // 로컬 분류기가 첫 청크로 어림한 유형 (최종 유형은 DocumentResult.type)
+    private volatile DocumentType predictedType;
+    private volatile State state = State.QUEUED;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    public UploadJob(String id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+    }
+
+    public void start() {
+        state = State.RUNNING;
+    }
+
+    public void chunkParsed() {
+        parsedChunks.incrementAndGet();
+    }
+
+    public void chunkMasked() {
+        maskedChunks.incrementAndGet();
+    }
+
+    public void parsingDone() {
+        parsingDone = true;
+    }
+
+    public void typePredicted(DocumentType type) {
+        predictedType = type;
+    }
+
+    public void complete() {
+        state = State.COMPLETED;
+        finishedAt = Instant.now();
+    }
+
+    public void fail(String message) {
+        error = message;
+        state = State.FAILED;
+        finishedAt = Instant.now();
+    }
+
+    /** 0.0 ~ 1.0, 파싱이 끝나기 전에는 전체 청크 수를 모르므로 null */
+    public Double progress() {
+        if (state == State.COMPLETED) return 1.0;
+        int total = parsedChunks.get();
+        if (!parsingDone || total == 0) return null;
+        return (double) maskedChunks.get() / total;
+    }
+
+    public int getParsedChunks() {
+        return parsedChunks.get();
+    }
+
+    public int getMaskedChunks() {
+        return maskedChunks.get();
+    }
+}
@@ -0,0 +1,35 @@
+package com.secureai.docshield.dto;
+
+import com.secureai.docshield.domain.DocumentType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 멀티 문서 질의 메타 정보 (app.js renderMetaBar 참고)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AskMetrics {
+    private Double relevance;                       // 질문 단어가 문서에 등장한 비율의 평균 (0~1)
+    private List<String> usedDocs;                  // 답변에 반영된 문서 id
+    private Map<DocumentType, Double> categoryShare; // 반영된 문서의 유형별 비율
+    private long latencyMs;                         // 전체 소요 시간 (reduce 포함)
+    private List<DocumentTiming> documents;         // 문서별 처리 결과
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DocumentTiming {
+        private String docId;
+        private String fileName;
+        private DocumentType type;
+        private String status;      // ANSWERED, FAILED, TIMEOUT, TOO_LARGE(토큰 상한 초과), UNAVAILABLE(회로 차단/격벽), SKIPPED(처리 중), NOT_FOUND
+        private long latencyMs;
+        private double relevance;
+    }
+}
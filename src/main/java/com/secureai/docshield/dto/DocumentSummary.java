@@ -0,0 +1,14 @@
+package com.secureai.docshield.dto;
+
+import java.time.Instant;
+
+/**
+ * 문서 목록용 프로젝션 — CLOB 컬럼 없이 id/파일명/업로드 시각만 읽는다.
+ */
+public interface DocumentSummary {
+    String getId();
+
+    String getFileName();
+
+    Instant getCreatedAt();
+}
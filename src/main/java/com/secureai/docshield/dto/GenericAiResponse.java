@@ -1,5 +1,6 @@
 package com.secureai.docshield.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,4 +10,12 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class GenericAiResponse {
     private String markdown;
+
+    // 멀티 문서 질의에서만 채워진다. (프론트 메타바)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private AskMetrics metrics;
+
+    public GenericAiResponse(String markdown) {
+        this(markdown, null);
+    }
 }
@@ -0,0 +1,36 @@
+package com.secureai.docshield.dto;
+
+import com.secureai.docshield.domain.DocumentType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * /api/search 응답 (점수 순 페이지)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResponse {
+    private int total;              // 조건에 맞는 전체 문서 수
+    private int page;
+    private int size;
+    private boolean complete;       // false면 기동 후 색인을 다시 만드는 중이라 일부 문서가 빠져 있을 수 있다.
+    private long tookMs;
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String id;
+        private String fileName;
+        private DocumentType type;
+        private Instant createdAt;
+        private double score;
+        private List<String> highlights;   // 검색어 주변 발췌, 일치 부분은 <em>으로 감싼다. (나머지는 HTML 이스케이프)
+    }
+}
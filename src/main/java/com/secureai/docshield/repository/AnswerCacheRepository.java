@@ -0,0 +1,28 @@
+package com.secureai.docshield.repository;
+
+import com.secureai.docshield.domain.AnswerCacheEntry;
+import com.secureai.docshield.domain.DocumentType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnswerCacheRepository extends JpaRepository<AnswerCacheEntry, Long> {
+
+    Optional<AnswerCacheEntry> findByDocIdAndDocTypeAndQuestionKey(String docId, DocumentType docType, String questionKey);
+
+    @Transactional
+    @Modifying
+    @Query("delete from AnswerCacheEntry e where e.createdAt < :cutoff")
+    int deleteExpired(Instant cutoff);
+
+    @Query("select e.id from AnswerCacheEntry e order by e.createdAt asc")
+    List<Long> findOldestIds(Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package com.secureai.docshield.repository;
+
+import com.secureai.docshield.domain.DocumentChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Long> {
+
+    List<DocumentChunk> findByDocIdOrderBySeq(String docId);
+
+    // 첫 청크가 같은 가장 최근 문서 찾기 (idx_document_chunks_hash 사용)
+    Optional<DocumentChunk> findFirstBySeqAndContentHashOrderByIdDesc(int seq, String contentHash);
+
+    @Transactional
+    void deleteByDocId(String docId);
+}
@@ -0,0 +1,31 @@
+package com.secureai.docshield.repository;
+
+import com.secureai.docshield.domain.DocumentContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentContentRepository extends JpaRepository<DocumentContent, String> {
+
+    @Query("select c.pythonMarkdown from DocumentContent c where c.id = :id")
+    Optional<String> findPythonMarkdown(String id);
+
+    // 마지막 답변만 덮어쓴다. (본문을 읽지 않고 UPDATE 한 번)
+    // native라 컨버터를 거치지 않는다 — answer는 호출하는 쪽에서 ContentCodec으로 압축해 넘긴다.
+    @Transactional
+    @Modifying
+    @Query(value = "update document_contents set gemini_markdown = :answer where id = :id", nativeQuery = true)
+    int updateAnswer(String id, String answer);
+
+    // 같은 내용으로 재사용되는 문서는 DB 안에서 본문을 복사한다. (압축된 값 그대로)
+    @Transactional
+    @Modifying
+    @Query(value = "insert into document_contents (id, python_markdown) " +
+            "select :toId, python_markdown from document_contents where id = :fromId", nativeQuery = true)
+    int copyMarkdown(String fromId, String toId);
+}
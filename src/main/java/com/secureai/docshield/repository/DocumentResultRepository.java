@@ -1,9 +1,51 @@
 package com.secureai.docshield.repository;
 
 import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.dto.DocumentSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DocumentResultRepository extends JpaRepository<DocumentResult, String> {
+
+    Optional<DocumentResult> findFirstByContentHashAndStatus(String contentHash, ProcessingStatus status);
+
+    // ✅ 유형별 완료 문서 목록 (키셋 페이지네이션, idx_document_results_type_created 사용)
+    String SUMMARY = "select d.id as id, d.fileName as fileName, d.createdAt as createdAt from DocumentResult d " +
+            "where d.type = :type and (d.status is null or d.status = com.secureai.docshield.domain.ProcessingStatus.COMPLETED) ";
+
+    @Query(SUMMARY + "order by d.createdAt desc, d.id desc")
+    List<DocumentSummary> findNewest(DocumentType type, Pageable limit);
+
+    @Query(SUMMARY + "and (d.createdAt < :createdAt or (d.createdAt = :createdAt and d.id < :id)) " +
+            "order by d.createdAt desc, d.id desc")
+    List<DocumentSummary> findNewestBefore(DocumentType type, Instant createdAt, String id, Pageable limit);
+
+    @Query(SUMMARY + "order by d.createdAt asc, d.id asc")
+    List<DocumentSummary> findOldest(DocumentType type, Pageable limit);
+
+    @Query(SUMMARY + "and (d.createdAt > :createdAt or (d.createdAt = :createdAt and d.id > :id)) " +
+            "order by d.createdAt asc, d.id asc")
+    List<DocumentSummary> findOldestAfter(DocumentType type, Instant createdAt, String id, Pageable limit);
+
+    // 검색 색인 재구성용 — 완료 문서를 id 순서로 키셋 페이지
+    @Query("select d from DocumentResult d where d.id > :after " +
+            "and (d.status is null or d.status = com.secureai.docshield.domain.ProcessingStatus.COMPLETED) order by d.id")
+    List<DocumentResult> findCompletedAfter(String after, Pageable limit);
+
+    // created_at 컬럼 도입 전 문서는 가장 오래된 것으로 취급한다.
+    @Transactional
+    @Modifying
+    @Query("update DocumentResult d set d.createdAt = :createdAt where d.createdAt is null")
+    int backfillCreatedAt(Instant createdAt);
 }
@@ -1,19 +1,61 @@
 package com.secureai.docshield.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.util.GeminiJson;
+import com.secureai.docshield.util.Utf8;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.List;
-
+import java.util.function.Consumer;
+
+/**
+ * Gemini 호출. 호출마다 docshield.gemini 관측(타이머 + 트레이스 span, operation=generate|merge|stream)을 남기고,
+ * 요청/응답 바이트는 docshield.upstream.payload, 응답의 usageMetadata 토큰 수는 docshield.gemini.tokens로 기록한다.
+ * 응답은 트리를 만들지 않고 GeminiJson으로 텍스트와 토큰 수만 읽는다.
+ */
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class AiPromptService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Gemini 호출 실패 시 askGemini가 돌려주는 응답의 접두어 (캐시 저장 제외용)
+    static final String ERROR_PREFIX = "⚠️ Gemini 호출 중 오류 발생";
+
+    // 커넥션 풀을 공유하는 Gemini 전용 RestTemplate (RestTemplateConfig)
+    @Qualifier("geminiRestTemplate")
+    private final RestTemplate restTemplate;
+
+    // 격벽/재시도/회로 차단기 (RestTemplateConfig)
+    @Qualifier("geminiGuard")
+    private final UpstreamGuard guard;
+
+    private final GeminiPromptBuilder promptBuilder;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ObservationRegistry observationRegistry;
+
+    // merge 요청 본문 직렬화용 (공유)
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com}")
+    private String geminiBaseUrl;
 
     @Value("${gemini.api.key}")
     private String geminiApiKey;
@@ -21,83 +63,165 @@ public class AiPromptService {
     @Value("${gemini.model.name:gemini-2.5-flash}")
     private String geminiModel;
 
-    public String askGemini(String markdownDoc, String question, String documentType) {
-        String url = String.format(
-                "https://generativelanguage.googleapis.com/v1beta/models/%s:generateContent?key=%s",
-                geminiModel, geminiApiKey
-        );
-
-        String referenceContent = "";
-        try {
-            String fileName = switch (documentType) {
-                case "HR_INFO" -> "HRsearchTest.txt";
-                case "BUSINESS_INFO" -> "BusinessSearchTest.txt";
-                case "TECH_INFO" -> "TechSearchTest.txt";
-                case "PERSONAL_INFO" -> "PersonalSearchTest.txt";
-                case "PUBLIC_INFO" -> "PublicSearchTest.txt";
-                default -> null;
-            };
-
-            if (fileName != null) {
-                var resource = new org.springframework.core.io.ClassPathResource(fileName);
-                referenceContent = java.nio.file.Files.readString(resource.getFile().toPath());
-                System.out.println("📄 참조 문서 로드 완료: " + fileName);
-            }
-        } catch (Exception e) {
-            System.err.println("⚠️ 참조 문서 로드 실패: " + e.getMessage());
-        }
+    /**
+     * 문서 기반 질의. 토큰 상한 검사는 Gemini를 부르기 전에 하므로 넘치는 요청은 바로 PromptTooLargeException으로 끝난다.
+     * 회로가 열려 있거나 동시 호출 한도가 차면 오류 문자열 대신 UpstreamUnavailableException이 올라온다.
+     */
+    public String askGemini(String markdownDoc, String question, DocumentType documentType) {
+        GeminiPromptBuilder.Prompt prompt = promptBuilder.build(markdownDoc, question, documentType);
+        return generate("generate", prompt.body(), prompt);
+    }
 
-        // 🧩 프롬프트
-        String systemPrompt = String.format("""
-        당신은 기업 문서를 분석하는 전문 분석가입니다.
-        문서 유형: %s
+    /**
+     * 멀티 문서 질의의 reduce 단계: 문서별 부분 답변을 하나의 답변으로 합친다.
+     * labels와 partials는 같은 순서의 (문서 이름, 부분 답변) 쌍이다.
+     */
+    public String mergeAnswers(String question, List<String> labels, List<String> partials) {
+        String mergePrompt = """
+        당신은 여러 기업 문서에 대한 분석 결과를 종합하는 전문 분석가입니다.
+        아래는 같은 질문에 대해 문서별로 작성된 부분 답변입니다.
 
-        문서는 이미 일부 정보가 마스킹되어 있습니다. 복원은 필요하지 않습니다.
-        사용자의 질문에 따라 문서의 내용, 패턴, 의미를 분석하고 Markdown 형식으로 정리하세요.
+        - 문서 간 공통점과 차이점을 정리하고, 내용이 충돌하면 어느 문서의 내용인지 밝히세요.
+        - 부분 답변에 없는 내용은 추측하지 마세요.
 
         [출력 형식 - Markdown 전용]
         - 백틱(```)이나 JSON 코드는 사용하지 마세요.
-        - 제목, 요약, 주요 내용, 패턴 및 추가 분석 제안을 구분해서 작성하세요.
-        """, documentType, referenceContent);
+        - 제목, 종합 요약, 문서별 핵심, 추가 분석 제안을 구분해서 작성하세요.
+        """;
+
+        StringBuilder parts = new StringBuilder();
+        for (int i = 0; i < partials.size(); i++) {
+            parts.append("### 문서: ").append(labels.get(i)).append("\n")
+                    .append(partials.get(i)).append("\n\n");
+        }
 
         Map<String, Object> body = Map.of(
                 "contents", List.of(
-                        Map.of("role", "model", "parts", List.of(Map.of("text", systemPrompt))),
+                        Map.of("role", "model", "parts", List.of(Map.of("text", mergePrompt))),
                         Map.of("role", "user", "parts", List.of(Map.of("text",
-                                "문서(Markdown):\n" + markdownDoc + "\n\n질문: " + question)))
+                                "문서별 부분 답변:\n\n" + parts + "질문: " + question)))
                 )
         );
+        try {
+            return generate("merge", MAPPER.writeValueAsBytes(body), null);
+        } catch (JsonProcessingException e) {
+            return ERROR_PREFIX + ": " + e.getMessage();
+        }
+    }
 
-
+    // prompt가 있으면 응답의 usageMetadata로 토큰 추정치를 보정 지표에 남긴다.
+    private String generate(String operation, byte[] body, GeminiPromptBuilder.Prompt prompt) {
+        String url = String.format(
+                "%s/v1beta/models/%s:generateContent?key=%s",
+                geminiBaseUrl, geminiModel, geminiApiKey
+        );
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+        HttpEntity<byte[]> entity = new HttpEntity<>(body, headers);
+        payload("request").record(body.length);
 
-        try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+        Observation observation = observation(operation).start();
+        try (Observation.Scope ignored = observation.openScope()) {
+            ResponseEntity<byte[]> response = guard.call(remaining -> restTemplate.postForEntity(url, entity, byte[].class));
+            byte[] raw = response.getBody() != null ? response.getBody() : new byte[0];
+            payload("response").record(raw.length);
 
             // ✅ JSON 응답에서 Markdown 텍스트만 추출
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(response.getBody());
-            String markdown = root.path("candidates")
-                    .get(0)
-                    .path("content")
-                    .path("parts")
-                    .get(0)
-                    .path("text")
-                    .asText();
-
-            System.out.println("✅ Gemini 응답 파싱 성공: " +
-                    Math.min(markdown.length(), 80) + "자 미리보기 -> " +
-                    markdown.substring(0, Math.min(markdown.length(), 80)).replace("\n", " ") + "...");
+            GeminiJson.Reply reply = GeminiJson.read(raw);
+            recordTokens(operation, reply);
+            if (prompt != null) {
+                promptBuilder.recordReported(prompt, reply.promptTokens());
+            }
+            String markdown = reply.text();
+
+            log.debug("✅ Gemini 응답 파싱 성공: {}자", markdown.length());
 
             return markdown;
 
+        } catch (UpstreamUnavailableException e) {
+            observation.error(e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Gemini 호출 실패: " + e.getMessage());
-            return "⚠️ Gemini 호출 중 오류 발생: " + e.getMessage();
+            observation.error(e);
+            log.warn("❌ Gemini 호출 실패: {}", e.getMessage());
+            return ERROR_PREFIX + ": " + e.getMessage();
+        } finally {
+            observation.stop();
         }
     }
+
+    /**
+     * streamGenerateContent(SSE)로 답변을 받아 조각이 도착할 때마다 onText로 넘기고,
+     * 끝나면 전체 답변을 반환한다. 스트림 도중 실패는 오류 문자열이 아니라 예외로 올라온다.
+     * onText에서 예외를 던지면 (예: 브라우저 연결 끊김) 업스트림 읽기도 바로 중단된다.
+     * 첫 조각을 넘기기 전에 실패한 경우에만 다시 보낸다. (이미 보낸 조각이 중복되지 않게)
+     */
+    public String streamGemini(String markdownDoc, String question, DocumentType documentType, Consumer<String> onText) {
+        String url = String.format(
+                "%s/v1beta/models/%s:streamGenerateContent?alt=sse&key=%s",
+                geminiBaseUrl, geminiModel, geminiApiKey
+        );
+        GeminiPromptBuilder.Prompt prompt = promptBuilder.build(markdownDoc, question, documentType);
+        boolean[] delivered = {false};
+        payload("request").record(prompt.body().length);
+
+        return observation("stream").observe(() -> guard.call(() -> !delivered[0], remaining -> restTemplate.execute(url, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+            request.getBody().write(prompt.body());
+        }, response -> {
+            StringBuilder full = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+            GeminiJson.Reply usage = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) continue;
+                String data = line.substring(5).trim();
+                if (data.isEmpty() || data.equals("[DONE]")) continue;
+
+                GeminiJson.Reply chunk = GeminiJson.read(data);
+                // usageMetadata는 조각마다 누적값으로 오므로 마지막 것만 쓴다.
+                if (chunk.hasUsage()) usage = chunk;
+                for (String text : chunk.parts()) {
+                    if (text.isEmpty()) continue;
+                    full.append(text);
+                    delivered[0] = true;
+                    onText.accept(text);
+                }
+            }
+            if (usage != null) recordTokens("stream", usage);
+            promptBuilder.recordReported(prompt, usage == null ? 0 : usage.promptTokens());
+            payload("response").record(Utf8.length(full));
+            return full.toString();
+        })));
+    }
+
+    private Observation observation(String operation) {
+        return Observation.createNotStarted("docshield.gemini", observationRegistry)
+                .lowCardinalityKeyValue("operation", operation)
+                .lowCardinalityKeyValue("model", geminiModel);
+    }
+
+    private DistributionSummary payload(String direction) {
+        return DistributionSummary.builder("docshield.upstream.payload")
+                .baseUnit("bytes").tag("upstream", "gemini").tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private void recordTokens(String operation, GeminiJson.Reply usage) {
+        tokens(operation, "prompt").record(usage.promptTokens());
+        tokens(operation, "output").record(usage.outputTokens());
+    }
+
+    private DistributionSummary tokens(String operation, String kind) {
+        return DistributionSummary.builder("docshield.gemini.tokens")
+                .baseUnit("tokens").tag("operation", operation).tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    public static boolean isError(String answer) {
+        return answer == null || answer.startsWith(ERROR_PREFIX);
+    }
 }
@@ -0,0 +1,222 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.AnswerCacheEntry;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.repository.AnswerCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * /api/ask 답변 캐시.
+ *
+ * 키는 (docId, 문서 유형, 정규화된 질문)이며, 메모리 LRU → answer_cache 테이블 순서로 찾는다.
+ * 같은 키로 동시에 들어온 질문은 하나의 Gemini 호출 결과를 함께 기다린다.
+ */
+@Slf4j
+@Service
+public class AnswerCacheService {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCT = Pattern.compile("[\\s?？!！.。~]+$");
+
+    private record Key(String docId, DocumentType docType, String questionKey) {
+    }
+
+    private record Cached(String answer, Instant createdAt) {
+    }
+
+    private final AnswerCacheRepository repository;
+    private final Map<Key, Cached> recent;
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final int maxRows;
+
+    private final Counter memoryHits;
+    private final Counter dbHits;
+    private final Counter misses;
+    private final Counter joined;
+
+    public AnswerCacheService(AnswerCacheRepository repository,
+                              MeterRegistry meterRegistry,
+                              @Value("${docshield.answer-cache.ttl:PT24H}") Duration ttl,
+                              @Value("${docshield.answer-cache.max-entries:2000}") int maxEntries,
+                              @Value("${docshield.answer-cache.max-rows:100000}") int maxRows) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.maxRows = maxRows;
+        this.recent = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.memoryHits = meterRegistry.counter("docshield.answer.cache.lookups", "result", "hit-memory");
+        this.dbHits = meterRegistry.counter("docshield.answer.cache.lookups", "result", "hit-db");
+        this.misses = meterRegistry.counter("docshield.answer.cache.lookups", "result", "miss");
+        this.joined = meterRegistry.counter("docshield.answer.cache.lookups", "result", "joined-in-flight");
+    }
+
+    /**
+     * 캐시된 답변이 있으면 돌려주고, 없으면 compute를 한 번만 실행해 저장한다.
+     * compute가 오류 응답을 돌려주면 저장하지 않는다.
+     */
+    public String answer(DocumentResult doc, String question, Supplier<String> compute) {
+        String normalized = normalize(question);
+        Key key = keyOf(doc, normalized);
+
+        String cached = lookup(key);
+        if (cached != null) return cached;
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            joined.increment();
+            return join(existing);
+        }
+        // 조회와 등록 사이에 끝난 호출이 있으면 (store가 inFlight에서 빠지기 전에 저장한다) 그 답변을 쓴다.
+        cached = lookup(key);
+        if (cached != null) {
+            inFlight.remove(key, mine);
+            mine.complete(cached);
+            return cached;
+        }
+
+        misses.increment();
+        try {
+            String answer = compute.get();
+            if (!AiPromptService.isError(answer)) {
+                store(key, normalized, answer);
+            }
+            mine.complete(answer);
+            return answer;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 스트리밍 응답(/api/ask/stream)용 조회. 캐시에 없으면 호출한 쪽이 직접 Gemini를 호출하고
+     * {@link #put}으로 저장한다. 스트림은 조각 단위로 흘러가므로 진행 중 호출 합류는 하지 않는다.
+     */
+    public Optional<String> cached(DocumentResult doc, String question) {
+        String cached = lookup(keyOf(doc, normalize(question)));
+        if (cached == null) misses.increment();
+        return Optional.ofNullable(cached);
+    }
+
+    public void put(DocumentResult doc, String question, String answer) {
+        if (AiPromptService.isError(answer)) return;
+        String normalized = normalize(question);
+        store(keyOf(doc, normalized), normalized, answer);
+    }
+
+    /** 공백/대소문자/유니코드 표기/끝 문장부호 차이를 없앤 질문 */
+    public static String normalize(String question) {
+        String s = Normalizer.normalize(question == null ? "" : question, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT);
+        s = WHITESPACE.matcher(s).replaceAll(" ").trim();
+        return TRAILING_PUNCT.matcher(s).replaceAll("");
+    }
+
+    // TTL이 지난 행을 지우고, 전체 행 수가 상한을 넘으면 오래된 것부터 지운다.
+    @Scheduled(fixedDelayString = "${docshield.answer-cache.purge-interval:PT10M}")
+    public void purge() {
+        Instant cutoff = Instant.now().minus(ttl);
+        int expired = repository.deleteExpired(cutoff);
+        long overflow = repository.count() - maxRows;
+        if (overflow > 0) {
+            repository.deleteAllByIdInBatch(repository.findOldestIds(PageRequest.of(0, (int) overflow)));
+        }
+        synchronized (recent) {
+            recent.values().removeIf(c -> c.createdAt().isBefore(cutoff));
+        }
+        if (expired > 0 || overflow > 0) {
+            log.info("🧹 답변 캐시 정리: 만료 {}건, 초과 {}건", expired, Math.max(overflow, 0));
+        }
+    }
+
+    private static Key keyOf(DocumentResult doc, String normalized) {
+        return new Key(doc.getId(), doc.getType(), sha256(normalized));
+    }
+
+    private String lookup(Key key) {
+        Instant cutoff = Instant.now().minus(ttl);
+        synchronized (recent) {
+            Cached c = recent.get(key);
+            if (c != null && c.createdAt().isAfter(cutoff)) {
+                memoryHits.increment();
+                return c.answer();
+            }
+        }
+        Optional<AnswerCacheEntry> stored = repository.findByDocIdAndDocTypeAndQuestionKey(key.docId(), key.docType(), key.questionKey())
+                .filter(e -> e.getCreatedAt().isAfter(cutoff));
+        if (stored.isEmpty()) return null;
+
+        dbHits.increment();
+        AnswerCacheEntry entry = stored.get();
+        synchronized (recent) {
+            recent.put(key, new Cached(entry.getAnswer(), entry.getCreatedAt()));
+        }
+        return entry.getAnswer();
+    }
+
+    private void store(Key key, String normalized, String answer) {
+        Instant now = Instant.now();
+        synchronized (recent) {
+            recent.put(key, new Cached(answer, now));
+        }
+        AnswerCacheEntry entry = repository.findByDocIdAndDocTypeAndQuestionKey(key.docId(), key.docType(), key.questionKey())
+                .orElseGet(() -> new AnswerCacheEntry(null, key.docId(), key.docType(), key.questionKey(), null, null, null));
+        entry.setQuestion(normalized.length() > 2000 ? normalized.substring(0, 2000) : normalized);
+        entry.setAnswer(answer);
+        entry.setCreatedAt(now);
+        try {
+            repository.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // 다른 노드가 같은 키를 먼저 저장한 경우 — 메모리 캐시만으로 충분하다.
+            log.warn("⚠️ 답변 캐시 저장 충돌: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private String join(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/ask/stream — Gemini 답변을 받는 대로 SSE로 흘려보낸다.
+ *
+ * 이벤트 순서: delta({"text": 조각}) 여러 번 → done({"length": 전체 길이}) 또는 error({"message": ...}).
+ * 스트림이 끝까지 도착한 경우에만 전체 답변을 답변 캐시와 DocumentContent.geminiMarkdown에 저장한다.
+ * 첫 조각까지 걸린 시간(TTFB)은 docshield.ask.stream.first-token, 전체 시간은 docshield.ask.stream.total 로 남긴다.
+ */
+@Slf4j
+@Service
+public class AskStreamService {
+
+    private final AiPromptService aiPromptService;
+    private final AnswerCacheService answerCacheService;
+    private final RetrievalService retrievalService;
+    private final DocumentContentService contentService;
+    private final ExecutorService askStreamExecutor;
+    private final Duration streamTimeout;
+
+    private final Timer firstToken;
+    private final Timer firstTokenCached;
+    private final Timer total;
+
+    public AskStreamService(AiPromptService aiPromptService,
+                            AnswerCacheService answerCacheService,
+                            RetrievalService retrievalService,
+                            DocumentContentService contentService,
+                            MeterRegistry meterRegistry,
+                            @Qualifier("askStreamExecutor") ExecutorService askStreamExecutor,
+                            @Value("${docshield.ask.stream-timeout:PT3M}") Duration streamTimeout) {
+        this.aiPromptService = aiPromptService;
+        this.answerCacheService = answerCacheService;
+        this.retrievalService = retrievalService;
+        this.contentService = contentService;
+        this.askStreamExecutor = askStreamExecutor;
+        this.streamTimeout = streamTimeout;
+
+        this.firstToken = Timer.builder("docshield.ask.stream.first-token")
+                .tag("source", "gemini").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.firstTokenCached = Timer.builder("docshield.ask.stream.first-token")
+                .tag("source", "cache").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.total = Timer.builder("docshield.ask.stream.total")
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+    }
+
+    public SseEmitter stream(DocumentResult doc, String question) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        long start = System.nanoTime();
+        try {
+            askStreamExecutor.execute(() -> run(doc, question, emitter, start));
+        } catch (RejectedExecutionException e) {
+            fail(emitter, "스트리밍 작업을 시작하지 못했습니다.");
+        }
+        return emitter;
+    }
+
+    private void run(DocumentResult doc, String question, SseEmitter emitter, long start) {
+        try {
+            // 1️⃣ 캐시된 답변은 한 번에 보낸다.
+            Optional<String> cached = answerCacheService.cached(doc, question);
+            if (cached.isPresent()) {
+                send(emitter, "delta", Map.of("text", cached.get()));
+                firstTokenCached.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                finish(emitter, cached.get(), start);
+                return;
+            }
+
+            // 2️⃣ Gemini 스트림 — 조각이 도착하는 즉시 브라우저로 전달
+            boolean[] first = {true};
+            String context = retrievalService.contextFor(doc, question);
+            // SSE 연결이 끊기는 시점이 곧 마감이다. (재시도도 그 안에서만)
+            String answer = UpstreamGuard.withDeadline(start + streamTimeout.toNanos(), () ->
+                    aiPromptService.streamGemini(context, question, doc.getType(), text -> {
+                        if (first[0]) {
+                            first[0] = false;
+                            firstToken.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        send(emitter, "delta", Map.of("text", text));
+                    }));
+
+            // 3️⃣ 완료된 답변만 저장 (중간에 끊긴 답변은 캐시에 남기지 않는다)
+            answerCacheService.put(doc, question, answer);
+            contentService.saveAnswer(doc.getId(), answer);
+            finish(emitter, answer, start);
+        } catch (UncheckedIOException e) {
+            // 브라우저가 연결을 끊음 — 업스트림 읽기도 이미 중단되었다.
+            log.debug("🔌 스트리밍 중 클라이언트 연결 종료: {}", doc.getId());
+            emitter.complete();
+        } catch (Exception e) {
+            log.warn("❌ Gemini 스트리밍 실패: {}", e.getMessage());
+            fail(emitter, "⚠️ Gemini 호출 중 오류 발생: " + e.getMessage());
+        }
+    }
+
+    private void finish(SseEmitter emitter, String answer, long start) {
+        send(emitter, "done", Map.of("length", answer.length()));
+        total.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        emitter.complete();
+    }
+
+    private static void fail(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("message", message), MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException ignored) {
+            // 이미 닫힌 연결
+        }
+        emitter.complete();
+    }
+
+    private static void send(SseEmitter emitter, String event, Map<String, ?> data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException e) {
+            // 타임아웃 등으로 emitter가 먼저 끝난 경우
+            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+        }
+    }
+}
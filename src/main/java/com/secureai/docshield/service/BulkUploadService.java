@@ -0,0 +1,400 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * /api/upload/bulk — 여러 파일이나 ZIP을 한 요청으로 받아 파일마다 업로드 파이프라인을 돌리고 진행 상황을 NDJSON으로 흘려보낸다.
+ *
+ * ZIP은 디스크에 풀지 않고 ZipInputStream으로 항목을 차례로 읽어 메모리에 올린 뒤 바로 작업자에게 넘긴다. (항목당 max-entry-size)
+ * 파일은 코어 수만큼의 작업자(bulkUploadExecutor)가 나눠 처리하되, 요청 하나가 동시에 쓰는 작업자는 per-request개까지다.
+ * 그래서 큰 ZIP 하나가 다른 일괄 업로드를 굶기지 않고, 메모리에 올라가는 항목도 요청당 per-request개를 넘지 않는다.
+ * 동시에 받는 일괄 업로드는 max-requests개이며 넘으면 바로 거절한다. (컨트롤러에서 429)
+ *
+ * 결과 행(document_results)은 하나씩 저장하지 않고 save-batch개씩 모아 saveAll로 넣는다. (JDBC 배치 INSERT, JpaConfig)
+ * 파일 줄이 행보다 먼저 나갈 수 있으며, 마지막 done 줄은 모든 행이 저장된 뒤에 보낸다.
+ * 행 저장이 실패했거나 요청이 중간에 끝난 뒤에 마친 파일은 행이 없으므로, 그 파일이 남긴 본문/청크/색인을 id로 지운다.
+ *
+ * 줄 형식: {"event":"file","file":경로,"id":..,"status":"COMPLETED|FAILED|SKIPPED","type":..,"error":..,"processed":n}
+ *         마지막에 {"event":"done","total":..,"completed":..,"failed":..,"skipped":..,"files":[파일별 결과]}
+ *
+ * 요청 하나가 docshield.bulk 관측이고, 파일마다의 업로드 관측(docshield.upload)과 행 저장(docshield.db.save)이 그 아래에 붙는다.
+ *
+ * 지표: docshield.bulk.files{status}
+ */
+@Slf4j
+@Service
+public class BulkUploadService {
+
+    /** 파일 하나의 결과 (매니페스트 한 항목). SKIPPED는 처리하지 않은 항목이라 id가 없다. */
+    public record FileResult(String file, String id, String status, DocumentType type, String error) {
+    }
+
+    private record Outcome(FileResult result, DocumentResult row) {
+    }
+
+    private record FileLine(String event, String file, String id, String status, DocumentType type, String error,
+                            int processed) {
+    }
+
+    private record DoneLine(String event, int total, int completed, int failed, int skipped, List<FileResult> files) {
+    }
+
+    private static final MediaType NDJSON = MediaType.APPLICATION_NDJSON;
+
+    private final DocumentPipelineService documentPipelineService;
+    private final DocumentResultRepository repository;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService workers;
+    private final ExecutorService coordinators;
+    private final ObservationRegistry observationRegistry;
+    private final Semaphore admission;
+    private final int perRequest;
+    private final int maxFiles;
+    private final long maxEntryBytes;
+    private final int saveBatch;
+    private final Charset zipCharset;
+    private final Duration timeout;
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter skipped;
+
+    public BulkUploadService(DocumentPipelineService documentPipelineService,
+                             DocumentResultRepository repository,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             ObservationRegistry observationRegistry,
+                             @Qualifier("bulkUploadExecutor") ExecutorService workers,
+                             @Qualifier("bulkCoordinatorExecutor") ExecutorService coordinators,
+                             @Value("${docshield.bulk.max-requests:4}") int maxRequests,
+                             @Value("${docshield.bulk.per-request:2}") int perRequest,
+                             @Value("${docshield.bulk.max-files:1000}") int maxFiles,
+                             @Value("${docshield.bulk.max-entry-size:50MB}") DataSize maxEntrySize,
+                             @Value("${docshield.bulk.save-batch:50}") int saveBatch,
+                             // 한국어 Windows에서 만든 ZIP은 UTF-8 표시 없이 CP949로 이름을 적는다. (UTF-8 표시가 있는 항목은 UTF-8)
+                             @Value("${docshield.bulk.zip-charset:MS949}") Charset zipCharset,
+                             @Value("${docshield.bulk.timeout:PT1H}") Duration timeout) {
+        this.documentPipelineService = documentPipelineService;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.workers = workers;
+        this.coordinators = coordinators;
+        this.observationRegistry = observationRegistry;
+        this.admission = new Semaphore(maxRequests);
+        this.perRequest = Math.max(1, perRequest);
+        this.maxFiles = maxFiles;
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.saveBatch = Math.max(1, saveBatch);
+        this.zipCharset = zipCharset;
+        this.timeout = timeout;
+
+        this.completed = meterRegistry.counter("docshield.bulk.files", "status", "COMPLETED");
+        this.failed = meterRegistry.counter("docshield.bulk.files", "status", "FAILED");
+        this.skipped = meterRegistry.counter("docshield.bulk.files", "status", "SKIPPED");
+    }
+
+    /**
+     * @throws RejectedExecutionException 동시 일괄 업로드 수가 상한에 닿았을 때
+     */
+    public ResponseBodyEmitter upload(List<MultipartFile> files) {
+        if (!admission.tryAcquire()) {
+            throw new RejectedExecutionException("동시에 진행할 수 있는 일괄 업로드 수를 넘었습니다.");
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout.toMillis());
+        Observation bulk = Observation.createNotStarted("docshield.bulk", observationRegistry)
+                .highCardinalityKeyValue("files", Integer.toString(files.size()))
+                .start();
+        try {
+            coordinators.execute(() -> {
+                try (Observation.Scope ignored = bulk.openScope()) {
+                    new Run(emitter, bulk).run(files);
+                } finally {
+                    bulk.stop();
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulk.error(e);
+            bulk.stop();
+            admission.release();
+            throw e;
+        }
+        return emitter;
+    }
+
+    /** 요청 하나의 진행 상태. 코디네이터 스레드만 만지고, 작업자는 accept(finished 큐)로만 결과를 넘긴다. */
+    private class Run {
+
+        private final ResponseBodyEmitter emitter;
+        private final Observation bulk;
+        private final Semaphore slots = new Semaphore(perRequest);
+        private final BlockingQueue<Outcome> finished = new LinkedBlockingQueue<>();
+        private final List<Future<?>> running = new ArrayList<>();
+        private final List<DocumentResult> unsaved = new ArrayList<>();
+        private final List<FileResult> manifest = new ArrayList<>();
+        private int submitted;
+        private int reported;
+        // 요청이 끝나 더는 결과를 받지 않는다. (finished로 동기화)
+        private boolean closed;
+
+        Run(ResponseBodyEmitter emitter, Observation bulk) {
+            this.emitter = emitter;
+            this.bulk = bulk;
+        }
+
+        void run(List<MultipartFile> files) {
+            boolean finishedAll = false;
+            try {
+                for (MultipartFile file : files) {
+                    String name = file.getOriginalFilename() != null ? file.getOriginalFilename() : "file-" + (manifest.size() + 1);
+                    if (isZip(name)) {
+                        readZip(name, file);
+                    } else {
+                        submit(name, name, file);
+                    }
+                }
+                while (reported < submitted) report(finished.take());
+                flush();
+
+                int ok = count("COMPLETED"), bad = count("FAILED"), skip = count("SKIPPED");
+                send(new DoneLine("done", manifest.size(), ok, bad, skip, manifest));
+                finishedAll = true;
+                log.info("📦 일괄 업로드 완료 — 완료 {} / 실패 {} / 건너뜀 {}", ok, bad, skip);
+                emitter.complete();
+            } catch (UncheckedIOException e) {
+                log.info("🔌 일괄 업로드 중 클라이언트 연결 종료 ({}/{})", reported, submitted);
+                emitter.complete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.error("❌ 일괄 업로드 실패: {}", e.getMessage(), e);
+                bulk.error(e);
+                emitter.completeWithError(e);
+            } finally {
+                if (!finishedAll) {
+                    // 남은 파일은 멈추고, 이미 끝난 파일의 행은 저장해 둔다.
+                    running.forEach(f -> f.cancel(true));
+                    synchronized (finished) {
+                        closed = true;
+                        Outcome outcome;
+                        while ((outcome = finished.poll()) != null) {
+                            if (outcome.row() != null) unsaved.add(outcome.row().asNew());
+                        }
+                    }
+                    try {
+                        flush();
+                    } catch (RuntimeException e) {
+                        log.error("❌ 일괄 업로드 결과 저장 실패: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+
+        // ZIP 항목을 하나씩 읽어 넘긴다. 항목 하나를 메모리에 올리기 전에 자리를 먼저 잡는다.
+        private void readZip(String zipName, MultipartFile file) throws InterruptedException {
+            try (ZipInputStream zip = new ZipInputStream(file.getInputStream(), zipCharset)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    String path = zipName + "!/" + entry.getName();
+                    String fileName = baseName(entry.getName());
+                    if (entry.isDirectory() || fileName.isEmpty() || fileName.startsWith(".") || entry.getName().startsWith("__MACOSX/")) {
+                        continue;
+                    }
+                    if (submitted >= maxFiles) {
+                        skip(path, "파일 수 상한(" + maxFiles + ")을 넘었습니다.");
+                        continue;
+                    }
+                    acquire();
+                    byte[] bytes = readEntry(zip);
+                    if (bytes == null) {
+                        slots.release();
+                        skip(path, "항목이 최대 크기(" + maxEntryBytes / 1024 + "KB)를 넘습니다.");
+                        continue;
+                    }
+                    dispatch(path, fileName, new ByteArrayResource(bytes));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // 깨진 ZIP, 또는 zip-charset으로 읽을 수 없는 항목 이름 — 그때까지 읽은 항목은 그대로 처리한다.
+                skip(zipName, "ZIP을 끝까지 읽지 못했습니다: " + e.getMessage());
+            }
+        }
+
+        private void submit(String path, String fileName, InputStreamSource source) throws InterruptedException {
+            if (submitted >= maxFiles) {
+                skip(path, "파일 수 상한(" + maxFiles + ")을 넘었습니다.");
+                return;
+            }
+            acquire();
+            dispatch(path, fileName, source);
+        }
+
+        // 자리를 잡은 뒤 호출한다. 작업자가 끝나면 결과를 큐에 넣고 자리를 돌려준다.
+        private void dispatch(String path, String fileName, InputStreamSource source) {
+            submitted++;
+            try {
+                running.add(workers.submit(() -> {
+                    // 작업자 스레드에서도 요청의 관측 아래에 파일별 업로드 관측이 붙도록 한다.
+                    try (Observation.Scope ignored = bulk.openScope()) {
+                        accept(processOne(path, fileName, source));
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                finished.add(new Outcome(new FileResult(path, null, "SKIPPED", null, "작업을 시작하지 못했습니다."), null));
+            }
+        }
+
+        // 작업자 스레드에서 부른다. 요청이 이미 끝났으면 저장될 일 없는 결과이므로 남긴 데이터를 지운다.
+        private void accept(Outcome outcome) {
+            synchronized (finished) {
+                if (!closed) {
+                    finished.add(outcome);
+                    return;
+                }
+            }
+            if (outcome.row() != null) documentPipelineService.discard(outcome.row().getId());
+        }
+
+        // 다음 파일을 맡길 자리를 기다린다. 자리가 났다면 끝난 파일이 있다는 뜻이므로 바로 알려 준다.
+        private void acquire() throws InterruptedException {
+            slots.acquire();
+            Outcome outcome;
+            while ((outcome = finished.poll()) != null) report(outcome);
+        }
+
+        private void report(Outcome outcome) {
+            reported++;
+            FileResult r = outcome.result();
+            manifest.add(r);
+            if (outcome.row() != null) {
+                unsaved.add(outcome.row().asNew());
+                if (unsaved.size() >= saveBatch) flush();
+            }
+            counter(r.status()).increment();
+            send(new FileLine("file", r.file(), r.id(), r.status(), r.type(), r.error(), reported));
+        }
+
+        private void skip(String path, String reason) {
+            FileResult r = new FileResult(path, null, "SKIPPED", null, reason);
+            manifest.add(r);
+            skipped.increment();
+            send(new FileLine("file", r.file(), null, r.status(), null, r.error(), reported));
+        }
+
+        private void flush() {
+            if (unsaved.isEmpty()) return;
+            List<DocumentResult> batch = new ArrayList<>(unsaved);
+            unsaved.clear();
+            try {
+                Observation.createNotStarted("docshield.db.save", observationRegistry)
+                        .lowCardinalityKeyValue("entity", "result-batch")
+                        .observe(() -> repository.saveAll(batch));
+            } catch (RuntimeException e) {
+                batch.forEach(row -> documentPipelineService.discard(row.getId()));
+                throw e;
+            }
+        }
+
+        private int count(String status) {
+            return (int) manifest.stream().filter(r -> r.status().equals(status)).count();
+        }
+
+        private void send(Object line) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(line);
+                byte[] bytes = new byte[json.length + 1];
+                System.arraycopy(json, 0, bytes, 0, json.length);
+                bytes[json.length] = '\n';
+                emitter.send(bytes, NDJSON);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (IllegalStateException e) {
+                // 타임아웃 등으로 emitter가 먼저 끝난 경우
+                throw new UncheckedIOException(new IOException(e.getMessage(), e));
+            }
+        }
+
+        // max-entry-size를 넘으면 null (나머지는 ZipInputStream이 다음 항목으로 넘어가며 건너뛴다)
+        private byte[] readEntry(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            long total = 0;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                total += n;
+                if (total > maxEntryBytes) return null;
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private Outcome processOne(String path, String fileName, InputStreamSource source) {
+        String id = UUID.randomUUID().toString();
+        try {
+            DocumentResult row = documentPipelineService.processUnsaved(id, fileName, source, PipelineListener.NONE);
+            return new Outcome(new FileResult(path, id, "COMPLETED", row.getType(), null), row);
+        } catch (Exception e) {
+            log.warn("❌ 일괄 업로드 파일 실패 ({}): {}", path, e.getMessage());
+            return new Outcome(new FileResult(path, id, "FAILED", null, e.getMessage()),
+                    new DocumentResult(id, null, fileName, ProcessingStatus.FAILED, null, null));
+        }
+    }
+
+    private Counter counter(String status) {
+        return switch (status) {
+            case "COMPLETED" -> completed;
+            case "FAILED" -> failed;
+            default -> skipped;
+        };
+    }
+
+    private static boolean isZip(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    private static String baseName(String entryName) {
+        String name = entryName.replace('\\', '/');
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+}
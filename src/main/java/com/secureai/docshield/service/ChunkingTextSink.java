@@ -0,0 +1,105 @@
+package com.secureai.docshield.service;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * 파서 출력을 최대 maxChars 크기의 청크로 잘라 순번과 함께 넘긴다.
+ * 가능하면 줄 경계에서 자르고, 청크 절반 안쪽에 개행이 없으면 글자 단위로 자른다.
+ *
+ * contentDefined이면 경계를 위치가 아니라 내용으로 정한다. (content-defined chunking)
+ * 글자마다 gear 롤링 해시(최근 64글자에만 의존)를 굴려 상위 비트가 모두 0인 자리 다음 줄바꿈에서 자른다.
+ * 그 뒤 범위 안에 줄바꿈이 없으면(줄바꿈 없는 긴 문단) 해시 경계 자리에서 바로 자른다.
+ * 문서 중간이 조금 바뀌어도 그 뒤의 경계는 곧 예전 자리로 돌아오므로, 바뀌지 않은 청크는 이전 판과 같은 내용이 된다.
+ * 청크는 maxChars/4 이상 maxChars 이하이고, maxChars 안에서 내용 경계를 못 찾으면 위의 고정 규칙으로 자른다.
+ */
+public class ChunkingTextSink implements TextSink {
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(int seq, String text) throws IOException;
+    }
+
+    // 모든 JVM에서 같은 경계가 나오도록 고정 시드
+    private static final long[] GEAR = new SplittableRandom(0x5EEDC0DEL).longs(256).toArray();
+
+    private final int maxChars;
+    private final boolean contentDefined;
+    private final int minChars;
+    private final long boundaryMask;
+    private final ChunkConsumer consumer;
+    private final StringBuilder buf;
+    private int seq;
+
+    public ChunkingTextSink(int maxChars, ChunkConsumer consumer) {
+        this(maxChars, false, consumer);
+    }
+
+    public ChunkingTextSink(int maxChars, boolean contentDefined, ChunkConsumer consumer) {
+        if (maxChars < 2) throw new IllegalArgumentException("maxChars must be >= 2");
+        this.maxChars = maxChars;
+        this.contentDefined = contentDefined;
+        this.minChars = Math.max(1, maxChars / 4);
+        // 경계 확률 1/2^bits (2^bits ≥ maxChars/2) → 최소 길이 뒤 대략 maxChars/2 글자마다 경계
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, maxChars / 2 - 1)));
+        this.boundaryMask = -1L << (64 - bits);
+        this.consumer = consumer;
+        this.buf = new StringBuilder(maxChars * 2);
+    }
+
+    @Override
+    public void write(CharSequence text) throws IOException {
+        buf.append(text);
+        while (buf.length() >= maxChars) {
+            int cut = contentDefined ? contentCut(maxChars) : -1;
+            emit(cut > 0 ? cut : cutIndex());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (contentDefined) {
+            int cut;
+            while ((cut = contentCut(buf.length())) > 0) emit(cut);
+        }
+        // 빈 문서도 청크 하나는 흘려보내야 다음 단계가 결과를 만든다.
+        if (buf.length() > 0 || seq == 0) {
+            emit(buf.length());
+        }
+    }
+
+    public int chunkCount() {
+        return seq;
+    }
+
+    private int cutIndex() {
+        int newline = buf.lastIndexOf("\n", maxChars - 1);
+        if (newline >= maxChars / 2) return newline + 1;
+        int cut = maxChars;
+        // 서로게이트 쌍이 청크 경계에서 갈라지지 않게 한다.
+        if (Character.isHighSurrogate(buf.charAt(cut - 1))) cut--;
+        return cut;
+    }
+
+    // 버퍼 앞 limit글자 안에서 내용으로 정한 경계(해시 경계 다음 줄바꿈 뒤, 줄바꿈이 없으면 해시 경계)를 찾는다. 없으면 -1
+    private int contentCut(int limit) {
+        long hash = 0;
+        for (int i = 0; i < limit; i++) {
+            char c = buf.charAt(i);
+            hash = (hash << 1) + GEAR[(c ^ (c >>> 8)) & 0xff];
+            if (i + 1 >= minChars && (hash & boundaryMask) == 0) {
+                int newline = buf.indexOf("\n", i);
+                if (newline >= 0 && newline < limit) return newline + 1;
+                // 서로게이트 쌍이 청크 경계에서 갈라지지 않게 한다.
+                return Character.isHighSurrogate(c) ? i : i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void emit(int end) throws IOException {
+        String chunk = buf.substring(0, end);
+        buf.delete(0, end);
+        consumer.accept(seq++, chunk);
+    }
+}
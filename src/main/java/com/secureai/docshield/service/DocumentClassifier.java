@@ -0,0 +1,234 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.util.FileLoader;
+import com.secureai.docshield.util.KoreanTokenizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * 문서 유형 로컬 분류기 — 해시된 n-gram 위의 다항 나이브 베이즈.
+ *
+ * 파싱 중 첫 청크만 보고 유형을 어림해, Python 서버의 documentType을 기다리지 않고 유형별 작업을 시작할 수 있게 한다.
+ * 특징은 KoreanTokenizer와 같은 규칙(한글은 글자 bigram, 영문/숫자는 소문자 단어)이지만 문자열을 만들지 않고 바로 해시한다.
+ * 유형별 예시 코퍼스(DocumentType.referenceFile)와 아래 기본 단어로 학습하고,
+ * docshield.classifier.learn=true 이면(기본 꺼짐) Python 서버가 정한 유형으로 계속 학습한다.
+ * 계속 학습할 때는 한 유형의 특징 수가 max-features를 넘으면 그 유형의 카운트를 절반으로 줄여(decay) 넘치지 않게 하고
+ * 최근 문서에 더 무게를 둔다.
+ * 예측을 최종 유형으로 쓰는 것(LLM을 거친 청크가 없을 때)은 사후확률이 min-confidence 이상일 때뿐이다. (finalType)
+ * Python 유형과의 일치율은 docshield.classifier.predictions{outcome} 로 센다.
+ */
+@Service
+public class DocumentClassifier {
+
+    private static final int BUCKETS = 1 << 16;
+
+    // 예시 코퍼스가 비었거나 얇은 유형을 위한 기본 단어
+    private static final Map<DocumentType, String> SEED = Map.of(
+            DocumentType.HR_INFO, "인사 인사기록 사원 직급 소속부서 입사일 연봉 급여 근태 승진 평가 채용 퇴직 인사위원회 인사팀",
+            DocumentType.BUSINESS_INFO, "매출 영업이익 사업계획 계약 거래처 견적 예산 투자 손익 마케팅 영업 실적 분기 고객사 수주",
+            DocumentType.TECH_INFO, "소스코드 서버 아키텍처 데이터베이스 알고리즘 특허 설계 배포 취약점 시스템 api server code",
+            DocumentType.PUBLIC_INFO, "보도자료 공지 공개 홈페이지 뉴스 발표 안내 동향 전망 보고서 세미나 참고 문헌",
+            DocumentType.PERSONAL_INFO, "주민등록번호 연락처 주소 생년월일 가족관계 여권 계좌번호 개인정보 휴대폰 이메일 성명"
+    );
+
+    /**
+     * @param type       점수가 가장 높은 유형. 아는 특징이 없으면 null
+     * @param margin     1·2위 점수 차 (log)
+     * @param confidence 유형별 점수를 정규화한 type의 사후확률 (0~1)
+     */
+    public record Prediction(DocumentType type, double margin, double confidence) {
+    }
+
+    private final Map<DocumentType, AtomicIntegerArray> counts = new EnumMap<>(DocumentType.class);
+    private final Map<DocumentType, AtomicLong> totals = new EnumMap<>(DocumentType.class);
+    private final boolean learn;
+    private final int maxChars;
+    private final double minMargin;
+    private final double minConfidence;
+    private final long maxFeatures;
+
+    private final Counter agree;
+    private final Counter disagree;
+
+    public DocumentClassifier(MeterRegistry meterRegistry,
+                              @Value("${docshield.classifier.learn:false}") boolean learn,
+                              @Value("${docshield.classifier.max-chars:4000}") int maxChars,
+                              @Value("${docshield.classifier.min-margin:1.0}") double minMargin,
+                              @Value("${docshield.classifier.min-confidence:0.9}") double minConfidence,
+                              @Value("${docshield.classifier.max-features:1000000}") long maxFeatures) {
+        this.learn = learn;
+        this.maxChars = maxChars;
+        this.minMargin = minMargin;
+        this.minConfidence = minConfidence;
+        this.maxFeatures = maxFeatures;
+        for (DocumentType type : DocumentType.values()) {
+            counts.put(type, new AtomicIntegerArray(BUCKETS));
+            totals.put(type, new AtomicLong());
+            train(FileLoader.loadIfExists(type.getReferenceFile()), type);
+            train(SEED.get(type), type);
+        }
+
+        this.agree = meterRegistry.counter("docshield.classifier.predictions", "outcome", "agree");
+        this.disagree = meterRegistry.counter("docshield.classifier.predictions", "outcome", "disagree");
+        meterRegistry.gauge("docshield.classifier.agreement", this, DocumentClassifier::agreementRate);
+    }
+
+    /**
+     * 앞쪽 maxChars 글자로 유형을 어림한다. (유형별 작업을 미리 시작하기 위한 힌트)
+     * 아는 특징이 없거나 1·2위 점수 차(log)가 minMargin보다 작으면 null.
+     */
+    public DocumentType predict(CharSequence text) {
+        Prediction prediction = classify(text);
+        return prediction.margin() < minMargin ? null : prediction.type();
+    }
+
+    /** 예측을 문서의 최종 유형으로 쓸 때 — 사후확률이 minConfidence보다 낮으면 null. */
+    public DocumentType finalType(CharSequence text) {
+        if (text == null) return null;
+        Prediction prediction = classify(text);
+        return prediction.confidence() < minConfidence ? null : prediction.type();
+    }
+
+    public Prediction classify(CharSequence text) {
+        int[] buckets = new int[Math.min(text.length(), maxChars) + 1];
+        int[] n = {0};
+        features(text, Math.min(text.length(), maxChars), h -> {
+            if (n[0] < buckets.length) buckets[n[0]++] = h;
+        });
+
+        DocumentType best = null;
+        double[] scores = new double[DocumentType.values().length];
+        Arrays.fill(scores, Double.NEGATIVE_INFINITY);
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double secondScore = Double.NEGATIVE_INFINITY;
+        boolean known = false;
+        for (DocumentType type : DocumentType.values()) {
+            AtomicIntegerArray c = counts.get(type);
+            long total = totals.get(type).get();
+            if (total == 0) continue;
+            double score = 0;
+            for (int i = 0; i < n[0]; i++) {
+                if (!seen(buckets[i])) continue;
+                known = true;
+                score += Math.log((c.get(buckets[i]) + 1.0) / (total + BUCKETS));
+            }
+            scores[type.ordinal()] = score;
+            if (score > bestScore) {
+                secondScore = bestScore;
+                bestScore = score;
+                best = type;
+            } else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+        if (!known) return new Prediction(null, 0, 0);
+
+        // softmax — 가장 높은 점수를 빼서 exp가 넘치지 않게 한다.
+        double sum = 0;
+        for (double score : scores) {
+            if (score != Double.NEGATIVE_INFINITY) sum += Math.exp(score - bestScore);
+        }
+        return new Prediction(best, bestScore - secondScore, 1 / sum);
+    }
+
+    /** 파싱 때의 예측과 Python 서버가 정한 유형을 비교해 일치율을 세고, 설정되어 있으면 그 유형으로 학습한다. */
+    public void record(CharSequence text, DocumentType predicted, DocumentType actual) {
+        if (actual == null) return;
+        if (predicted != null) {
+            (predicted == actual ? agree : disagree).increment();
+        }
+        if (learn && text != null) {
+            train(text.subSequence(0, Math.min(text.length(), maxChars)), actual);
+        }
+    }
+
+    /** 유형별로 학습한 특징 수 (decay 후 값) */
+    long trainedFeatures(DocumentType type) {
+        return totals.get(type).get();
+    }
+
+    public double agreementRate() {
+        double total = agree.count() + disagree.count();
+        return total == 0 ? Double.NaN : agree.count() / total;
+    }
+
+    private void train(CharSequence text, DocumentType type) {
+        if (text == null) return;
+        AtomicIntegerArray c = counts.get(type);
+        AtomicLong total = totals.get(type);
+        features(text, text.length(), h -> {
+            c.incrementAndGet(h);
+            total.incrementAndGet();
+        });
+        if (total.get() > maxFeatures) decay(type);
+    }
+
+    // 한 유형의 카운트를 절반으로. 학습 중인 다른 스레드와 겹쳐도 카운트가 음수가 되거나 넘치지는 않는다.
+    private void decay(DocumentType type) {
+        AtomicIntegerArray c = counts.get(type);
+        AtomicLong total = totals.get(type);
+        synchronized (c) {
+            if (total.get() <= maxFeatures) return;
+            long kept = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                int halved = c.updateAndGet(i, v -> v >> 1);
+                kept += halved;
+            }
+            total.set(kept);
+        }
+    }
+
+    private boolean seen(int bucket) {
+        for (AtomicIntegerArray c : counts.values()) {
+            if (c.get(bucket) > 0) return true;
+        }
+        return false;
+    }
+
+    // 한글 연속 구간은 글자 bigram(한 글자면 그대로), 영문/숫자 연속 구간은 소문자 단어를 해시한다.
+    static void features(CharSequence text, int limit, IntConsumer out) {
+        int i = 0;
+        while (i < limit) {
+            char c = text.charAt(i);
+            if (KoreanTokenizer.isHangul(c)) {
+                int start = i;
+                while (i < limit && KoreanTokenizer.isHangul(text.charAt(i))) i++;
+                if (i - start == 1) {
+                    out.accept(bucket(c));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        out.accept(bucket((text.charAt(j) << 16) | text.charAt(j + 1)));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int h = 0x811C9DC5;
+                while (i < limit) {
+                    char d = text.charAt(i);
+                    if (!Character.isLetterOrDigit(d) || KoreanTokenizer.isHangul(d)) break;
+                    h = (h ^ Character.toLowerCase(d)) * 0x01000193;
+                    i++;
+                }
+                out.accept(bucket(h ^ 0x5bd1e995));
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static int bucket(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & (BUCKETS - 1);
+    }
+}
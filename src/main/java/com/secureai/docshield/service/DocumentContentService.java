@@ -0,0 +1,176 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentContent;
+import com.secureai.docshield.repository.DocumentContentRepository;
+import com.secureai.docshield.util.ContentCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * document_contents 테이블 접근.
+ *
+ * 본문이 필요한 곳(질의, 결과 조회)만 이 서비스를 거치고, 메타데이터 조회는 DocumentResult만 읽는다.
+ * 결과 조회는 CLOB을 String으로 만들지 않고 JDBC character stream으로 바로 흘려보낸다.
+ * 본문은 ContentCodec으로 압축해서 저장한다 (JPA 경로는 CompressedTextConverter, native/JDBC 경로는 여기서 직접).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentContentService {
+
+    @FunctionalInterface
+    public interface ReaderCallback {
+        void read(Reader reader) throws IOException;
+    }
+
+    private final DocumentContentRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // true면 기동 시 압축되지 않은 기존 본문을 batch 단위로 압축한다.
+    // 예) ./gradlew bootRun --args='--docshield.content.compress-existing=true'
+    @Value("${docshield.content.compress-existing:false}")
+    private boolean compressExisting;
+
+    @Value("${docshield.content.compress-batch:200}")
+    private int compressBatch;
+
+    public void save(String id, String pythonMarkdown) {
+        repository.save(new DocumentContent(id, pythonMarkdown, null));
+    }
+
+    public Optional<String> pythonMarkdown(String id) {
+        // JPQL 프로젝션도 컨버터를 거치지만, decode는 원문에 대해 아무 일도 하지 않으므로 한 번 더 걸어 둔다.
+        return repository.findPythonMarkdown(id).map(ContentCodec::decode);
+    }
+
+    /** 여러 문서의 마스킹 결과를 한 번에 읽는다. (id → 저장된 JSON, 없는 문서는 빠진다) */
+    public Map<String, String> pythonMarkdowns(Collection<String> ids) {
+        Map<String, String> found = new HashMap<>();
+        if (ids.isEmpty()) return found;
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query("select id, python_markdown from document_contents where id in (" + placeholders + ")",
+                rs -> {
+                    String stored = rs.getString(2);
+                    if (stored != null) found.put(rs.getString(1), ContentCodec.decode(stored));
+                }, ids.toArray());
+        return found;
+    }
+
+    public void saveAnswer(String id, String geminiMarkdown) {
+        repository.updateAnswer(id, ContentCodec.encode(geminiMarkdown));
+    }
+
+    /** 기존 문서(fromId)의 마스킹 결과를 새 문서(toId)로 복사한다. 원본이 없으면 false */
+    public boolean copy(String fromId, String toId) {
+        return repository.copyMarkdown(fromId, toId) > 0;
+    }
+
+    public void delete(String id) {
+        repository.deleteById(id);
+    }
+
+    /**
+     * 마스킹 결과를 Reader로 넘긴다. 문서가 없거나 본문이 null이면 false.
+     * Reader는 콜백 안에서만 유효하다.
+     */
+    public boolean streamPythonMarkdown(String id, ReaderCallback callback) {
+        Boolean found = jdbcTemplate.query("select python_markdown from document_contents where id = ?", rs -> {
+            if (!rs.next()) return false;
+            Reader stored = rs.getCharacterStream(1);
+            if (stored == null) return false;
+            try (Reader reader = ContentCodec.openReader(stored)) {
+                callback.read(reader);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, id);
+        return Boolean.TRUE.equals(found);
+    }
+
+    // 본문이 document_results에 있던 시절의 데이터를 document_contents로 옮긴다.
+    // 새로 만든 DB에는 옛 컬럼이 없으므로 그대로 건너뛴다.
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void migrateLegacyColumns() {
+        try {
+            Integer moved = transactionTemplate.execute(status -> {
+                int n = jdbcTemplate.update("insert into document_contents (id, python_markdown, gemini_markdown) " +
+                        "select r.id, r.python_markdown, r.gemini_markdown from document_results r " +
+                        "where r.python_markdown is not null " +
+                        "and not exists (select 1 from document_contents c where c.id = r.id)");
+                jdbcTemplate.update("update document_results set python_markdown = null, gemini_markdown = null " +
+                        "where python_markdown is not null or gemini_markdown is not null");
+                return n;
+            });
+            if (moved != null && moved > 0) {
+                log.info("📦 기존 문서 본문 {}건을 document_contents로 옮겼습니다.", moved);
+            }
+        } catch (DataAccessException e) {
+            // 옛 컬럼이 없는 스키마
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void compressExistingOnStartup() {
+        if (!compressExisting) return;
+        int compressed = compressStored(compressBatch);
+        log.info("📦 기존 문서 본문 {}건을 압축했습니다.", compressed);
+    }
+
+    /**
+     * 압축되지 않은 본문을 id 순서로 batchSize건씩 읽어 압축한다. batch마다 트랜잭션을 나눈다.
+     * 이미 압축된 값과 압축 이득이 없는 짧은 값은 건드리지 않으므로 몇 번을 돌려도 된다.
+     *
+     * @return 다시 쓴 행 수
+     */
+    public int compressStored(int batchSize) {
+        int total = 0;
+        String after = "";
+        while (true) {
+            String from = after;
+            List<String[]> rows = jdbcTemplate.query(
+                    "select id, python_markdown, gemini_markdown from document_contents where id > ? order by id limit ?",
+                    (rs, i) -> new String[]{rs.getString(1), rs.getString(2), rs.getString(3)},
+                    from, batchSize);
+            if (rows.isEmpty()) return total;
+
+            List<Object[]> updates = new ArrayList<>();
+            for (String[] row : rows) {
+                String python = ContentCodec.encode(row[1]);
+                String gemini = ContentCodec.encode(row[2]);
+                // encode는 바꿀 게 없으면 같은 참조를 돌려준다.
+                if (python != row[1] || gemini != row[2]) {
+                    updates.add(new Object[]{python, gemini, row[0]});
+                }
+            }
+            if (!updates.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        "update document_contents set python_markdown = ?, gemini_markdown = ? where id = ?", updates));
+                total += updates.size();
+            }
+            after = rows.get(rows.size() - 1)[0];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.dto.DocumentSummary;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 유형별 문서 목록 (키셋 페이지네이션).
+ *
+ * 커서는 마지막으로 받은 문서의 (업로드 시각, id)를 base64url로 감싼 값이다.
+ * OFFSET을 쓰지 않으므로 페이지가 뒤로 가도 조회 비용이 일정하고, 그사이 문서가 추가돼도 중복/누락이 없다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentListService {
+
+    public record Page(List<DocumentSummary> items, String nextCursor) {
+    }
+
+    private final DocumentResultRepository repository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCreatedAt() {
+        int updated = repository.backfillCreatedAt(Instant.EPOCH);
+        if (updated > 0) {
+            log.info("🕒 업로드 시각이 없는 기존 문서 {}건을 가장 오래된 문서로 표시했습니다.", updated);
+        }
+    }
+
+    /**
+     * @param cursor 이전 페이지의 nextCursor (첫 페이지는 null)
+     * @param newestFirst true 이면 최근 업로드 순, false 이면 오래된 순
+     */
+    public Page list(DocumentType type, String cursor, int size, boolean newestFirst) {
+        PageRequest limit = PageRequest.ofSize(size + 1);   // 한 건 더 읽어 다음 페이지 여부를 판단
+        List<DocumentSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = newestFirst ? repository.findNewest(type, limit) : repository.findOldest(type, limit);
+        } else {
+            Cursor c = Cursor.decode(cursor);
+            rows = newestFirst
+                    ? repository.findNewestBefore(type, c.createdAt(), c.id(), limit)
+                    : repository.findOldestAfter(type, c.createdAt(), c.id(), limit);
+        }
+
+        if (rows.size() <= size) return new Page(rows, null);
+        List<DocumentSummary> items = rows.subList(0, size);
+        DocumentSummary last = items.get(size - 1);
+        return new Page(items, new Cursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    private record Cursor(Instant createdAt, String id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int bar = raw.indexOf('|');
+                if (bar < 0) throw new IllegalArgumentException("잘못된 커서입니다.");
+                return new Cursor(Instant.parse(raw.substring(0, bar)), raw.substring(bar + 1));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("잘못된 커서입니다.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentChunk;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.dto.PythonResponse;
+import com.secureai.docshield.repository.DocumentChunkRepository;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import com.secureai.docshield.util.Utf8;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 업로드 처리 파이프라인: 파싱 → 마스킹 → 저장을 청크 단위로 겹쳐서 실행한다.
+ *
+ * 파서는 별도 스레드에서 청크를 큐에 넣고, 호출 스레드는 큐에서 꺼낸 청크를 Python 서버로 보낸다.
+ * 청크는 보내기 전에 FastMaskingService가 먼저 가린다. skip-llm을 켜면 단서 단어가 없는 문서의 숫자/기호 위주 청크는
+ * Python 서버를 건너뛴다. 건너뛸지는 문서 단위로 정하므로 그런 청크는 단서가 나오거나 문서가 끝날 때까지 붙잡아 둔다.
+ * Python 서버로 가는 청크는 MaskingBatcher가 다른 업로드의 청크와 묶어 보낼 수 있다.
+ * 마스킹이 끝난 청크는 바로 document_chunks에 저장되고, 마지막에 seq 순서대로 이어 붙여
+ * DocumentContent.pythonMarkdown을 만든다. 처리 중에는 DocumentResult가 PROCESSING 상태로 남아 있다.
+ * 추출 텍스트의 해시가 이미 마스킹된 문서와 같으면 그 결과를 재사용한다. (MaskingCacheService)
+ * 캐시 창보다 큰 문서는 해시가 나올 때까지 기다리지 않으므로, 첫 청크가 같은 마스킹 완료 문서를 후보로 잡아
+ * 원문 해시가 같은 청크는 그 결과를 복사한다. 같은 큰 문서를 다시 올려도 Python 서버로 가는 청크가 없다.
+ * 완료된 문서는 전체 문서 검색 색인(SearchService)에도 더한다.
+ *
+ * 업로드 때 previousId로 완료 문서를 주면 새 문서는 그 다음 판(previousId, version)이 된다. 청크 경계는 내용으로 정하므로
+ * (ChunkingTextSink content-defined) 일부만 고친 새 판은 대부분의 청크가 직전 판과 같고, 원문 해시가 같은 청크는
+ * Python 서버로 보내지 않고 직전 판의 마스킹 결과를 그대로 쓴다. 마스킹 비용이 문서 크기가 아니라 바뀐 양에 비례한다.
+ *
+ * 업로드 한 건은 docshield.upload 관측(observation) 하나이고, 파싱(docshield.upload.parse), 청크 마스킹
+ * (docshield.upload.mask), DB 저장(docshield.db.save)이 그 아래 단계로 붙는다. 관측마다 같은 이름의 타이머와
+ * 트레이스 span이 만들어지며, 다른 스레드에서 도는 단계는 부모 관측을 직접 넘겨 같은 트레이스로 잇는다.
+ * 지표: docshield.upload.parse.size, docshield.upload.parse.time-per-mb, docshield.upstream.payload,
+ *       docshield.upload.chunks.reused (직전 판에서 가져온 청크 수, 이때 업로드 관측의 mask.cache=partial)
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentPipelineService {
+
+    // hash: 청크 원문의 SHA-256 (hex) — 직전 판 청크 재사용 키
+    private record TextChunk(int seq, String text, String hash) {
+    }
+
+    private static final TextChunk END = new TextChunk(-1, "", "");
+
+    // LLM을 건너뛸 후보로 붙잡아 둔 청크 — slot은 masked 목록에서 이 청크 자리
+    private record Candidate(TextChunk chunk, FastMaskingService.Outcome fast, int slot) {
+    }
+
+    private final FileParserService fileParserService;
+    private final MaskingBatcher maskingBatcher;
+    private final FastMaskingService fastMaskingService;
+    private final DocumentClassifier documentClassifier;
+    private final ResponseFormatter responseFormatter;
+    private final DocumentResultRepository repository;
+    private final DocumentChunkRepository chunkRepository;
+    private final DocumentContentService contentService;
+    private final MaskingCacheService maskingCacheService;
+    private final RetrievalService retrievalService;
+    private final SearchService searchService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    @Qualifier("pipelineExecutor")
+    private final ExecutorService pipelineExecutor;
+
+    // Python 서버 한 번 요청에 담기는 최대 글자 수
+    @Value("${docshield.pipeline.chunk-chars:8000}")
+    private int chunkChars;
+
+    // 문서 하나가 동시에 Python 서버로 보내는 청크 수
+    @Value("${docshield.pipeline.mask-parallelism:4}")
+    private int maskParallelism;
+
+    // 파싱이 마스킹보다 앞서 나갈 수 있는 청크 수 (넘으면 파서가 대기)
+    @Value("${docshield.pipeline.queue-capacity:8}")
+    private int queueCapacity;
+
+    // 이 청크 수 안에서 파싱이 끝나는 문서는 마스킹 전에 해시 캐시를 먼저 확인한다.
+    @Value("${docshield.mask-cache.window-chunks:16}")
+    private int cacheWindow;
+
+    // 청크 경계를 내용(롤링 해시)으로 정한다. 끄면 chunk-chars마다 줄 경계에서 자른다.
+    @Value("${docshield.pipeline.content-defined-chunks:true}")
+    private boolean contentDefinedChunks;
+
+    /**
+     * @param previousId 이 문서를 다음 판으로 이을 완료 문서 id (없으면 null — 판을 잇지 않는다)
+     * @throws UnknownPreviousVersionException previousId가 완료된 문서가 아닐 때
+     */
+    public DocumentResult process(MultipartFile file, String previousId) throws IOException {
+        String fileName = file.getOriginalFilename();
+        if (fileName == null) throw new IOException("파일 이름이 없습니다.");
+        return process(UUID.randomUUID().toString(), fileName, file, previousId, PipelineListener.NONE);
+    }
+
+    public DocumentResult process(String id, String fileName, InputStreamSource source,
+                                  PipelineListener listener) throws IOException {
+        return process(id, fileName, source, null, listener);
+    }
+
+    /**
+     * @param previousId 이 문서를 다음 판으로 이을 완료 문서 id (없으면 null)
+     * @throws UnknownPreviousVersionException previousId가 완료된 문서가 아닐 때 (행을 만들기 전에 확인한다)
+     */
+    public DocumentResult process(String id, String fileName, InputStreamSource source, String previousId,
+                                  PipelineListener listener) throws IOException {
+        DocumentResult previous = previousVersion(previousId);
+        repository.save(new DocumentResult(id, null, fileName, ProcessingStatus.PROCESSING, null, null));
+        return run(id, fileName, source, previous, listener, repository::save);
+    }
+
+    /**
+     * 일괄 업로드용 — document_results 행을 저장하지 않고 완료된 결과만 돌려준다.
+     * 호출자가 여러 문서의 행을 모아 saveAll로 한 번에 넣는다. (처리 중에는 PROCESSING 행이 없다)
+     * 실패하면 남긴 데이터는 여기서 지우고, 행을 저장하지 못하게 되면 호출자가 discard를 불러야 한다.
+     */
+    public DocumentResult processUnsaved(String id, String fileName, InputStreamSource source,
+                                         PipelineListener listener) throws IOException {
+        return run(id, fileName, source, null, listener, result -> {
+        });
+    }
+
+    private DocumentResult run(String id, String fileName, InputStreamSource source, DocumentResult previous,
+                               PipelineListener listener, Consumer<DocumentResult> store) throws IOException {
+        String fileType = fileType(fileName);
+        Observation upload = Observation.createNotStarted("docshield.upload", observationRegistry)
+                .lowCardinalityKeyValue("file.type", fileType)
+                .lowCardinalityKeyValue("mask.cache", "miss")
+                .highCardinalityKeyValue("doc.id", id)
+                .start();
+        try (Observation.Scope ignored = upload.openScope()) {
+            return run(id, fileName, fileType, source, previous, listener, store, upload);
+        } catch (IOException | RuntimeException e) {
+            upload.error(e);
+            throw e;
+        } finally {
+            upload.stop();
+        }
+    }
+
+    private DocumentResult run(String id, String fileName, String fileType, InputStreamSource source,
+                               DocumentResult previous, PipelineListener listener, Consumer<DocumentResult> store,
+                               Observation upload) throws IOException {
+        BlockingQueue<TextChunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        // 1️⃣ 파싱 단계 — 청크가 만들어지는 대로 큐에 넣고, 흘러가는 텍스트로 SHA-256을 계산한다.
+        //    첫 청크는 로컬 분류기로 유형을 어림해 마스킹과 나란히 유형별 작업을 시작할 수 있게 알린다.
+        //    원문은 첫 청크만 남긴다. (분류기 학습용, chunk-chars 이하 — 문서 전체를 힙에 모으지 않는다)
+        AtomicReference<DocumentType> predicted = new AtomicReference<>();
+        AtomicReference<String> firstChunk = new AtomicReference<>();
+        Future<String> parsing = pipelineExecutor.submit(() -> Observation
+                .createNotStarted("docshield.upload.parse", observationRegistry)
+                .parentObservation(upload)
+                .lowCardinalityKeyValue("file.type", fileType)
+                .observeChecked(() -> {
+                    MessageDigest digest = sha256();
+                    long start = System.nanoTime();
+                    try (CountingInputStream in = new CountingInputStream(source.getInputStream())) {
+                        ChunkingTextSink sink = new ChunkingTextSink(chunkChars, contentDefinedChunks, (seq, text) -> {
+                            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                            digest.update(bytes);
+                            String chunkHash = HexFormat.of().formatHex(sha256().digest(bytes));
+                            if (seq == 0) {
+                                firstChunk.set(text);
+                                predicted.set(documentClassifier.predict(text));
+                                listener.onTypePredicted(predicted.get());
+                            }
+                            enqueue(queue, new TextChunk(seq, text, chunkHash));
+                            listener.onChunkParsed(seq);
+                        });
+                        fileParserService.extract(fileName, in, sink);
+                        listener.onParsingDone(sink.chunkCount());
+                        recordParse(fileType, in.count, System.nanoTime() - start);
+                        return HexFormat.of().formatHex(digest.digest());
+                    } finally {
+                        queue.put(END);
+                    }
+                }));
+
+        Semaphore inFlight = new Semaphore(maskParallelism);
+        List<Future<PythonResponse>> masked = new ArrayList<>();
+        FastMaskingService.Session fast = fastMaskingService.session();
+        List<Candidate> candidates = new ArrayList<>();
+        // 이 업로드가 마스킹을 맡은 해시 (같은 문서를 동시에 올린 업로드는 결과를 기다린다)
+        String claimed = null;
+        try {
+            // 2️⃣ 캐시 확인 — 청크를 cacheWindow개까지 붙잡아 둔 채 파싱이 끝나면 해시로 기존 결과를 찾는다.
+            //    창보다 큰 문서는 기다리지 않고 바로 마스킹을 시작한다. (파이프라인 유지)
+            List<TextChunk> held = new ArrayList<>();
+            boolean parsedWithinWindow = false;
+            while (held.size() < cacheWindow) {
+                TextChunk chunk = queue.take();
+                if (chunk == END) {
+                    parsedWithinWindow = true;
+                    break;
+                }
+                held.add(chunk);
+            }
+            if (parsedWithinWindow) {
+                String contentHash = parsing.get();
+                MaskingCacheService.Lookup lookup = maskingCacheService.lookupOrClaim(contentHash);
+                if (lookup.owner()) claimed = contentHash;
+                Optional<DocumentResult> cached = lookup.cached();
+                // 원본 본문이 지워졌으면 (복사 실패) 평소처럼 마스킹한다.
+                if (cached.isPresent() && contentService.copy(cached.get().getId(), id)) {
+                    maskingCacheService.recordSaved(held.size());
+                    held.forEach(chunk -> listener.onChunkMasked(chunk.seq()));
+                    upload.lowCardinalityKeyValue("mask.cache", "hit");
+                    return reuse(id, fileName, contentHash, cached.get(), previous, store);
+                }
+            }
+
+            // 3️⃣ 마스킹 단계 — 청크를 동시에 최대 maskParallelism개까지 Python 서버로 보낸다.
+            //    직전 판(또는 첫 청크가 같은 문서)에 원문이 같은 청크가 있으면 그 마스킹 결과를 쓴다.
+            Map<String, DocumentChunk> known = previousChunks(previous);
+            if (!parsedWithinWindow && !held.isEmpty()) known = withSameStart(known, held.get(0), id);
+            int reused = 0;
+            for (TextChunk chunk : held) {
+                if (dispatch(id, chunk, known, inFlight, masked, fast, candidates, listener, upload)) reused++;
+            }
+            if (!parsedWithinWindow) {
+                TextChunk chunk;
+                while ((chunk = queue.take()) != END) {
+                    if (dispatch(id, chunk, known, inFlight, masked, fast, candidates, listener, upload)) reused++;
+                }
+            }
+            settle(id, fast, candidates, inFlight, masked, listener, upload);
+            String contentHash = parsing.get();
+            if (reused > 0) {
+                // 창을 넘는 문서도 모든 청크를 가져왔고 전체 해시가 같은 문서가 있으면 적중으로 센다.
+                boolean whole = !parsedWithinWindow && reused == masked.size()
+                        && maskingCacheService.lookup(contentHash).isPresent();
+                if (whole) maskingCacheService.recordSaved(reused);
+                upload.lowCardinalityKeyValue("mask.cache", whole ? "hit" : "partial");
+                meterRegistry.counter("docshield.upload.chunks.reused").increment(reused);
+            }
+
+            // 4️⃣ 재조립 — seq 순서대로 이어 붙이고 문서 유형은 청크 다수결로 정한다.
+            StringBuilder markdown = new StringBuilder();
+            Map<DocumentType, Integer> votes = new LinkedHashMap<>();
+            for (Future<PythonResponse> future : masked) {
+                PythonResponse part = future.get();
+                if (markdown.length() > 0 && markdown.charAt(markdown.length() - 1) != '\n') markdown.append('\n');
+                if (part.getMarkdown() != null) markdown.append(part.getMarkdown());
+                if (part.getDocumentType() != null) votes.merge(part.getDocumentType(), 1, Integer::sum);
+            }
+            DocumentType type = votes.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+            // Python 서버가 유형을 정했으면 로컬 예측과 비교하고, 모든 청크가 LLM을 건너뛰었으면
+            // 로컬 예측을 쓰되 확신이 낮으면 유형을 비워 둔다.
+            if (type != null) {
+                documentClassifier.record(firstChunk.get(), predicted.get(), type);
+            } else {
+                type = documentClassifier.finalType(firstChunk.get());
+            }
+
+            String stored = toPythonMarkdown(markdown.toString(), type);
+            saving("content", () -> contentService.save(id, stored));
+            DocumentResult result = new DocumentResult(id, type, fileName, ProcessingStatus.COMPLETED, contentHash, null)
+                    .nextVersionOf(previous);
+            saving("result", () -> store.accept(result));
+            maskingCacheService.remember(contentHash, id);
+            retrievalService.index(id, markdown.toString());
+            searchService.index(result, markdown.toString());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(id, parsing, masked, claimed);
+            throw new InterruptedIOException("업로드 처리가 중단되었습니다.");
+        } catch (ExecutionException e) {
+            abort(id, parsing, masked, claimed);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("업로드 처리 실패: " + cause.getMessage(), cause);
+        } catch (RuntimeException e) {
+            // 호출 스레드에서 난 실패 (저장, 직렬화, 색인 등) — 행이 PROCESSING으로 남거나 마스킹 작업이 계속 돌지 않게 한다.
+            abort(id, parsing, masked, claimed);
+            throw e;
+        }
+    }
+
+    // 직전 판의 같은 청크를 재사용했으면 true
+    private boolean dispatch(String docId, TextChunk chunk, Map<String, DocumentChunk> known, Semaphore inFlight,
+                             List<Future<PythonResponse>> masked, FastMaskingService.Session fast,
+                             List<Candidate> candidates, PipelineListener listener,
+                             Observation upload) throws InterruptedException {
+        DocumentChunk same = known.get(chunk.hash());
+        if (same != null) {
+            // 마스킹은 같은 입력에 같은 결과이므로 저장된 결과를 새 문서의 청크로 복사만 한다.
+            masked.add(pipelineExecutor.submit(() -> {
+                saving("chunk", () -> chunkRepository.save(
+                        new DocumentChunk(null, docId, chunk.seq(), same.getType(), same.getMarkdown(), chunk.hash())));
+                listener.onChunkMasked(chunk.seq());
+                return new PythonResponse(same.getMarkdown(), same.getType());
+            }));
+            return true;
+        }
+        // 빠른 마스킹은 seq 순서로 여기서 한다. (단서 단어를 본 뒤의 청크가 LLM을 건너뛰지 않게)
+        FastMaskingService.Outcome outcome = fast.mask(chunk.text());
+        if (!outcome.needsLlm()) {
+            // 자리만 잡아 두고 settle에서 실제 작업으로 바꾼다.
+            candidates.add(new Candidate(chunk, outcome, masked.size()));
+            masked.add(new CompletableFuture<>());
+            return false;
+        }
+        if (fast.cueSeen() && !candidates.isEmpty()) {
+            settle(docId, fast, candidates, inFlight, masked, listener, upload);
+        }
+        masked.add(submitMask(docId, chunk, outcome, inFlight, listener, upload));
+        return false;
+    }
+
+    // 붙잡아 둔 후보 청크를 LLM으로 보낼지(문서에 단서 단어가 나왔으면) JVM 결과로 끝낼지 한꺼번에 정한다.
+    private void settle(String docId, FastMaskingService.Session fast, List<Candidate> candidates, Semaphore inFlight,
+                        List<Future<PythonResponse>> masked, PipelineListener listener,
+                        Observation upload) throws InterruptedException {
+        if (candidates.isEmpty()) return;
+        boolean llm = fast.settle(candidates.size());
+        for (Candidate candidate : candidates) {
+            FastMaskingService.Outcome outcome = new FastMaskingService.Outcome(candidate.fast().text(), llm);
+            masked.set(candidate.slot(), submitMask(docId, candidate.chunk(), outcome, inFlight, listener, upload));
+        }
+        candidates.clear();
+    }
+
+    private Future<PythonResponse> submitMask(String docId, TextChunk chunk, FastMaskingService.Outcome outcome,
+                                              Semaphore inFlight, PipelineListener listener,
+                                              Observation upload) throws InterruptedException {
+        inFlight.acquire();
+        return pipelineExecutor.submit(() -> {
+            try {
+                PythonResponse part = maskChunk(docId, chunk, outcome, upload);
+                listener.onChunkMasked(chunk.seq());
+                return part;
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private DocumentResult previousVersion(String previousId) {
+        if (previousId == null || previousId.isBlank()) return null;
+        return repository.findById(previousId)
+                .filter(DocumentResult::isCompleted)
+                .orElseThrow(() -> new UnknownPreviousVersionException(previousId));
+    }
+
+    // 원문 해시 → 직전 판 청크 (해시가 없는 예전 청크는 뺀다)
+    private Map<String, DocumentChunk> previousChunks(DocumentResult previous) {
+        if (previous == null) return Map.of();
+        Map<String, DocumentChunk> byHash = new HashMap<>();
+        for (DocumentChunk chunk : chunkRepository.findByDocIdOrderBySeq(previous.getId())) {
+            if (chunk.getContentHash() != null) byHash.putIfAbsent(chunk.getContentHash(), chunk);
+        }
+        return byHash;
+    }
+
+    // 첫 청크 원문이 같은 마스킹 완료 문서의 청크를 재사용 후보에 더한다. (직전 판 청크가 우선)
+    private Map<String, DocumentChunk> withSameStart(Map<String, DocumentChunk> known, TextChunk first, String id) {
+        if (!maskingCacheService.isEnabled()) return known;
+        Optional<String> candidate = chunkRepository.findFirstBySeqAndContentHashOrderByIdDesc(0, first.hash())
+                .map(DocumentChunk::getDocId)
+                .filter(docId -> !docId.equals(id))
+                .filter(docId -> repository.findById(docId).filter(DocumentResult::isCompleted).isPresent());
+        if (candidate.isEmpty()) return known;
+        Map<String, DocumentChunk> byHash = new HashMap<>(known);
+        for (DocumentChunk chunk : chunkRepository.findByDocIdOrderBySeq(candidate.get())) {
+            if (chunk.getContentHash() != null) byHash.putIfAbsent(chunk.getContentHash(), chunk);
+        }
+        return byHash;
+    }
+
+    // 같은 내용의 문서가 이미 마스킹되어 있으면 Python 서버를 거치지 않고 결과를 복사한다. (본문은 호출 전에 복사됨)
+    // 다음 판이 청크를 재사용할 수 있도록 청크 행도 복사한다.
+    private DocumentResult reuse(String id, String fileName, String contentHash, DocumentResult cached,
+                                 DocumentResult previous, Consumer<DocumentResult> store) {
+        List<DocumentChunk> copies = chunkRepository.findByDocIdOrderBySeq(cached.getId()).stream()
+                .map(c -> new DocumentChunk(null, id, c.getSeq(), c.getType(), c.getMarkdown(), c.getContentHash()))
+                .toList();
+        saving("chunk", () -> chunkRepository.saveAll(copies));
+        DocumentResult result = new DocumentResult(id, cached.getType(), fileName, ProcessingStatus.COMPLETED, contentHash, null)
+                .nextVersionOf(previous);
+        saving("result", () -> store.accept(result));
+        searchService.indexStored(result);
+        return result;
+    }
+
+    // 빠른 마스킹을 거친 청크 중 정책상 LLM이 봐야 하는 청크만 Python 서버로 보낸다.
+    // LLM을 건너뛴 청크는 문서 유형 투표에 참여하지 않는다.
+    // 마스킹 관측의 route는 python(Python 서버 왕복) 또는 fast(JVM에서 끝남)이다.
+    private PythonResponse maskChunk(String docId, TextChunk chunk, FastMaskingService.Outcome fast, Observation upload) {
+        Observation mask = Observation.createNotStarted("docshield.upload.mask", observationRegistry)
+                .parentObservation(upload)
+                .lowCardinalityKeyValue("route", "unknown");
+        return mask.observe(() -> {
+            mask.lowCardinalityKeyValue("route", fast.needsLlm() ? "python" : "fast");
+            PythonResponse parsed;
+            if (fast.needsLlm()) {
+                payload("request").record(Utf8.length(fast.text()));
+                String response = maskingBatcher.mask(fast.text());
+                payload("response").record(Utf8.length(response));
+                parsed = responseFormatter.parsePythonResponse(response);
+            } else {
+                parsed = new PythonResponse(fast.text(), null);
+            }
+            saving("chunk", () -> chunkRepository.save(
+                    new DocumentChunk(null, docId, chunk.seq(), parsed.getDocumentType(), parsed.getMarkdown(), chunk.hash())));
+            return parsed;
+        });
+    }
+
+    private void saving(String entity, Runnable save) {
+        Observation.createNotStarted("docshield.db.save", observationRegistry)
+                .lowCardinalityKeyValue("entity", entity)
+                .observe(save);
+    }
+
+    // 파일 크기와 1MB당 파싱 시간 (파일 유형별). 파싱 시간 자체는 docshield.upload.parse 타이머에 남는다.
+    private void recordParse(String fileType, long bytes, long nanos) {
+        DistributionSummary.builder("docshield.upload.parse.size")
+                .baseUnit("bytes").tag("file.type", fileType)
+                .register(meterRegistry).record(bytes);
+        if (bytes == 0) return;
+        DistributionSummary.builder("docshield.upload.parse.time-per-mb")
+                .baseUnit("milliseconds").tag("file.type", fileType)
+                .register(meterRegistry).record(nanos / 1e6 / (bytes / (1024.0 * 1024)));
+    }
+
+    private DistributionSummary payload(String direction) {
+        return DistributionSummary.builder("docshield.upstream.payload")
+                .baseUnit("bytes").tag("upstream", "python").tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    // 파서가 고르는 확장자와 같다. (지표 태그가 끝없이 늘어나지 않게 나머지는 other)
+    static String fileType(String fileName) {
+        for (String ext : List.of("txt", "pdf", "docx", "xlsx")) {
+            if (fileName.endsWith("." + ext)) return ext;
+        }
+        return "other";
+    }
+
+    // 기존과 같은 형태({"markdown": ..., "documentType": ...})로 저장해 프론트 렌더링을 그대로 유지한다.
+    private String toPythonMarkdown(String markdown, DocumentType type) {
+        try {
+            return objectMapper.writeValueAsString(new PythonResponse(markdown, type));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Python 응답 직렬화 실패", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void enqueue(BlockingQueue<TextChunk> queue, TextChunk chunk) throws IOException {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("파싱이 중단되었습니다.");
+        }
+    }
+
+    // 파서가 실제로 읽은 바이트 수 (MultipartFile이 아닌 원본은 크기를 미리 알 수 없다)
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * 문서 하나가 남긴 청크, 본문, 검색/질의 색인, 마스킹 캐시 항목을 id로 지운다.
+     * processUnsaved의 결과 행을 끝내 저장하지 못했을 때 호출자가 부른다. (행이 없으면 이것들을 찾아 지울 길이 없다)
+     */
+    public void discard(String docId) {
+        chunkRepository.deleteByDocId(docId);
+        contentService.delete(docId);
+        searchService.remove(docId);
+        retrievalService.evict(docId);
+        maskingCacheService.forget(docId);
+    }
+
+    private void abort(String docId, Future<?> parsing, List<Future<PythonResponse>> masked, String claimedHash) {
+        if (claimedHash != null) maskingCacheService.release(claimedHash);
+        parsing.cancel(true);
+        masked.forEach(f -> f.cancel(true));
+        discard(docId);
+        repository.findById(docId).ifPresent(result -> {
+            result.setStatus(ProcessingStatus.FAILED);
+            repository.save(result);
+        });
+    }
+}
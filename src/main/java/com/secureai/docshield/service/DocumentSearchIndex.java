@@ -0,0 +1,338 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.util.KoreanTokenizer;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 전체 문서에 걸친 메모리 역색인 (문서 단위 BM25). 문서가 저장될 때마다 한 건씩 더하고 뺀다.
+ *
+ * 토큰은 KoreanTokenizer와 같다. (한글은 글자 bigram, 영문/숫자는 소문자 단어)
+ * 질의의 모든 토큰이 들어 있는 문서만 찾고(AND), 가장 짧은 포스팅부터 나머지를 따라가며 교집합을 구한다.
+ *
+ * 포스팅은 문서 번호(slot) 차이와 tf를 varint로 이어 붙인 바이트 배열이다. 문서 번호는 추가 순서대로 늘어나므로
+ * 새 문서는 배열 끝에 붙이기만 하면 된다. 지우거나 다시 색인한 문서는 live 비트만 끄고,
+ * 지운 문서가 전체의 1/4을 넘으면 살아 있는 문서만 남기도록 번호를 다시 매기고 포스팅을 다시 쓴다.
+ * idf의 문서 빈도는 살아 있는 문서만 센다. 그래서 문서마다 자기가 들어 있는 포스팅을 기억해 두었다가 지울 때 빼 준다.
+ *
+ * 쓰기는 한 번에 하나(쓰기 잠금), 검색은 여러 스레드가 동시에 할 수 있다.
+ * 토큰화는 잠금 밖에서 한다. (prepare로 미리 만들어 put(Entry)로 넣을 수도 있다)
+ */
+public final class DocumentSearchIndex {
+
+    public record Hit(String id, DocumentType type, String fileName, Instant createdAt, double score) {
+    }
+
+    public record Result(int total, List<Hit> hits) {
+    }
+
+    /** 토큰화까지 끝낸 문서 하나 (prepare) */
+    public record Entry(String id, DocumentType type, String fileName, Instant createdAt, Map<String, Integer> tf,
+                        int length) {
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_DEAD_FOR_COMPACTION = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+
+    // slot별 메타데이터 (slots개 사용 중)
+    private String[] ids = new String[1024];
+    private DocumentType[] types = new DocumentType[1024];
+    private String[] fileNames = new String[1024];
+    private Instant[] createdAts = new Instant[1024];
+    private int[] lengths = new int[1024];
+    private Postings[][] termsOf = new Postings[1024][];
+    private final BitSet live = new BitSet();
+    private int slots;
+    private int liveCount;
+    private long lengthSum;
+
+    /** 문서를 색인한다. 같은 id가 이미 있으면 바꿔 넣는다. */
+    public void put(String id, DocumentType type, String fileName, Instant createdAt, CharSequence text) {
+        put(prepare(id, type, fileName, createdAt, text));
+    }
+
+    /** 색인하지 않고 토큰화만 한다. 결과는 put(Entry)로 넣는다. */
+    public static Entry prepare(String id, DocumentType type, String fileName, Instant createdAt, CharSequence text) {
+        Map<String, Integer> tf = new HashMap<>();
+        KoreanTokenizer.tokenize(text, token -> tf.merge(token, 1, Integer::sum));
+        int length = 0;
+        for (int n : tf.values()) length += n;
+        return new Entry(id, type, fileName, createdAt, tf, length);
+    }
+
+    public void put(Entry entry) {
+        String id = entry.id();
+        int length = entry.length();
+        Map<String, Integer> tf = entry.tf();
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int slot = slots++;
+            if (slot == ids.length) grow();
+            ids[slot] = id;
+            types[slot] = entry.type();
+            fileNames[slot] = entry.fileName();
+            createdAts[slot] = entry.createdAt();
+            lengths[slot] = length;
+            Postings[] terms = new Postings[tf.size()];
+            int t = 0;
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                Postings p = postings.computeIfAbsent(e.getKey(), k -> new Postings());
+                p.add(slot, e.getValue());
+                terms[t++] = p;
+            }
+            termsOf[slot] = terms;
+            live.set(slot);
+            slotById.put(id, slot);
+            liveCount++;
+            lengthSum += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param types  비어 있거나 null이면 모든 유형
+     * @param offset 건너뛸 결과 수 (점수 순) — 음수이거나 offset + limit이 넘치면 빈 결과
+     */
+    public Result search(String query, Set<DocumentType> types, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(KoreanTokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0 || offset < 0 || offset + limit <= 0) return new Result(0, List.of());
+        boolean filtered = types != null && !types.isEmpty();
+
+        lock.readLock().lock();
+        try {
+            Cursor[] cursors = new Cursor[terms.size()];
+            int i = 0;
+            for (String term : terms) {
+                Postings p = postings.get(term);
+                if (p == null || p.live == 0) return new Result(0, List.of());
+                cursors[i++] = new Cursor(p, idf(p.live));
+            }
+            // 가장 드문 토큰이 교집합을 이끈다.
+            Arrays.sort(cursors, Comparator.comparingInt(c -> c.count));
+            double avgLength = liveCount == 0 ? 1 : Math.max(1.0, (double) lengthSum / liveCount);
+
+            int keep = offset + limit;
+            PriorityQueue<Hit> top = new PriorityQueue<>(keep + 1, RANKING.reversed());
+            int total = 0;
+            Cursor lead = cursors[0];
+            boolean more = lead.next();
+            outer:
+            while (more) {
+                int doc = lead.doc;
+                for (int c = 1; c < cursors.length; c++) {
+                    if (!cursors[c].advance(doc)) break outer;
+                    if (cursors[c].doc > doc) {
+                        more = lead.advance(cursors[c].doc);
+                        continue outer;
+                    }
+                }
+                if (live.get(doc) && (!filtered || types.contains(this.types[doc]))) {
+                    total++;
+                    double norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                    double score = 0;
+                    for (Cursor cursor : cursors) score += cursor.idf * cursor.tf * (K1 + 1) / (cursor.tf + norm);
+                    if (top.size() < keep || score > top.peek().score()) {
+                        top.add(new Hit(ids[doc], this.types[doc], fileNames[doc], createdAts[doc], score));
+                        if (top.size() > keep) top.poll();
+                    }
+                }
+                more = lead.next();
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            return new Result(total, offset >= hits.size() ? List.of() : hits.subList(offset, hits.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 점수 높은 순, 같으면 최근 업로드 순
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Hit::id);
+
+    private double idf(int df) {
+        int n = Math.max(liveCount, 1);
+        return Math.log(1 + (n - Math.min(df, n) + 0.5) / (Math.min(df, n) + 0.5));
+    }
+
+    private boolean removeLocked(String id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) return false;
+        live.clear(slot);
+        liveCount--;
+        lengthSum -= lengths[slot];
+        for (Postings p : termsOf[slot]) p.live--;
+        termsOf[slot] = null;
+        ids[slot] = null;
+        fileNames[slot] = null;
+        createdAts[slot] = null;
+        int dead = slots - liveCount;
+        if (dead >= MIN_DEAD_FOR_COMPACTION && dead * 4 > slots) compact();
+        return true;
+    }
+
+    private void grow() {
+        int n = ids.length * 2;
+        ids = Arrays.copyOf(ids, n);
+        types = Arrays.copyOf(types, n);
+        fileNames = Arrays.copyOf(fileNames, n);
+        createdAts = Arrays.copyOf(createdAts, n);
+        lengths = Arrays.copyOf(lengths, n);
+        termsOf = Arrays.copyOf(termsOf, n);
+    }
+
+    // 살아 있는 문서만 앞으로 모아 번호를 다시 매기고, 포스팅도 새 번호로 다시 쓴다. (순서는 그대로라 정렬이 유지된다)
+    private void compact() {
+        int[] renumber = new int[slots];
+        int next = 0;
+        for (int s = 0; s < slots; s++) {
+            if (!live.get(s)) {
+                renumber[s] = -1;
+                continue;
+            }
+            renumber[s] = next;
+            ids[next] = ids[s];
+            types[next] = types[s];
+            fileNames[next] = fileNames[s];
+            createdAts[next] = createdAts[s];
+            lengths[next] = lengths[s];
+            termsOf[next] = termsOf[s];
+            slotById.put(ids[next], next);
+            next++;
+        }
+        for (int s = next; s < slots; s++) {
+            ids[s] = null;
+            types[s] = null;
+            fileNames[s] = null;
+            createdAts[s] = null;
+            termsOf[s] = null;
+        }
+        slots = next;
+        live.clear();
+        live.set(0, next);
+
+        Iterator<Postings> it = postings.values().iterator();
+        while (it.hasNext()) {
+            Postings old = it.next();
+            Postings rewritten = new Postings();
+            Cursor cursor = new Cursor(old, 0);
+            while (cursor.next()) {
+                int slot = renumber[cursor.doc];
+                if (slot >= 0) rewritten.add(slot, cursor.tf);
+            }
+            if (rewritten.count == 0) it.remove();
+            else old.replaceWith(rewritten);
+        }
+    }
+
+    /** 토큰 하나의 포스팅: varint(문서 번호 차이), varint(tf) 반복. count는 지운 문서를 포함한 항목 수, live는 살아 있는 문서 수 */
+    private static final class Postings {
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int live;
+        private int lastDoc = -1;
+
+        void add(int doc, int tf) {
+            if (size + 10 > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + 10));
+            writeVarint(doc - lastDoc);
+            writeVarint(tf);
+            lastDoc = doc;
+            count++;
+            live++;
+        }
+
+        // 같은 객체를 그대로 두고 내용만 바꾼다. (문서별 termsOf가 이 객체를 가리킨다)
+        void replaceWith(Postings other) {
+            data = Arrays.copyOf(other.data, other.size);
+            size = other.size;
+            count = other.count;
+            live = other.live;
+            lastDoc = other.lastDoc;
+        }
+
+        private void writeVarint(int v) {
+            while ((v & ~0x7F) != 0) {
+                data[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[size++] = (byte) v;
+        }
+    }
+
+    /** 포스팅을 앞에서부터 읽는 커서. 검색 한 번에서만 쓴다. */
+    private static final class Cursor {
+        private final byte[] data;
+        private final int end;
+        private final int count;
+        private final double idf;
+        private int pos;
+        private int doc = -1;
+        private int tf;
+
+        Cursor(Postings postings, double idf) {
+            this.data = postings.data;
+            this.end = postings.size;
+            this.count = postings.count;
+            this.idf = idf;
+        }
+
+        boolean next() {
+            if (pos >= end) return false;
+            doc += readVarint();
+            tf = readVarint();
+            return true;
+        }
+
+        // doc이 target 이상이 될 때까지 읽는다. 끝나면 false
+        boolean advance(int target) {
+            while (doc < target) {
+                if (!next()) return false;
+            }
+            return true;
+        }
+
+        private int readVarint() {
+            int v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+    }
+}
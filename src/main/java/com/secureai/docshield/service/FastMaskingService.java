@@ -0,0 +1,105 @@
+package com.secureai.docshield.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Python 마스킹 앞단의 JVM 내 빠른 마스킹 (PiiMasker)과 LLM 경유 여부 정책.
+ *
+ * 형식이 정해진 개인정보는 여기서 먼저 가리고, 가린 텍스트만 Python 서버로 보낸다.
+ * skip-llm을 켜면 이름/주소 같은 단서 단어가 문서 어디에도 없을 때 문자 비율이 낮은(숫자/기호 위주의 표) 청크는 LLM을 거치지 않는다.
+ * 단서 단어는 표 머리글처럼 이름이 나오는 청크와 다른 청크에 있을 수 있으므로 LLM을 건너뛸지는 청크가 아니라 문서 단위로 정한다. (Session)
+ */
+@Service
+public class FastMaskingService {
+
+    /**
+     * @param text     가린 텍스트
+     * @param needsLlm Python 서버(LLM)가 한 번 더 봐야 하는지
+     */
+    public record Outcome(String text, boolean needsLlm) {
+    }
+
+    private final PiiMasker masker;
+    private final boolean enabled;
+    private final boolean skipLlm;
+    private final double maxLetterRatio;
+
+    private final Counter maskedItems;
+    private final Counter llmChunks;
+    private final Counter skippedChunks;
+
+    public FastMaskingService(MeterRegistry meterRegistry,
+                              @Value("${docshield.fast-mask.enabled:true}") boolean enabled,
+                              @Value("${docshield.fast-mask.skip-llm:false}") boolean skipLlm,
+                              @Value("${docshield.fast-mask.max-letter-ratio:0.5}") double maxLetterRatio,
+                              @Value("${docshield.fast-mask.terms:}") List<String> maskTerms,
+                              @Value("${docshield.fast-mask.cue-terms:성명,이름,사원명,직원명,고객명,환자명,담당자,주소,거주지,소재지,name,address}") List<String> cueTerms) {
+        this.masker = new PiiMasker(maskTerms, cueTerms);
+        this.enabled = enabled;
+        this.skipLlm = skipLlm;
+        this.maxLetterRatio = maxLetterRatio;
+
+        this.maskedItems = meterRegistry.counter("docshield.fast.mask.items");
+        this.llmChunks = meterRegistry.counter("docshield.fast.mask.chunks", "route", "llm");
+        this.skippedChunks = meterRegistry.counter("docshield.fast.mask.chunks", "route", "skipped");
+    }
+
+    /** 한 문서의 청크를 가리는 세션을 연다. 업로드마다 하나씩 쓴다. */
+    public Session session() {
+        return new Session();
+    }
+
+    /**
+     * 한 문서 분량의 빠른 마스킹. 청크는 seq 순서로 넣는다.
+     *
+     * 단서 단어가 한 번이라도 나오면 그 문서의 청크는 모두 LLM을 거친다.
+     * mask가 needsLlm=false를 돌려준 청크는 건너뛸 "후보"일 뿐이다. 호출자는 단서가 나오거나(cueSeen) 문서가 끝날 때까지
+     * 후보를 붙잡아 두었다가 settle로 한꺼번에 정한다.
+     */
+    public final class Session {
+
+        private volatile boolean cueSeen;
+
+        private Session() {
+        }
+
+        public Outcome mask(String text) {
+            if (!enabled) return route(new Outcome(text, true));
+
+            StringBuilder out = new StringBuilder(text.length() + 16);
+            PiiMasker.Result result = masker.mask(text, out);
+            maskedItems.increment(result.masked());
+            if (result.cues() > 0) cueSeen = true;
+
+            boolean needsLlm = !skipLlm || cueSeen || result.letterRatio() > maxLetterRatio;
+            Outcome outcome = new Outcome(out.toString(), needsLlm);
+            return needsLlm ? route(outcome) : outcome;
+        }
+
+        /** 지금까지 본 청크에 단서 단어가 있었는지 — true면 붙잡아 둔 후보도 LLM으로 보낸다. */
+        public boolean cueSeen() {
+            return cueSeen;
+        }
+
+        /**
+         * 단서가 나왔거나 문서가 끝났을 때 붙잡아 둔 후보 청크 수를 넘긴다.
+         *
+         * @return 후보도 LLM을 거쳐야 하는지
+         */
+        public boolean settle(int candidates) {
+            boolean llm = cueSeen;
+            (llm ? llmChunks : skippedChunks).increment(candidates);
+            return llm;
+        }
+
+        private Outcome route(Outcome outcome) {
+            llmChunks.increment();
+            return outcome;
+        }
+    }
+}
@@ -1,52 +1,378 @@
 package com.secureai.docshield.service;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.io.IOException;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 @Service
 public class FileParserService {
 
+    private static final int TEXT_BUFFER_SIZE = 8192;
+    private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    // true: 스트리밍 추출(메모리 상한 고정), false: 기존 DOM 기반 추출
+    private final boolean streaming;
+
+    public FileParserService(@Value("${docshield.parser.streaming:true}") boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public String parseFile(MultipartFile file) throws IOException {
+        String filename = requireFilename(file);
+        try (InputStream in = file.getInputStream()) {
+            return parse(filename, in);
+        }
+    }
+
+    public String parse(String filename, InputStream in) throws IOException {
+        if (!streaming) {
+            return parseInMemory(filename, in);
+        }
+        StringBuilder sb = new StringBuilder();
+        extract(filename, in, sb::append);
+        return sb.toString();
+    }
+
+    /**
+     * 업로드 파일을 스트리밍으로 읽어 텍스트 조각을 싱크로 흘려보낸다.
+     * 파일 크기와 무관하게 파서가 잡는 메모리는 페이지/행/문단 단위로 제한된다.
+     */
+    public void extract(MultipartFile file, TextSink sink) throws IOException {
+        String filename = requireFilename(file);
+        try (InputStream in = file.getInputStream()) {
+            extract(filename, in, sink);
+        }
+    }
+
+    public void extract(String filename, InputStream in, TextSink sink) throws IOException {
+        if (filename.endsWith(".txt")) {
+            streamText(in, sink);
+        } else if (filename.endsWith(".pdf")) {
+            withSpooledFile(in, file -> streamPdf(file, sink));
+        } else if (filename.endsWith(".docx")) {
+            withSpooledFile(in, file -> streamWord(file, sink));
+        } else if (filename.endsWith(".xlsx")) {
+            withSpooledFile(in, file -> streamExcel(file, sink));
+        } else {
+            throw new IOException("지원하지 않는 파일 형식: " + filename);
+        }
+        sink.close();
+    }
+
+    private String requireFilename(MultipartFile file) throws IOException {
         String filename = file.getOriginalFilename();
         if (filename == null) throw new IOException("파일 이름이 없습니다.");
+        return filename;
+    }
+
+    // ===== 스트리밍 추출 =====
+
+    private void streamText(InputStream in, TextSink sink) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        char[] buf = new char[TEXT_BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            sink.write(CharBuffer.wrap(buf, 0, n));
+        }
+    }
+
+    // PDF: 파싱 버퍼는 임시 파일에 두고, 텍스트는 페이지가 끝날 때마다 싱크로 내보낸다.
+    private void streamPdf(File file, TextSink sink) throws IOException {
+        try (PDDocument document = PDDocument.load(file, MemoryUsageSetting.setupTempFileOnly())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.writeText(document, new SinkWriter(sink));
+        }
+    }
+
+    // XLSX: XSSFReader + SAX로 시트를 행 단위로 읽는다. (Workbook DOM을 만들지 않음)
+    private void streamExcel(File file, TextSink sink) throws IOException {
+        OPCPackage pkg = openPackage(file);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    parseXml(sheet, new XSSFSheetXMLHandler(styles, strings, new SheetTextHandler(sink), formatter, false));
+                }
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("XLSX 파싱 실패: " + e.getMessage(), e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    // DOCX: 머리글 → 본문 → 바닥글 순서로 document.xml 파트를 SAX로 읽는다.
+    private void streamWord(File file, TextSink sink) throws IOException {
+        OPCPackage pkg = openPackage(file);
+        try {
+            PackageRelationship coreRel = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT).getRelationship(0);
+            PackagePart main = pkg.getPart(coreRel);
+
+            streamWordParts(main, XWPFRelation.HEADER.getRelation(), sink);
+            streamWordPart(main, sink);
+            streamWordParts(main, XWPFRelation.FOOTER.getRelation(), sink);
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("DOCX 파싱 실패: " + e.getMessage(), e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private void streamWordParts(PackagePart main, String relationType, TextSink sink)
+            throws IOException, OpenXML4JException, SAXException {
+        for (PackageRelationship rel : main.getRelationshipsByType(relationType)) {
+            streamWordPart(main.getRelatedPart(rel), sink);
+        }
+    }
+
+    private void streamWordPart(PackagePart part, TextSink sink) throws IOException, SAXException {
+        try (InputStream in = part.getInputStream()) {
+            WordTextHandler handler = new WordTextHandler(sink);
+            parseXml(in, handler);
+            handler.flush();
+        }
+    }
+
+    private void parseXml(InputStream in, org.xml.sax.ContentHandler handler) throws IOException, SAXException {
+        try {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            parser.parse(new InputSource(in));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (ParserConfigurationException e) {
+            throw new IOException("XML 파서 생성 실패", e);
+        } catch (SAXException e) {
+            // 싱크에서 발생한 IOException은 SAX 예외로 감싸서 올라오므로 원래 예외로 되돌린다.
+            if (e.getException() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    private OPCPackage openPackage(File file) throws IOException {
+        try {
+            return OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("OOXML 패키지 열기 실패: " + e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileTask {
+        void run(File file) throws IOException;
+    }
+
+    // PDF/OOXML은 임의 접근이 필요하므로 업로드 스트림을 임시 파일로 흘려 쓴 뒤 읽는다.
+    private void withSpooledFile(InputStream in, FileTask task) throws IOException {
+        Path tmp = Files.createTempFile("docshield-", ".upload");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            task.run(tmp.toFile());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static final class SinkWriter extends Writer {
+        private final TextSink sink;
+
+        SinkWriter(TextSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (len > 0) sink.write(CharBuffer.wrap(cbuf, off, len));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // 시트 한 행씩 탭/개행으로 이어 붙여 싱크로 보낸다.
+    private static final class SheetTextHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final TextSink sink;
+        private final StringBuilder row = new StringBuilder();
+
+        SheetTextHandler(TextSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            row.setLength(0);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            row.append('\n');
+            try {
+                sink.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            row.append(formattedValue).append('\t');
+        }
+    }
+
+    // w:t 텍스트만 모으고 XWPFWordExtractor와 같은 구분자를 넣는다.
+    // 본문 문단 끝은 개행, 표는 셀 사이 탭 · 행 끝 개행 · 표 끝 개행 한 번 더, 한 셀 안의 문단 사이는 탭.
+    private static final class WordTextHandler extends DefaultHandler {
+        private final TextSink sink;
+        private final StringBuilder buf = new StringBuilder();
+        private boolean inRun;
+        private boolean inText;
+        private int tableDepth;
+        private int cellsInRow;
+        private int paragraphsInCell;
+
+        WordTextHandler(TextSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (!WORD_NS.equals(uri)) return;
+            switch (localName) {
+                case "r" -> inRun = true;
+                case "t" -> inText = true;
+                case "tab" -> { if (inRun) buf.append('\t'); }
+                case "br", "cr" -> { if (inRun) buf.append('\n'); }
+                case "tbl" -> tableDepth++;
+                case "tr" -> { if (tableDepth == 1) cellsInRow = 0; }
+                case "tc" -> {
+                    if (tableDepth == 1) {
+                        if (cellsInRow++ > 0) buf.append('\t');
+                        paragraphsInCell = 0;
+                    }
+                }
+                case "p" -> { if (tableDepth > 0 && paragraphsInCell++ > 0) buf.append('\t'); }
+                default -> { }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (!WORD_NS.equals(uri)) return;
+            switch (localName) {
+                case "r" -> inRun = false;
+                case "t" -> inText = false;
+                case "p" -> {
+                    if (tableDepth == 0) endLine();
+                }
+                case "tr" -> {
+                    if (tableDepth == 1) endLine();
+                }
+                case "tbl" -> {
+                    if (--tableDepth == 0) endLine();
+                }
+                default -> { }
+            }
+        }
+
+        private void endLine() throws SAXException {
+            buf.append('\n');
+            if (buf.length() >= TEXT_BUFFER_SIZE) flushQuietly();
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) buf.append(ch, start, length);
+        }
+
+        void flush() throws IOException {
+            if (buf.length() == 0) return;
+            sink.write(buf);
+            buf.setLength(0);
+        }
+
+        private void flushQuietly() throws SAXException {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    // ===== 기존 DOM 기반 추출 (docshield.parser.streaming=false) =====
 
+    private String parseInMemory(String filename, InputStream in) throws IOException {
         if (filename.endsWith(".txt")) {
-            return new String(file.getBytes(), StandardCharsets.UTF_8);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
         } else if (filename.endsWith(".pdf")) {
-            return parsePdf(file);
+            return parsePdf(in);
         } else if (filename.endsWith(".docx")) {
-            return parseWord(file);
+            return parseWord(in);
         } else if (filename.endsWith(".xlsx")) {
-            return parseExcel(file);
+            return parseExcel(in);
         } else {
             throw new IOException("지원하지 않는 파일 형식: " + filename);
         }
     }
 
-    private String parsePdf(MultipartFile file) throws IOException {
-        try (PDDocument document = PDDocument.load(file.getBytes())) {
+    private String parsePdf(InputStream in) throws IOException {
+        try (PDDocument document = PDDocument.load(in.readAllBytes())) {
             PDFTextStripper stripper = new PDFTextStripper();
             return stripper.getText(document);
         }
     }
 
-    private String parseWord(MultipartFile file) throws IOException {
-        try (XWPFDocument doc = new XWPFDocument(file.getInputStream())) {
+    private String parseWord(InputStream in) throws IOException {
+        try (XWPFDocument doc = new XWPFDocument(in)) {
             XWPFWordExtractor extractor = new XWPFWordExtractor(doc);
             return extractor.getText();
         }
     }
 
-    private String parseExcel(MultipartFile file) throws IOException {
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
+    private String parseExcel(InputStream in) throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(in)) {
             StringBuilder sb = new StringBuilder();
             for (Sheet sheet : workbook) {
                 for (Row row : sheet) {
@@ -0,0 +1,184 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.util.TokenEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * /api/ask 용 Gemini generateContent 요청 본문을 만든다.
+ *
+ * 입력 토큰을 TokenEstimator로 세어 문서 유형별 상한(docshield.prompt.max-input-tokens) 안에 맞춘다.
+ * 우선순위는 시스템 머리말 → 질문 → 문서 순이라, 넘치면 문서 뒷부분을 잘라 "(…)"로 표시하고
+ * 머리말과 질문만으로 상한을 넘거나 문서 자리가 min-context-tokens보다 작으면 Gemini를 부르지 않고 바로 거절한다.
+ * 본문 JSON의 고정 부분은 미리 직렬화해 둔 바이트(유형별 머리말은 PromptTemplateRegistry)를 이어 붙이고,
+ * 요청마다 이스케이프하는 것은 문서와 질문뿐이다.
+ * 요청별 토큰 수는 docshield.prompt.tokens{type}, Gemini가 알려준 실제 수와의 비율은 docshield.prompt.estimate.ratio 로 남긴다.
+ */
+@Slf4j
+@Service
+public class GeminiPromptBuilder {
+
+    /**
+     * @param body      요청 본문 JSON (UTF-8)
+     * @param tokens    입력 토큰 추정치
+     * @param truncated 문서를 잘랐는지
+     */
+    public record Prompt(byte[] body, int tokens, boolean truncated) {
+    }
+
+    private static final String DOCUMENT_LABEL = "문서(Markdown):\n";
+    private static final String QUESTION_LABEL = "\n\n질문: ";
+    private static final String TRUNCATED_MARK = "\n\n(…)";
+
+    // {"contents":[{"role":"model","parts":[{"text":"<머리말>"}]},{"role":"user","parts":[{"text":"문서(Markdown):\n<문서>\n\n질문: <질문>"}]}]}
+    private static final byte[] OPEN = utf8("{\"contents\":[{\"role\":\"model\",\"parts\":[{\"text\":\"");
+    private static final byte[] MODEL_TO_USER = concat(utf8("\"}]},{\"role\":\"user\",\"parts\":[{\"text\":\""), quote(DOCUMENT_LABEL));
+    private static final byte[] QUESTION = quote(QUESTION_LABEL);
+    private static final byte[] TRUNCATED = quote(TRUNCATED_MARK);
+    private static final byte[] CLOSE = utf8("\"}]}]}");
+    private static final byte[] NOTHING = new byte[0];
+    private static final int LABEL_TOKENS = TokenEstimator.estimate(DOCUMENT_LABEL) + TokenEstimator.estimate(QUESTION_LABEL);
+    private static final int TRUNCATED_TOKENS = TokenEstimator.estimate(TRUNCATED_MARK);
+
+    private final PromptTemplateRegistry templateRegistry;
+    private final int defaultMaxTokens;
+    private final Map<DocumentType, Integer> maxTokens = new EnumMap<>(DocumentType.class);
+    private final int maxQuestionTokens;
+    private final int minContextTokens;
+    private final boolean truncate;
+
+    private final Map<DocumentType, DistributionSummary> tokensByType = new EnumMap<>(DocumentType.class);
+    private final DistributionSummary untypedTokens;
+    private final DistributionSummary estimateRatio;
+    private final Counter truncatedCount;
+    private final Counter rejectedCount;
+
+    public GeminiPromptBuilder(PromptTemplateRegistry templateRegistry,
+                               MeterRegistry meterRegistry,
+                               @Value("${docshield.prompt.max-input-tokens:32000}") int defaultMaxTokens,
+                               @Value("${docshield.prompt.max-input-tokens-by-type:}") String maxTokensByType,
+                               @Value("${docshield.prompt.max-question-tokens:2000}") int maxQuestionTokens,
+                               @Value("${docshield.prompt.min-context-tokens:500}") int minContextTokens,
+                               @Value("${docshield.prompt.truncate:true}") boolean truncate) {
+        this.templateRegistry = templateRegistry;
+        this.defaultMaxTokens = defaultMaxTokens;
+        this.maxQuestionTokens = maxQuestionTokens;
+        this.minContextTokens = minContextTokens;
+        this.truncate = truncate;
+
+        // HR_INFO=20000,TECH_INFO=60000
+        for (String entry : maxTokensByType.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] kv = entry.split("=", 2);
+            maxTokens.put(DocumentType.valueOf(kv[0].strip()), Integer.parseInt(kv[1].strip()));
+        }
+
+        for (DocumentType type : DocumentType.values()) {
+            tokensByType.put(type, DistributionSummary.builder("docshield.prompt.tokens")
+                    .tag("type", type.name()).register(meterRegistry));
+        }
+        this.untypedTokens = DistributionSummary.builder("docshield.prompt.tokens")
+                .tag("type", "NONE").register(meterRegistry);
+        this.estimateRatio = DistributionSummary.builder("docshield.prompt.estimate.ratio")
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.truncatedCount = meterRegistry.counter("docshield.prompt.requests", "outcome", "truncated");
+        this.rejectedCount = meterRegistry.counter("docshield.prompt.requests", "outcome", "rejected");
+    }
+
+    public int maxTokens(DocumentType type) {
+        return type == null ? defaultMaxTokens : maxTokens.getOrDefault(type, defaultMaxTokens);
+    }
+
+    /**
+     * 문서와 질문으로 요청 본문을 만든다.
+     *
+     * @throws PromptTooLargeException 질문이 너무 길거나, 문서를 자르지 않는 설정에서 상한을 넘을 때
+     */
+    public Prompt build(String markdownDoc, String question, DocumentType type) {
+        PromptTemplateRegistry.Template template = templateRegistry.get(type);
+        String document = markdownDoc == null ? "" : markdownDoc;
+        int limit = maxTokens(type);
+
+        int questionTokens = TokenEstimator.estimate(question);
+        int fixed = template.prefixTokens() + LABEL_TOKENS + questionTokens;
+        if (questionTokens > maxQuestionTokens) {
+            throw reject("질문이 너무 깁니다.", questionTokens, maxQuestionTokens);
+        }
+        int room = limit - fixed;
+        if (room < minContextTokens) {
+            throw reject("문서 유형 " + type + "의 입력 토큰 상한이 머리말과 질문만으로 가득 찹니다.", fixed + minContextTokens, limit);
+        }
+
+        int documentTokens = TokenEstimator.estimate(document);
+        boolean truncated = false;
+        if (documentTokens > room) {
+            if (!truncate) {
+                throw reject("문서가 입력 토큰 상한을 넘습니다.", fixed + documentTokens, limit);
+            }
+            document = document.substring(0, cutPoint(document, room - TRUNCATED_TOKENS));
+            int kept = TokenEstimator.estimate(document) + TRUNCATED_TOKENS;
+            log.info("✂️ 프롬프트 토큰 상한 초과 — 문서 뒷부분을 잘라 보냄 ({}, 문서 토큰 {} → {})", type, documentTokens, kept);
+            documentTokens = kept;
+            truncated = true;
+            truncatedCount.increment();
+        }
+
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        byte[] body = concat(OPEN, template.prefixJson(), MODEL_TO_USER, encoder.quoteAsUTF8(document),
+                truncated ? TRUNCATED : NOTHING, QUESTION, encoder.quoteAsUTF8(question), CLOSE);
+
+        int tokens = fixed + documentTokens;
+        (type == null ? untypedTokens : tokensByType.get(type)).record(tokens);
+        return new Prompt(body, tokens, truncated);
+    }
+
+    /** Gemini 응답의 usageMetadata.promptTokenCount로 추정치가 얼마나 맞았는지 남긴다. */
+    public void recordReported(Prompt prompt, int reportedTokens) {
+        if (reportedTokens > 0) estimateRatio.record((double) prompt.tokens() / reportedTokens);
+    }
+
+    // 토큰 예산 안에서 가장 긴 앞부분을 구하고, 가능하면 문단 → 줄 경계까지 물린다. (앞쪽 절반보다 뒤에서만)
+    private static int cutPoint(String document, int budget) {
+        int cut = TokenEstimator.prefixLength(document, budget);
+        int paragraph = document.lastIndexOf("\n\n", cut);
+        if (paragraph > cut / 2) return paragraph;
+        int line = document.lastIndexOf('\n', cut);
+        if (line > cut / 2) return line;
+        return cut;
+    }
+
+    private PromptTooLargeException reject(String message, int tokens, int limit) {
+        rejectedCount.increment();
+        return new PromptTooLargeException(message, tokens, limit);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] quote(String s) {
+        return JsonStringEncoder.getInstance().quoteAsUTF8(s);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) length += part.length;
+        byte[] out = new byte[length];
+        int pos = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, out, pos, part.length);
+            pos += part.length;
+        }
+        return out;
+    }
+}
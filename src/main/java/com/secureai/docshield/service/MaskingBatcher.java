@@ -0,0 +1,239 @@
+package com.secureai.docshield.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Python 서버 마스킹 요청을 작은 묶음(micro-batch)으로 모아 POST /process/batch 한 번으로 보낸다.
+ *
+ * 여러 업로드의 청크가 동시에 들어오면 로컬 LLM이 한 번에 하나씩 처리하는 대신 GPU/CPU 배치로 함께 처리할 수 있다.
+ * 호출 스레드는 지금처럼 결과를 기다리고, 디스패처 스레드 하나가 큐에서 요청을 모아
+ * 묶음 크기(batch-size)나 글자 수(max-batch-chars)가 차거나 linger가 지나면 보낸 뒤 결과를 요청별로 돌려준다.
+ *
+ * 묶음 크기는 AIMD로 맞춘다. 묶음 응답이 target-latency 안에 오고 묶음이 꽉 찼으면 1씩 늘리고, 넘으면 절반으로 줄인다.
+ * linger는 최근 요청 도착 간격(EWMA)으로 묶음 하나를 채우는 데 걸릴 시간이며 max-linger를 넘지 않는다.
+ * 요청이 드문드문 오면 거의 기다리지 않고 바로 보낸다.
+ * 서버가 /process/batch를 모르면(404/405) 일괄 전송을 끄고 건별 /process로 돌아간다.
+ * 호출 스레드는 Python read-timeout + wait-grace까지만 기다리고, 그 안에 결과가 없으면 그 청크를 실패시킨다.
+ *
+ * 지표: docshield.python.batch.size, docshield.python.batch.latency, docshield.python.batch.target-size, docshield.python.batch.linger
+ */
+@Slf4j
+@Service
+public class MaskingBatcher {
+
+    private record Pending(String content, CompletableFuture<String> result, long enqueuedAt) {
+    }
+
+    private final PythonApiClient client;
+    private final ExecutorService sender;
+    private final Semaphore inFlightBatches;
+    private final int maxBatch;
+    private final int maxBatchChars;
+    private final long maxLingerNanos;
+    private final long targetLatencyNanos;
+    private final long waitNanos;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private volatile boolean enabled;
+
+    // 적응형 상태 — batchSize와 lingerNanos는 adapt()만 쓰고, 도착 간격은 디스패처 스레드만 쓴다.
+    private volatile int batchSize = 1;
+    private volatile long lingerNanos;
+    private volatile double gapNanos = -1;
+    private long lastArrival;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+    private Thread dispatcher;
+
+    public MaskingBatcher(PythonApiClient client,
+                         @Qualifier("maskBatchExecutor") ExecutorService sender,
+                         MeterRegistry meterRegistry,
+                         @Value("${docshield.python.batch.enabled:false}") boolean enabled,
+                         @Value("${docshield.python.batch.max-size:16}") int maxBatch,
+                         @Value("${docshield.python.batch.max-chars:65536}") int maxBatchChars,
+                         @Value("${docshield.python.batch.max-linger:PT0.02S}") Duration maxLinger,
+                         @Value("${docshield.python.batch.target-latency:PT3S}") Duration targetLatency,
+                         @Value("${docshield.python.batch.max-in-flight:4}") int maxInFlight,
+                         @Value("${docshield.http.python.read-timeout:PT120S}") Duration readTimeout,
+                         @Value("${docshield.python.batch.wait-grace:PT30S}") Duration waitGrace) {
+        this.client = client;
+        this.sender = sender;
+        this.inFlightBatches = new Semaphore(maxInFlight);
+        this.enabled = enabled;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxBatchChars = maxBatchChars;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.targetLatencyNanos = targetLatency.toNanos();
+        // 묶음이 모이는 시간 + 한 번의 응답(read-timeout) + 재시도/격벽 대기 여유
+        this.waitNanos = maxLinger.plus(readTimeout).plus(waitGrace).toNanos();
+
+        this.batchSizes = DistributionSummary.builder("docshield.python.batch.size").register(meterRegistry);
+        this.batchLatency = Timer.builder("docshield.python.batch.latency")
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        meterRegistry.gauge("docshield.python.batch.target-size", this, b -> b.batchSize);
+        meterRegistry.gauge("docshield.python.batch.linger", this, b -> b.lingerNanos / 1e6);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        dispatcher = new Thread(this::dispatchLoop, "mask-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) dispatcher.interrupt();
+        Pending p;
+        while ((p = queue.poll()) != null) p.result().cancel(false);
+    }
+
+    /** PythonApiClient.sendToPython과 같은 결과. 일괄 전송이 꺼져 있으면 그대로 건별로 보낸다. */
+    public String mask(String content) {
+        if (!enabled) return client.sendToPython(content);
+
+        Pending pending = new Pending(content, new CompletableFuture<>(), System.nanoTime());
+        queue.add(pending);
+        try {
+            return pending.result().get(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // 아직 보내지 않았으면 묶음에서 빠지고, 이미 보냈으면 늦게 온 결과는 버린다.
+            pending.result().cancel(false);
+            throw new UpstreamUnavailableException("python", "마스킹 응답을 "
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms 안에 받지 못했습니다.", Duration.ZERO);
+        } catch (InterruptedException e) {
+            // 업로드가 취소됨 — 아직 보내지 않았으면 묶음에서 빠진다.
+            pending.result().cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("마스킹 대기가 중단되었습니다.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Pending first = queue.take();
+                if (!enabled) {
+                    // 일괄 전송을 끈 뒤에 들어와 있던 요청은 건별로 보낸다.
+                    sender.execute(() -> sendOne(first));
+                    continue;
+                }
+                List<Pending> batch = new ArrayList<>(batchSize);
+                int chars = add(batch, first);
+
+                long until = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize && chars < maxBatchChars) {
+                    long left = until - System.nanoTime();
+                    Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    chars += add(batch, next);
+                }
+
+                batch.removeIf(p -> p.result().isDone());
+                if (batch.isEmpty()) continue;
+                // 보낼 자리를 기다리는 동안 쌓인 요청은 다음 묶음에 들어간다.
+                inFlightBatches.acquire();
+                sender.execute(() -> {
+                    try {
+                        send(batch);
+                    } finally {
+                        inFlightBatches.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            // 종료
+        }
+    }
+
+    // 묶음에 넣고 도착 간격 EWMA를 갱신한다. (디스패처 스레드 전용)
+    private int add(List<Pending> batch, Pending p) {
+        if (lastArrival != 0) {
+            double gap = Math.max(0, p.enqueuedAt() - lastArrival);
+            gapNanos = gapNanos < 0 ? gap : gapNanos * 0.8 + gap * 0.2;
+        }
+        lastArrival = Math.max(lastArrival, p.enqueuedAt());
+        batch.add(p);
+        return p.content().length();
+    }
+
+    private void send(List<Pending> batch) {
+        long start = System.nanoTime();
+        try {
+            if (batch.size() == 1) {
+                batch.get(0).result().complete(client.sendToPython(batch.get(0).content()));
+            } else {
+                List<String> results = client.sendBatch(batch.stream().map(Pending::content).toList());
+                for (int i = 0; i < batch.size(); i++) batch.get(i).result().complete(results.get(i));
+            }
+            long elapsed = System.nanoTime() - start;
+            batchSizes.record(batch.size());
+            batchLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            adapt(batch.size(), elapsed);
+        } catch (HttpClientErrorException e) {
+            if (batch.size() > 1 && (e.getStatusCode().value() == 404 || e.getStatusCode().value() == 405)) {
+                if (enabled) {
+                    enabled = false;
+                    log.warn("⚠️ Python 서버가 /process/batch를 지원하지 않습니다 — 건별 전송으로 돌아갑니다.");
+                }
+                batch.forEach(p -> sender.execute(() -> sendOne(p)));
+                return;
+            }
+            batch.forEach(p -> p.result().completeExceptionally(e));
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().completeExceptionally(e));
+            adapt(batch.size(), System.nanoTime() - start);
+        }
+    }
+
+    private void sendOne(Pending p) {
+        try {
+            p.result().complete(client.sendToPython(p.content()));
+        } catch (RuntimeException e) {
+            p.result().completeExceptionally(e);
+        }
+    }
+
+    // AIMD: 목표 지연 안이면서 꽉 찬 묶음이면 +1, 목표를 넘으면 절반.
+    private synchronized void adapt(int size, long elapsedNanos) {
+        int next = batchSize;
+        if (elapsedNanos > targetLatencyNanos) {
+            next = Math.max(1, batchSize / 2);
+        } else if (size >= batchSize) {
+            next = Math.min(maxBatch, batchSize + 1);
+        }
+        batchSize = next;
+        // 지금 도착 속도로 묶음 하나를 채우는 시간만큼만 기다린다.
+        double gap = gapNanos;
+        lingerNanos = next == 1 || gap < 0 ? 0 : Math.min(maxLingerNanos, (long) (gap * (next - 1)));
+    }
+}
@@ -0,0 +1,169 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 추출 텍스트 해시(SHA-256) → 이미 마스킹된 문서 조회.
+ *
+ * 메모리 계층(해시 → 문서 id, LRU)을 먼저 보고, 없으면 content_hash 인덱스로 DB를 찾는다.
+ * 메모리에는 id만 두고 마스킹 결과 본문은 PK 조회로 가져온다.
+ * 같은 해시의 문서가 동시에 올라오면 먼저 온 업로드만 마스킹하고 나머지는 그 결과를 기다린다. (lookupOrClaim)
+ */
+@Service
+public class MaskingCacheService {
+
+    /**
+     * @param cached 재사용할 마스킹 완료 문서
+     * @param owner  호출자가 이 해시의 마스킹을 맡았다. 끝나면 remember, 실패하면 release를 불러야 한다.
+     */
+    public record Lookup(Optional<DocumentResult> cached, boolean owner) {
+    }
+
+    private final DocumentResultRepository repository;
+    private final Map<String, String> recent;
+    // 해시 → 마스킹 중인 업로드가 끝나면 완료되는 future (값은 문서 id, 실패하면 null)
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+
+    private final Counter memoryHits;
+    private final Counter dbHits;
+    private final Counter misses;
+    private final Counter joined;
+    private final Counter savedRoundTrips;
+
+    public MaskingCacheService(DocumentResultRepository repository,
+                               MeterRegistry meterRegistry,
+                               @Value("${docshield.mask-cache.enabled:true}") boolean enabled,
+                               @Value("${docshield.mask-cache.max-entries:10000}") int maxEntries) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.recent = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.memoryHits = meterRegistry.counter("docshield.mask.cache.lookups", "result", "hit-memory");
+        this.dbHits = meterRegistry.counter("docshield.mask.cache.lookups", "result", "hit-db");
+        this.misses = meterRegistry.counter("docshield.mask.cache.lookups", "result", "miss");
+        this.joined = meterRegistry.counter("docshield.mask.cache.lookups", "result", "joined-in-flight");
+        this.savedRoundTrips = meterRegistry.counter("docshield.mask.cache.saved.requests");
+        meterRegistry.gauge("docshield.mask.cache.entries", recent, this::size);
+    }
+
+    public Optional<DocumentResult> lookup(String contentHash) {
+        if (!enabled) return Optional.empty();
+
+        String docId;
+        synchronized (recent) {
+            docId = recent.get(contentHash);
+        }
+        if (docId != null) {
+            Optional<DocumentResult> cached = repository.findById(docId).filter(DocumentResult::isCompleted);
+            if (cached.isPresent()) {
+                memoryHits.increment();
+                return cached;
+            }
+            synchronized (recent) {
+                recent.remove(contentHash);
+            }
+        }
+
+        Optional<DocumentResult> stored = repository.findFirstByContentHashAndStatus(contentHash, ProcessingStatus.COMPLETED);
+        if (stored.isPresent()) {
+            dbHits.increment();
+            remember(contentHash, stored.get().getId());
+        } else {
+            misses.increment();
+        }
+        return stored;
+    }
+
+    /**
+     * 캐시를 찾고, 없으면 이 해시를 마스킹 중인 다른 업로드가 있는지 본다.
+     * 없으면 호출자가 주인(owner)이 되고, 있으면 그 업로드가 끝날 때까지 기다렸다가 결과 문서를 돌려준다.
+     * (주인이 실패했으면 빈 결과 — 호출자가 직접 마스킹한다)
+     */
+    public Lookup lookupOrClaim(String contentHash) throws InterruptedException {
+        Optional<DocumentResult> cached = lookup(contentHash);
+        if (cached.isPresent() || !enabled) return new Lookup(cached, false);
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> owner = inFlight.putIfAbsent(contentHash, mine);
+        if (owner == null) {
+            // 조회와 등록 사이에 끝난 업로드가 있으면 (remember는 recent에 먼저 넣는다) 그 결과를 쓴다.
+            String done;
+            synchronized (recent) {
+                done = recent.get(contentHash);
+            }
+            if (done == null) return new Lookup(Optional.empty(), true);
+            inFlight.remove(contentHash, mine);
+            mine.complete(done);
+            return new Lookup(completed(done), false);
+        }
+
+        joined.increment();
+        String docId;
+        try {
+            docId = owner.get();
+        } catch (ExecutionException e) {
+            docId = null;
+        }
+        return new Lookup(completed(docId), false);
+    }
+
+    public void remember(String contentHash, String docId) {
+        if (!enabled || contentHash == null) return;
+        synchronized (recent) {
+            recent.put(contentHash, docId);
+        }
+        CompletableFuture<String> waiting = inFlight.remove(contentHash);
+        if (waiting != null) waiting.complete(docId);
+    }
+
+    /** 저장하지 못하고 지운 문서를 메모리 계층에서 뺀다. */
+    public void forget(String docId) {
+        synchronized (recent) {
+            recent.values().removeIf(docId::equals);
+        }
+    }
+
+    /** lookupOrClaim으로 맡은 마스킹이 실패했을 때 — 기다리던 업로드는 각자 마스킹한다. */
+    public void release(String contentHash) {
+        CompletableFuture<String> waiting = inFlight.remove(contentHash);
+        if (waiting != null) waiting.complete(null);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 캐시 적중으로 Python 서버에 보내지 않은 청크 요청 수 */
+    public void recordSaved(int requests) {
+        savedRoundTrips.increment(requests);
+    }
+
+    private Optional<DocumentResult> completed(String docId) {
+        return docId == null ? Optional.empty() : repository.findById(docId).filter(DocumentResult::isCompleted);
+    }
+
+    private double size(Map<String, String> map) {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.dto.AskMetrics;
+import com.secureai.docshield.dto.GenericAiResponse;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 여러 문서에 대한 질문 (map-reduce).
+ *
+ * 1) 요청한 문서를 findAllById 한 번으로 읽고
+ * 2) 문서마다 Gemini에 같은 질문을 동시에 보내 부분 답변을 받은 뒤 (map, 문서별 답변 캐시 사용)
+ * 3) 부분 답변이 둘 이상이면 한 번 더 호출해 하나의 답변으로 합친다. (reduce)
+ *
+ * 문서별 질의는 다른 스레드에서 돌므로 요청의 관측을 부모로 넘겨 docshield.ask.document span이 같은 트레이스에 붙게 한다.
+ * 동시 호출 자리를 기다리는 시간도 요청 전체의 마감(fanout-timeout) 안에서만 기다린다.
+ * 문서별 연관도(색인이 없으면 만든다)도 요청 스레드가 아니라 문서별 작업 안에서 계산한다.
+ */
+@Slf4j
+@Service
+public class MultiAskService {
+
+    // latencyMs: 요청 시작부터 이 문서의 결과가 정해질 때까지 잰 시간
+    private record Partial(DocumentResult doc, String answer, String status, long latencyMs, double relevance) {
+    }
+
+    private final DocumentResultRepository repository;
+    private final AiPromptService aiPromptService;
+    private final AnswerCacheService answerCacheService;
+    private final RetrievalService retrievalService;
+    private final ExecutorService askFanoutExecutor;
+    private final ObservationRegistry observationRegistry;
+    private final int parallelism;
+    private final Duration timeout;
+
+    public MultiAskService(DocumentResultRepository repository,
+                           AiPromptService aiPromptService,
+                           AnswerCacheService answerCacheService,
+                           RetrievalService retrievalService,
+                           @Qualifier("askFanoutExecutor") ExecutorService askFanoutExecutor,
+                           ObservationRegistry observationRegistry,
+                           @Value("${docshield.ask.fanout-parallelism:4}") int parallelism,
+                           @Value("${docshield.ask.fanout-timeout:PT90S}") Duration timeout) {
+        this.repository = repository;
+        this.aiPromptService = aiPromptService;
+        this.answerCacheService = answerCacheService;
+        this.retrievalService = retrievalService;
+        this.askFanoutExecutor = askFanoutExecutor;
+        this.observationRegistry = observationRegistry;
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+    }
+
+    public GenericAiResponse ask(List<String> docIds, String question) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+
+        // 1️⃣ 한 번의 쿼리로 문서를 읽고 요청 순서대로 정렬
+        Map<String, DocumentResult> byId = new HashMap<>();
+        repository.findAllById(docIds).forEach(doc -> byId.put(doc.getId(), doc));
+        List<DocumentResult> docs = docIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+
+        // 2️⃣ map — 문서별 부분 답변 (요청당 동시 호출은 parallelism개까지)
+        Observation parent = observationRegistry.getCurrentObservation();
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<Partial>> futures = new ArrayList<>();
+        try {
+            for (DocumentResult doc : docs) {
+                if (!doc.isCompleted()) {
+                    futures.add(CompletableFuture.completedFuture(new Partial(doc, null, "SKIPPED", 0, 0)));
+                    continue;
+                }
+                // 자리가 나기 전에 마감이 지나면 호출하지 않고 TIMEOUT으로 남긴다.
+                if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    futures.add(CompletableFuture.completedFuture(new Partial(doc, null, "TIMEOUT", elapsedMs(start), 0)));
+                    continue;
+                }
+                futures.add(askFanoutExecutor.submit(() -> {
+                    try {
+                        // 문서별 Gemini 호출(재시도 포함)도 요청 전체의 마감을 넘기지 않는다.
+                        return Observation.createNotStarted("docshield.ask.document", observationRegistry)
+                                .parentObservation(parent)
+                                .highCardinalityKeyValue("doc.id", doc.getId())
+                                .observe(() -> UpstreamGuard.withDeadline(deadline, () -> answerOne(doc, question, start)));
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+
+        List<Partial> partials = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            partials.add(collect(futures.get(i), docs.get(i), start, deadline));
+        }
+
+        // 3️⃣ reduce — 답변이 하나뿐이면 그대로, 여럿이면 합친다.
+        List<Partial> answered = partials.stream().filter(p -> p.status().equals("ANSWERED")).toList();
+        String markdown;
+        if (answered.isEmpty()) {
+            markdown = "❌ 답변할 수 있는 문서가 없습니다. (처리 중이거나 호출에 실패했습니다)";
+        } else if (answered.size() == 1) {
+            markdown = answered.get(0).answer();
+        } else {
+            markdown = aiPromptService.mergeAnswers(question,
+                    answered.stream().map(p -> p.doc().getFileName()).toList(),
+                    answered.stream().map(Partial::answer).toList());
+        }
+
+        long latencyMs = elapsedMs(start);
+        log.info("🧩 멀티 문서 질의 완료: {}/{}개 문서, {}ms", answered.size(), docIds.size(), latencyMs);
+        List<String> missing = docIds.stream().filter(id -> !byId.containsKey(id)).toList();
+        return new GenericAiResponse(markdown, metrics(partials, answered, missing, latencyMs));
+    }
+
+    private Partial answerOne(DocumentResult doc, String question, long start) {
+        String answer = answerCacheService.answer(doc, question,
+                () -> aiPromptService.askGemini(retrievalService.contextFor(doc, question), question, doc.getType()));
+        long ms = elapsedMs(start);
+        double relevance = retrievalService.relevance(doc, question);
+        return new Partial(doc, answer, AiPromptService.isError(answer) ? "FAILED" : "ANSWERED", ms, relevance);
+    }
+
+    private Partial collect(Future<Partial> future, DocumentResult doc, long start, long deadline) throws InterruptedException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return new Partial(doc, null, "TIMEOUT", elapsedMs(start), 0);
+        } catch (ExecutionException e) {
+            log.warn("❌ 문서별 질의 실패 ({}): {}", doc.getId(), e.getCause().getMessage());
+            String status = e.getCause() instanceof PromptTooLargeException ? "TOO_LARGE"
+                    : e.getCause() instanceof UpstreamUnavailableException ? "UNAVAILABLE" : "FAILED";
+            return new Partial(doc, null, status, elapsedMs(start), 0);
+        }
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private AskMetrics metrics(List<Partial> partials, List<Partial> answered, List<String> missing, long latencyMs) {
+        List<AskMetrics.DocumentTiming> timings = new ArrayList<>();
+        double relevanceSum = 0;
+        for (Partial p : partials) {
+            if (p.status().equals("ANSWERED")) relevanceSum += p.relevance();
+            timings.add(new AskMetrics.DocumentTiming(p.doc().getId(), p.doc().getFileName(), p.doc().getType(),
+                    p.status(), p.latencyMs(), p.relevance()));
+        }
+        missing.forEach(id -> timings.add(new AskMetrics.DocumentTiming(id, null, null, "NOT_FOUND", 0, 0)));
+
+        Map<DocumentType, Double> categoryShare = new EnumMap<>(DocumentType.class);
+        for (Partial p : answered) {
+            if (p.doc().getType() == null) continue;
+            categoryShare.merge(p.doc().getType(), 1.0 / answered.size(), Double::sum);
+        }
+
+        return new AskMetrics(
+                answered.isEmpty() ? null : relevanceSum / answered.size(),
+                answered.stream().map(p -> p.doc().getId()).toList(),
+                categoryShare,
+                latencyMs,
+                timings);
+    }
+}
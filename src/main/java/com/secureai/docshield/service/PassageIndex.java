@@ -0,0 +1,188 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.util.KoreanTokenizer;
+import com.secureai.docshield.util.TokenEstimator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.*;
+
+/**
+ * 문서 하나의 마스킹 결과를 단락(passage) 단위로 나눈 BM25 역색인.
+ *
+ * 한 번 만들면 바뀌지 않으므로 여러 스레드가 동시에 {@link #score}를 불러도 된다.
+ * embeddingDim > 0 이면 단락마다 해시 기반 bag-of-words 벡터를 direct 버퍼(힙 밖)에 함께 둬서
+ * BM25 점수와 코사인 유사도를 섞어 쓸 수 있다.
+ */
+public final class PassageIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final List<String> passages;
+    private final int[] tokenCounts;      // 단락별 LLM 토큰 추정치
+    private final int[] lengths;          // 단락별 검색 토큰 수
+    private final double avgLength;
+    private final Map<String, int[]> postings;  // term → [passage, tf, passage, tf, ...]
+    private final int totalTokens;
+    private final int dim;
+    private final FloatBuffer vectors;
+
+    private PassageIndex(List<String> passages, int embeddingDim) {
+        this.passages = List.copyOf(passages);
+        int n = passages.size();
+        this.tokenCounts = new int[n];
+        this.lengths = new int[n];
+        this.dim = embeddingDim;
+        this.vectors = embeddingDim > 0
+                ? ByteBuffer.allocateDirect(n * embeddingDim * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer()
+                : null;
+
+        Map<String, Postings> building = new HashMap<>();
+        long lengthSum = 0;
+        int total = 0;
+        for (int p = 0; p < n; p++) {
+            String passage = passages.get(p);
+            tokenCounts[p] = TokenEstimator.estimate(passage);
+            total += tokenCounts[p];
+
+            Map<String, Integer> tf = termFrequencies(passage);
+            int length = 0;
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                building.computeIfAbsent(e.getKey(), k -> new Postings()).add(p, e.getValue());
+                length += e.getValue();
+            }
+            lengths[p] = length;
+            lengthSum += length;
+            if (vectors != null) vectors.put(p * dim, embed(tf, dim));
+        }
+        this.totalTokens = total;
+        this.avgLength = n == 0 ? 0 : Math.max(1.0, (double) lengthSum / n);
+
+        Map<String, int[]> frozen = new HashMap<>(building.size() * 4 / 3 + 1);
+        building.forEach((term, postings) -> frozen.put(term, postings.toArray()));
+        this.postings = frozen;
+    }
+
+    /** markdown을 최대 passageChars 글자 단락으로 잘라 색인한다. (줄 경계 우선, 공백뿐인 단락은 제외) */
+    public static PassageIndex build(String markdown, int passageChars, int embeddingDim) {
+        List<String> passages = new ArrayList<>();
+        ChunkingTextSink sink = new ChunkingTextSink(passageChars, (seq, text) -> {
+            if (!text.isBlank()) passages.add(text);
+        });
+        try {
+            sink.write(markdown == null ? "" : markdown);
+            sink.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new PassageIndex(passages, embeddingDim);
+    }
+
+    public int size() {
+        return passages.size();
+    }
+
+    public String passage(int i) {
+        return passages.get(i);
+    }
+
+    public int tokens(int i) {
+        return tokenCounts[i];
+    }
+
+    public int totalTokens() {
+        return totalTokens;
+    }
+
+    /** 질문의 (중복 제거한) 검색 토큰 중 문서에 한 번이라도 나오는 비율 (0~1) */
+    public double coverage(String query) {
+        Set<String> terms = new HashSet<>(KoreanTokenizer.tokenize(query));
+        if (terms.isEmpty()) return 0;
+        long found = terms.stream().filter(postings::containsKey).count();
+        return (double) found / terms.size();
+    }
+
+    /**
+     * 단락별 관련도 점수. BM25를 최댓값으로 나눠 0~1로 맞춘 뒤,
+     * 벡터가 있으면 embeddingWeight 비율만큼 코사인 유사도를 섞는다.
+     */
+    public double[] score(String query, double embeddingWeight) {
+        int n = passages.size();
+        double[] bm25 = new double[n];
+        Map<String, Integer> queryTf = termFrequencies(query);
+
+        for (String term : queryTf.keySet()) {
+            int[] list = postings.get(term);
+            if (list == null) continue;
+            int df = list.length / 2;
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < list.length; i += 2) {
+                int p = list[i];
+                int tf = list[i + 1];
+                double norm = K1 * (1 - B + B * lengths[p] / avgLength);
+                bm25[p] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        double max = 0;
+        for (double s : bm25) max = Math.max(max, s);
+        double w = vectors == null ? 0 : embeddingWeight;
+        float[] q = w > 0 ? embed(queryTf, dim) : null;
+
+        double[] scores = new double[n];
+        for (int p = 0; p < n; p++) {
+            double lexical = max > 0 ? bm25[p] / max : 0;
+            scores[p] = (1 - w) * lexical + (q == null ? 0 : w * Math.max(0, dot(q, p)));
+        }
+        return scores;
+    }
+
+    private double dot(float[] q, int passage) {
+        int base = passage * dim;
+        double sum = 0;
+        for (int i = 0; i < dim; i++) sum += q[i] * vectors.get(base + i);
+        return sum;
+    }
+
+    private static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> tf = new HashMap<>();
+        KoreanTokenizer.tokenize(text, token -> tf.merge(token, 1, Integer::sum));
+        return tf;
+    }
+
+    // feature hashing: 토큰을 dim 칸 중 하나에 부호와 함께 더하고 L2 정규화
+    private static float[] embed(Map<String, Integer> tf, int dim) {
+        float[] v = new float[dim];
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            int h = e.getKey().hashCode() * 0x9E3779B9;
+            int slot = (h >>> 1) % dim;
+            v[slot] += ((h & 1) == 0 ? 1f : -1f) * (float) (1 + Math.log(e.getValue()));
+        }
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        if (norm > 0) {
+            float inv = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dim; i++) v[i] *= inv;
+        }
+        return v;
+    }
+
+    private static final class Postings {
+        private int[] data = new int[4];
+        private int size;
+
+        void add(int passage, int tf) {
+            if (size + 2 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            data[size++] = passage;
+            data[size++] = tf;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.util.AhoCorasick;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 형식이 정해진 개인정보(주민등록번호, 전화번호, 이메일, 카드/계좌번호)와 사전 단어를 JVM 안에서 한 번에 가린다.
+ * 번호는 '-'로 나뉜 것, 공백으로 나뉜 것, 구분자 없이 붙여 쓴 것을 모두 본다.
+ *
+ * 입력을 앞에서부터 한 번만 읽는다. 숫자열과 이메일은 정규식 대신 손으로 짠 상태 기계로,
+ * 사전 단어는 Aho-Corasick으로 찾는다. 결과는 호출자가 준 StringBuilder에 쓰고 매칭 중에는 객체를 만들지 않는다.
+ * 이름이나 주소처럼 형식이 없는 정보는 여기서 가릴 수 없으므로, 그런 항목을 가리키는 단서 단어(성명, 주소 …)를 센다.
+ * 만든 뒤에는 불변이라 여러 스레드가 함께 쓴다.
+ */
+public final class PiiMasker {
+
+    public static final String MASK = "[MASKED]";
+
+    private static final int MASK_TERM = 0;
+    private static final int CUE_TERM = 1;
+
+    /**
+     * 한 번 가린 결과.
+     *
+     * @param masked  가린 항목 수
+     * @param cues    형식 없는 개인정보를 가리키는 단서 단어 수
+     * @param letters 가리지 않고 남긴 글자 중 문자(한글/영문 등) 수
+     * @param visible 가리지 않고 남긴 공백 아닌 글자 수
+     */
+    public record Result(int masked, int cues, int letters, int visible) {
+
+        /** 공백 아닌 글자 중 문자의 비율 (숫자/기호 위주의 표일수록 낮다) */
+        public double letterRatio() {
+            return visible == 0 ? 0 : (double) letters / visible;
+        }
+    }
+
+    private final AhoCorasick dictionary;
+
+    /**
+     * @param maskTerms 그대로 가릴 단어 (사내 프로젝트명 등)
+     * @param cueTerms  LLM이 봐야 하는 항목을 가리키는 단서 단어
+     */
+    public PiiMasker(List<String> maskTerms, List<String> cueTerms) {
+        List<String> terms = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        for (String term : maskTerms) {
+            if (term.isBlank()) continue;
+            terms.add(term.strip());
+            kinds.add(MASK_TERM);
+        }
+        for (String term : cueTerms) {
+            if (term.isBlank()) continue;
+            terms.add(term.strip());
+            kinds.add(CUE_TERM);
+        }
+        this.dictionary = new AhoCorasick(terms, kinds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /** text를 가려 out 뒤에 붙인다. */
+    public Result mask(CharSequence text, StringBuilder out) {
+        int masked = 0;
+        int cues = 0;
+        int letters = 0;
+        int visible = 0;
+        // out에서 이 위치 이후는 입력을 그대로 옮긴 글자다. (뒤로 돌아가 가릴 수 있는 범위)
+        int verbatimFrom = out.length();
+        int state = dictionary.start();
+
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+
+            if (isDigit(c) && (i == 0 || !isWordChar(text.charAt(i - 1)))) {
+                int end = matchNumber(text, i);
+                if (end > 0) {
+                    out.append(MASK);
+                    masked++;
+                    verbatimFrom = out.length();
+                    state = dictionary.start();
+                    i = end;
+                    continue;
+                }
+            }
+
+            if (c == '@') {
+                int local = localPartLength(out, verbatimFrom);
+                int end = local > 0 ? matchDomain(text, i + 1) : -1;
+                if (end > 0) {
+                    for (int k = out.length() - local; k < out.length(); k++) {
+                        if (Character.isLetter(out.charAt(k))) letters--;
+                    }
+                    visible -= local;
+                    out.setLength(out.length() - local);
+                    out.append(MASK);
+                    masked++;
+                    verbatimFrom = out.length();
+                    state = dictionary.start();
+                    i = end;
+                    continue;
+                }
+            }
+
+            out.append(c);
+            if (!Character.isWhitespace(c)) {
+                visible++;
+                if (Character.isLetter(c)) letters++;
+            }
+            i++;
+
+            state = dictionary.step(state, c);
+            int length = dictionary.matchLength(state);
+            if (length > 0) {
+                if (dictionary.matchPayload(state) == CUE_TERM) {
+                    cues++;
+                } else if (length <= out.length() - verbatimFrom) {
+                    for (int k = out.length() - length; k < out.length(); k++) {
+                        if (Character.isLetter(out.charAt(k))) letters--;
+                        if (!Character.isWhitespace(out.charAt(k))) visible--;
+                    }
+                    out.setLength(out.length() - length);
+                    out.append(MASK);
+                    masked++;
+                    verbatimFrom = out.length();
+                    state = dictionary.start();
+                }
+            }
+        }
+        return new Result(masked, cues, letters, visible);
+    }
+
+    /**
+     * start에서 시작하는 숫자 묶음이 개인정보 형식이면 끝 위치(다음 글자), 아니면 -1.
+     *
+     * 묶음은 '-'나 공백 하나로 나뉘며 한 번호 안에서는 같은 구분자만 쓴다. 구분자가 없는 번호도 본다.
+     * 주민등록번호 6-7(뒷자리 첫 글자 1~8), 휴대폰/지역번호 0으로 시작하는 2~3-3~4-4, 카드번호 4-4-4-4,
+     * 계좌번호 묶음 3개 이상 숫자 10~14자리(공백으로 나뉜 것은 묶음마다 3자리 이상 — 숫자 표의 한 줄을 잡지 않게).
+     * 구분자가 없으면 0으로 시작하는 02 지역번호 9자리, 10~14자리(전화/주민등록/계좌번호), 16자리(카드번호)를 가린다.
+     * 묶음마다 여기까지가 형식에 맞는지 보고 가장 길게 맞는 곳에서 끊는다. 묶음 길이는 8비트씩 long 하나에 쌓는다.
+     */
+    static int matchNumber(CharSequence text, int start) {
+        int n = text.length();
+        long groups = 0;
+        int count = 0;
+        int digits = 0;
+        int shortest = Integer.MAX_VALUE;
+        char separator = 0;
+        int best = -1;
+        int i = start;
+        while (true) {
+            int runStart = i;
+            while (i < n && isDigit(text.charAt(i))) i++;
+            int run = i - runStart;
+            if (run == 0) break;
+            groups |= (long) Math.min(run, 255) << (8 * count++);
+            digits += run;
+            shortest = Math.min(shortest, run);
+            if ((i == n || !isWordChar(text.charAt(i))) && isPii(text, start, groups, count, digits, shortest, separator)) {
+                best = i;
+            }
+            if (count == 8 || i + 1 >= n || !isDigit(text.charAt(i + 1))) break;
+            char c = text.charAt(i);
+            if ((c != '-' && c != ' ') || (separator != 0 && c != separator)) break;
+            separator = c;
+            i++;
+        }
+        return best;
+    }
+
+    private static boolean isPii(CharSequence text, int start, long groups, int count, int digits, int shortest, char separator) {
+        int g0 = group(groups, 0);
+        int g1 = group(groups, 1);
+        int g2 = group(groups, 2);
+        int g3 = group(groups, 3);
+
+        if (count == 1) {
+            return (digits >= 10 && digits <= 14) || digits == 16
+                    || (digits == 9 && text.charAt(start) == '0' && text.charAt(start + 1) == '2');
+        }
+        // 주민등록번호 / 외국인등록번호
+        if (count == 2 && g0 == 6 && g1 == 7) {
+            char gender = text.charAt(start + 7);
+            return gender >= '1' && gender <= '8';
+        }
+        // 휴대폰 / 유선 전화
+        if (count == 3 && text.charAt(start) == '0' && (g0 == 2 || g0 == 3)
+                && (g1 == 3 || g1 == 4) && g2 == 4) {
+            return true;
+        }
+        // 카드번호
+        if (count == 4 && g0 == 4 && g1 == 4 && g2 == 4 && g3 == 4) return true;
+        // 계좌번호 (날짜 yyyy-mm-dd 등은 자릿수가 모자라 걸리지 않는다)
+        return count >= 3 && digits >= 10 && digits <= 14 && (separator == '-' || shortest >= 3);
+    }
+
+    /** 이미 out에 옮긴 글자 중 '@' 바로 앞의 이메일 local-part 길이 (verbatimFrom 이전은 보지 않는다) */
+    private static int localPartLength(StringBuilder out, int verbatimFrom) {
+        int k = out.length();
+        while (k > verbatimFrom && isLocalChar(out.charAt(k - 1))) k--;
+        return out.length() - k;
+    }
+
+    /** '@' 다음 start부터 도메인(label.label…, 마지막 label은 영문 2자 이상)이면 끝 위치, 아니면 -1 */
+    private static int matchDomain(CharSequence text, int start) {
+        int n = text.length();
+        int i = start;
+        int labels = 0;
+        int lastLabelStart = start;
+        boolean lastLabelAlpha = true;
+        int end = -1;
+        while (i < n) {
+            int labelStart = i;
+            boolean alpha = true;
+            while (i < n && isDomainChar(text.charAt(i))) {
+                if (!isAsciiLetter(text.charAt(i))) alpha = false;
+                i++;
+            }
+            if (i == labelStart) break;
+            labels++;
+            lastLabelStart = labelStart;
+            lastLabelAlpha = alpha;
+            if (labels >= 2 && lastLabelAlpha && i - lastLabelStart >= 2) end = i;
+            if (i + 1 < n && text.charAt(i) == '.' && isDomainChar(text.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private static int group(long groups, int index) {
+        return (int) (groups >>> (8 * index)) & 0xFF;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWordChar(char c) {
+        return isDigit(c) || isAsciiLetter(c);
+    }
+
+    private static boolean isLocalChar(char c) {
+        return isWordChar(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return isWordChar(c) || c == '-';
+    }
+}
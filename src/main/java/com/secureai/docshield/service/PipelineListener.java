@@ -0,0 +1,25 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+
+/**
+ * 업로드 파이프라인 진행 상황 콜백. 파이프라인 작업 스레드에서 호출되므로 구현은 스레드 안전해야 한다.
+ */
+public interface PipelineListener {
+
+    PipelineListener NONE = new PipelineListener() {
+    };
+
+    default void onChunkParsed(int seq) {
+    }
+
+    default void onParsingDone(int totalChunks) {
+    }
+
+    default void onChunkMasked(int seq) {
+    }
+
+    /** 첫 청크를 로컬 분류기로 본 유형. 어림하지 못했으면 null (Python 서버의 유형은 아직 모른다) */
+    default void onTypePredicted(DocumentType type) {
+    }
+}
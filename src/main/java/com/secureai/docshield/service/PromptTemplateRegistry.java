@@ -0,0 +1,184 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.util.FileLoader;
+import com.secureai.docshield.util.TokenEstimator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 문서 유형별 참조 문서(/api/example)와 미리 만들어 둔 Gemini 프롬프트 머리말.
+ *
+ * 기동 시 한 번 읽어 불변 스냅샷으로 들고 있으므로 질의 경로에서는 디스크를 읽지 않는다.
+ * docshield.templates.dir을 주면 그 디렉터리의 같은 이름 파일이 클래스패스 파일보다 우선하고,
+ * 디렉터리가 바뀌면 스냅샷을 통째로 다시 만들어 바꿔 끼운다.
+ * 편집기 저장처럼 이벤트가 몰려 오면 docshield.templates.debounce 동안 조용해질 때까지 모았다가 한 번만 다시 읽는다.
+ */
+@Slf4j
+@Service
+public class PromptTemplateRegistry {
+
+    /**
+     * @param bytes        /api/example 응답 바이트 (파일이 없으면 null)
+     * @param etag         bytes의 ETag (따옴표 포함)
+     * @param promptPrefix Gemini 요청의 model 턴에 들어가는 머리말
+     * @param prefixJson   promptPrefix를 JSON 문자열로 이스케이프한 UTF-8 바이트 (따옴표 제외)
+     * @param prefixTokens promptPrefix의 토큰 추정치
+     */
+    public record Template(byte[] bytes, String etag, String promptPrefix, byte[] prefixJson, int prefixTokens) {
+
+        Template(byte[] bytes, String etag, String promptPrefix) {
+            this(bytes, etag, promptPrefix,
+                    JsonStringEncoder.getInstance().quoteAsUTF8(promptPrefix), TokenEstimator.estimate(promptPrefix));
+        }
+    }
+
+    private static final String PREFIX_FORMAT = """
+        당신은 기업 문서를 분석하는 전문 분석가입니다.
+        문서 유형: %s
+
+        문서는 이미 일부 정보가 마스킹되어 있습니다. 복원은 필요하지 않습니다.
+        사용자의 질문에 따라 문서의 내용, 패턴, 의미를 분석하고 Markdown 형식으로 정리하세요.
+
+        [출력 형식 - Markdown 전용]
+        - 백틱(```)이나 JSON 코드는 사용하지 마세요.
+        - 제목, 요약, 주요 내용, 패턴 및 추가 분석 제안을 구분해서 작성하세요.
+        """;
+
+    // 유형이 정해지지 않은 문서용
+    private static final Template UNKNOWN = new Template(null, null, String.format(PREFIX_FORMAT, "미분류"));
+
+    private final Path overrideDir;
+    private final Duration debounce;
+    private volatile Map<DocumentType, Template> templates;
+    private WatchService watcher;
+
+    public PromptTemplateRegistry(@Value("${docshield.templates.dir:}") String overrideDir,
+                                  @Value("${docshield.templates.debounce:PT0.5S}") Duration debounce) {
+        this.overrideDir = overrideDir.isBlank() ? null : Path.of(overrideDir);
+        this.debounce = debounce;
+        this.templates = load();
+    }
+
+    public Template get(DocumentType type) {
+        return type == null ? UNKNOWN : templates.get(type);
+    }
+
+    /**
+     * If-None-Match 헤더가 etag와 맞는지. 쉼표로 나뉜 태그를 하나씩 정확히 비교하고("*"는 모두와 맞음),
+     * 약한 비교라 W/ 접두어는 떼고 본다.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.strip();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /** 스냅샷을 다시 만든다. (디렉터리 감시가 부르고, 수동으로 불러도 된다) */
+    public void reload() {
+        templates = load();
+        log.info("📄 참조 문서/프롬프트 템플릿을 다시 읽었습니다.");
+    }
+
+    @PostConstruct
+    void watch() {
+        if (overrideDir == null || !Files.isDirectory(overrideDir)) return;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            overrideDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.warn("⚠️ 템플릿 디렉터리 감시 실패: {}", e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(this::watchLoop, "template-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stopWatching() throws IOException {
+        if (watcher != null) watcher.close();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean valid = drain(key);
+                // debounce 동안 새 이벤트가 없을 때까지 모은다.
+                while (valid && (key = watcher.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    valid = drain(key);
+                }
+                reload();
+                if (!valid) return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 종료
+        }
+    }
+
+    private static boolean drain(WatchKey key) {
+        key.pollEvents();
+        return key.reset();
+    }
+
+    private Map<DocumentType, Template> load() {
+        Map<DocumentType, Template> loaded = new EnumMap<>(DocumentType.class);
+        for (DocumentType type : DocumentType.values()) {
+            byte[] bytes = read(type.getReferenceFile());
+            loaded.put(type, new Template(bytes, bytes == null ? null : etag(bytes), String.format(PREFIX_FORMAT, type.name())));
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    // 덮어쓰기 디렉터리 → 클래스패스 순서로 찾는다. 둘 다 없으면 null
+    private byte[] read(String fileName) {
+        if (overrideDir != null) {
+            Path file = overrideDir.resolve(fileName);
+            if (Files.isRegularFile(file)) {
+                try {
+                    return Files.readAllBytes(file);
+                } catch (IOException e) {
+                    log.warn("⚠️ 참조 문서 로드 실패: {} — {}", file, e.getMessage());
+                }
+            }
+        }
+        return FileLoader.loadBytes(fileName);
+    }
+
+    private static String etag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.secureai.docshield.service;
+
+import lombok.Getter;
+
+/**
+ * Gemini를 부르기 전에 입력 토큰 상한을 넘은 요청. (업스트림에서 한참 뒤에 실패하는 대신 바로 거절한다)
+ */
+@Getter
+public class PromptTooLargeException extends RuntimeException {
+
+    private final int tokens;
+    private final int limit;
+
+    public PromptTooLargeException(String message, int tokens, int limit) {
+        super(message + " (토큰 " + tokens + "/" + limit + ")");
+        this.tokens = tokens;
+        this.limit = limit;
+    }
+}
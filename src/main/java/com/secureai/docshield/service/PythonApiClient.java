@@ -1,33 +1,96 @@
 package com.secureai.docshield.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Python 마스킹 서버 클라이언트. 모든 호출은 pythonGuard(격벽/재시도/회로 차단기)를 거치고,
+ * 남은 마감 시간을 X-Request-Timeout-Ms 헤더로 넘겨 서버가 어차피 버려질 작업을 끝까지 하지 않게 한다.
+ * 업로드 파이프라인이 부르는 마스킹 호출은 격벽 자리가 날 때까지 줄을 서고(callQueued), /api/ask의 질의만 자리가 없으면 바로 실패한다.
+ * 응답 본문은 Map으로 풀었다가 다시 직렬화하지 않고 받은 JSON 문자열 그대로 넘긴다. (DTO 바인딩은 ResponseFormatter에서 한 번)
+ */
 @Service
 @RequiredArgsConstructor
 public class PythonApiClient {
 
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Qualifier("pythonGuard")
+    private final UpstreamGuard guard;
+
+    private static final JsonFactory JSON = new JsonFactory();
 
     @Value("${python.server.url}")
     private String pythonServerUrl;
 
     public String sendToPython(String content) {
         Map<String, Object> body = Map.of("content", content);
-        Map<String, Object> response =
-                restTemplate.postForObject(pythonServerUrl + "/process", body, Map.class);
+        // 마스킹은 같은 입력에 같은 결과라 실패하면 다시 보내도 된다.
+        return guard.callQueued(remaining ->
+                restTemplate.postForObject(pythonServerUrl + "/process", entity(body, remaining), String.class));
+    }
 
-        try {
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            throw new RuntimeException("Python 응답 직렬화 실패", e);
+    /**
+     * 여러 내용을 POST /process/batch 한 번으로 마스킹한다. ({"contents": [...]} → {"results": [...]})
+     * 결과는 contents와 같은 순서로, 각각 sendToPython과 같은 JSON 문자열이다.
+     */
+    public List<String> sendBatch(List<String> contents) {
+        Map<String, Object> body = Map.of("contents", contents);
+        String response = guard.callQueued(remaining ->
+                restTemplate.postForObject(pythonServerUrl + "/process/batch", entity(body, remaining), String.class));
+        return splitResults(response, contents.size());
+    }
+
+    /**
+     * {"results": [{...}, ...]} 본문을 한 번 훑어 결과 객체마다 원문 구간을 잘라 낸다. (트리나 Map을 만들지 않는다)
+     * 결과 수가 expected와 다르거나 객체가 아닌 결과가 있으면 IllegalStateException.
+     */
+    static List<String> splitResults(String response, int expected) {
+        List<String> out = new ArrayList<>(expected);
+        boolean found = false;
+        if (response != null) {
+            try (JsonParser p = JSON.createParser(response)) {
+                if (p.nextToken() == JsonToken.START_OBJECT) {
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        boolean results = p.currentName().equals("results");
+                        if (p.nextToken() != JsonToken.START_ARRAY || !results) {
+                            p.skipChildren();
+                            continue;
+                        }
+                        found = true;
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            int from = (int) p.currentTokenLocation().getCharOffset();
+                            p.skipChildren();
+                            out.add(response.substring(from, (int) p.currentLocation().getCharOffset()));
+                        }
+                        if (p.currentToken() != JsonToken.END_ARRAY) found = false;
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Python 일괄 응답 파싱 실패: " + e.getMessage(), e);
+            }
+        }
+        if (!found || out.size() != expected) {
+            throw new IllegalStateException("Python 일괄 응답 형식 오류: 요청 " + expected + "건");
         }
+        return out;
     }
 
     public String sendQuestion(String content, String question, String type) {
@@ -36,7 +99,15 @@ public class PythonApiClient {
                 "question", question,
                 "type", type
         );
-        return restTemplate.postForObject(pythonServerUrl + "/ask", body, String.class);
+        return guard.call(remaining ->
+                restTemplate.postForObject(pythonServerUrl + "/ask", entity(body, remaining), String.class));
+    }
+
+    private static HttpEntity<Map<String, Object>> entity(Map<String, Object> body, Duration remaining) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(TIMEOUT_HEADER, Long.toString(remaining.toMillis()));
+        return new HttpEntity<>(body, headers);
     }
 }
 
@@ -1,22 +1,33 @@
 package com.secureai.docshield.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.*;
 import com.secureai.docshield.dto.*;
+import com.secureai.docshield.util.GeminiJson;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.*;
 
+/**
+ * Python/Gemini 응답을 DTO로 바꾼다. ObjectMapper와 reader는 모든 호출이 공유하고,
+ * JsonNode 트리 없이 JsonParser로 한 번 훑으며 바로 필드를 채운다.
+ */
+@Slf4j
 @Service
 public class ResponseFormatter {
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader PYTHON_READER = MAPPER.readerFor(PythonResponse.class);
 
     // 🧩 Python 서버 응답 파싱
     public PythonResponse parsePythonResponse(String json) {
         try {
-            return mapper.readValue(json, PythonResponse.class);
+            return PYTHON_READER.readValue(json);
         } catch (Exception e) {
-            System.err.println("⚠️ Python 응답 파싱 실패: " + e.getMessage());
+            log.warn("⚠️ Python 응답 파싱 실패: {}", e.getMessage());
             // DTO 구조에 맞게 수정
             return new PythonResponse("Error parsing Python response", null);
         }
@@ -27,46 +38,77 @@ public class ResponseFormatter {
     public ReportResponse parseGeminiJson(String aiResponse) {
         try {
             // ✅ Gemini 기본 구조에서 text 추출
-            JsonNode root = mapper.readTree(aiResponse);
-            String text = root.path("candidates").get(0)
-                    .path("content").path("parts").get(0)
-                    .path("text").asText();
+            String text = GeminiJson.read(aiResponse).text();
 
             // ✅ 백틱(```)이나 코드블록(````json`) 제거
-            String cleaned = text
-                    .replaceAll("(?s)```json", "")
-                    .replaceAll("(?s)```", "")
-                    .replaceAll("(?s)`", "")
-                    .trim();
+            String cleaned = stripFences(text);
 
-            // ✅ 실제 JSON 파싱
-            JsonNode json = mapper.readTree(cleaned);
-
-            // ✅ 기본 필드 매핑
-            String summary = json.path("summary").asText("요약 없음");
-            List<String> risks = jsonToList(json.path("risks"));
-            List<String> recommendations = jsonToList(json.path("recommendations"));
-
-            // ✅ 그 외의 필드들은 extra로 저장
+            // ✅ 실제 JSON 파싱 — 기본 필드 매핑, 그 외의 필드들은 extra로 저장
+            String summary = "요약 없음";
+            List<String> risks = new ArrayList<>();
+            List<String> recommendations = new ArrayList<>();
             Map<String, Object> extra = new HashMap<>();
-            json.fieldNames().forEachRemaining(name -> {
-                if (!Set.of("summary", "risks", "recommendations").contains(name)) {
-                    extra.put(name, json.get(name));
+            try (JsonParser p = MAPPER.createParser(cleaned)) {
+                if (p.nextToken() == JsonToken.START_OBJECT) {
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = p.currentName();
+                        JsonToken value = p.nextToken();
+                        switch (name) {
+                            case "summary" -> summary = value == JsonToken.VALUE_NULL ? "요약 없음" : asText(p);
+                            case "risks" -> risks = readList(p);
+                            case "recommendations" -> recommendations = readList(p);
+                            default -> extra.put(name, MAPPER.readTree(p));
+                        }
+                    }
                 }
-            });
+            }
 
             return new ReportResponse(summary, risks, recommendations, extra);
 
         } catch (Exception e) {
-            System.err.println("❌ Gemini 응답 파싱 실패: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Gemini 응답 파싱 실패: {}", e.getMessage(), e);
             return new ReportResponse("AI 응답 파싱 실패", List.of(), List.of(), Map.of("error", e.getMessage()));
         }
     }
 
-    private List<String> jsonToList(JsonNode node) {
+    /**
+     * ```json 코드블록 표시와 남은 백틱을 한 번 훑어 지운다.
+     * (replaceAll("```json", "") → replaceAll("```", "") → replaceAll("`", "") 와 같은 결과)
+     */
+    static String stripFences(String text) {
+        if (text.indexOf('`') < 0) return text.trim();
+        StringBuilder out = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c != '`') {
+                out.append(c);
+                i++;
+                continue;
+            }
+            int run = i;
+            while (i < text.length() && text.charAt(i) == '`') i++;
+            if (i - run >= 3 && text.startsWith("json", i)) i += 4;
+        }
+        return out.toString().trim();
+    }
+
+    // 배열이 아니면 빈 목록. 항목은 JsonNode.asText()와 같이 문자열로 (객체/배열 항목은 빈 문자열)
+    private static List<String> readList(JsonParser p) throws IOException {
         List<String> list = new ArrayList<>();
-        if (node.isArray()) node.forEach(item -> list.add(item.asText()));
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return list;
+        }
+        while (p.nextToken() != JsonToken.END_ARRAY) list.add(asText(p));
         return list;
     }
+
+    private static String asText(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) return "null";
+        if (token.isScalarValue()) return p.getValueAsString();
+        p.skipChildren();
+        return "";
+    }
 }
@@ -0,0 +1,183 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.dto.PythonResponse;
+import com.secureai.docshield.util.TokenEstimator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * /api/ask 프롬프트에 넣을 문서 내용을 고른다.
+ *
+ * 토큰 예산 안에 들어오는 문서는 지금처럼 통째로 보내고, 큰 문서는 질문과 관련도가 높은
+ * 단락을 최대 top-k개, 예산 안에서만 골라 원래 순서대로 이어 붙인다.
+ * 단락 색인(PassageIndex)은 업로드가 끝날 때 만들어 메모리 LRU에 두고,
+ * 재시작이나 LRU 밀림으로 없으면 저장된 마스킹 결과로 다시 만든다.
+ * 문맥 고르기는 docshield.ask.retrieve 관측(타이머 + 트레이스 span)으로 남는다.
+ */
+@Slf4j
+@Service
+public class RetrievalService {
+
+    private static final String GAP = "\n\n(…)\n\n";
+
+    private final ObjectMapper objectMapper;
+    private final DocumentContentService contentService;
+    private final Map<String, PassageIndex> indexes;
+    private final boolean enabled;
+    private final int passageChars;
+    private final int topK;
+    private final int tokenBudget;
+    private final int embeddingDim;
+    private final double embeddingWeight;
+
+    private final ObservationRegistry observationRegistry;
+    private final DistributionSummary fullTokens;
+    private final DistributionSummary retrievedTokens;
+
+    public RetrievalService(ObjectMapper objectMapper,
+                            DocumentContentService contentService,
+                            MeterRegistry meterRegistry,
+                            ObservationRegistry observationRegistry,
+                            @Value("${docshield.retrieval.enabled:true}") boolean enabled,
+                            @Value("${docshield.retrieval.passage-chars:1200}") int passageChars,
+                            @Value("${docshield.retrieval.top-k:8}") int topK,
+                            @Value("${docshield.retrieval.token-budget:6000}") int tokenBudget,
+                            @Value("${docshield.retrieval.max-indexed-docs:256}") int maxIndexedDocs,
+                            @Value("${docshield.retrieval.embeddings.enabled:false}") boolean embeddings,
+                            @Value("${docshield.retrieval.embeddings.dim:256}") int embeddingDim,
+                            @Value("${docshield.retrieval.embeddings.weight:0.3}") double embeddingWeight) {
+        this.objectMapper = objectMapper;
+        this.contentService = contentService;
+        this.enabled = enabled;
+        this.passageChars = passageChars;
+        this.topK = topK;
+        this.tokenBudget = tokenBudget;
+        this.embeddingDim = embeddings ? embeddingDim : 0;
+        this.embeddingWeight = embeddingWeight;
+        this.observationRegistry = observationRegistry;
+        this.indexes = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PassageIndex> eldest) {
+                return size() > maxIndexedDocs;
+            }
+        });
+
+        this.fullTokens = DistributionSummary.builder("docshield.retrieval.context.tokens")
+                .tag("mode", "full").register(meterRegistry);
+        this.retrievedTokens = DistributionSummary.builder("docshield.retrieval.context.tokens")
+                .tag("mode", "retrieved").register(meterRegistry);
+    }
+
+    /** 업로드 파이프라인이 마스킹을 마친 markdown으로 색인을 미리 만든다. */
+    public void index(String docId, String markdown) {
+        if (!enabled || markdown == null || markdown.length() <= tokenBudget) return;
+        indexes.put(docId, PassageIndex.build(markdown, passageChars, embeddingDim));
+    }
+
+    public void evict(String docId) {
+        indexes.remove(docId);
+    }
+
+    /**
+     * Gemini 프롬프트의 "문서(Markdown)" 자리에 들어갈 내용.
+     * 색인이 메모리에 있는 큰 문서는 본문을 DB에서 다시 읽지 않는다.
+     */
+    public String contextFor(DocumentResult doc, String question) {
+        return Observation.createNotStarted("docshield.ask.retrieve", observationRegistry)
+                .observe(() -> buildContext(doc, question));
+    }
+
+    private String buildContext(DocumentResult doc, String question) {
+        PassageIndex index = enabled ? indexes.get(doc.getId()) : null;
+        if (index == null || index.totalTokens() <= tokenBudget) {
+            String stored = contentService.pythonMarkdown(doc.getId()).orElse(null);
+            // 글자 수 ≥ 토큰 추정치이므로 글자 수가 예산 안이면 색인 없이 통째로 보낸다.
+            if (!enabled || stored == null || stored.length() <= tokenBudget) {
+                if (stored != null) fullTokens.record(TokenEstimator.estimate(stored));
+                return stored;
+            }
+            if (index == null) index = indexFor(doc.getId(), stored);
+            if (index.totalTokens() <= tokenBudget) {
+                fullTokens.record(index.totalTokens());
+                return stored;
+            }
+        }
+
+        List<Integer> picked = select(index, question);
+        StringBuilder context = new StringBuilder();
+        int used = 0;
+        int prev = -1;
+        for (int p : picked) {
+            if (prev >= 0) context.append(p == prev + 1 ? "" : GAP);
+            else if (p > 0) context.append("(…)\n\n");
+            context.append(index.passage(p));
+            used += index.tokens(p);
+            prev = p;
+        }
+        if (prev >= 0 && prev < index.size() - 1) context.append(GAP.stripTrailing());
+        retrievedTokens.record(used);
+
+        log.debug("🔎 관련 단락 {}/{}개 선택 (토큰 {}/{})", picked.size(), index.size(), used, index.totalTokens());
+        return context.toString();
+    }
+
+    /** 질문 단어가 문서에 나오는 비율 — 멀티 문서 질의의 연관도 표시에 쓴다. */
+    public double relevance(DocumentResult doc, String question) {
+        PassageIndex index = indexes.get(doc.getId());
+        if (index == null) {
+            String stored = contentService.pythonMarkdown(doc.getId()).orElse(null);
+            if (stored == null) return 0;
+            index = indexFor(doc.getId(), stored);
+        }
+        return index.coverage(question);
+    }
+
+    private PassageIndex indexFor(String docId, String stored) {
+        PassageIndex index = PassageIndex.build(markdownOf(stored), passageChars, embeddingDim);
+        indexes.put(docId, index);
+        return index;
+    }
+
+    // 점수 높은 순으로 예산에 들어가는 단락을 최대 topK개 고른 뒤 문서 순서로 정렬한다.
+    // 질문과 겹치는 단어가 하나도 없으면 문서 앞부분을 보낸다.
+    private List<Integer> select(PassageIndex index, String question) {
+        double[] scores = index.score(question, embeddingWeight);
+        Integer[] order = new Integer[index.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        boolean anyMatch = Arrays.stream(scores).anyMatch(s -> s > 0);
+        if (anyMatch) {
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        }
+
+        List<Integer> picked = new ArrayList<>();
+        int remaining = tokenBudget;
+        for (int p : order) {
+            if (picked.size() >= topK) break;
+            if (anyMatch && scores[p] <= 0) break;
+            if (index.tokens(p) > remaining) continue;
+            picked.add(p);
+            remaining -= index.tokens(p);
+        }
+        Collections.sort(picked);
+        return picked;
+    }
+
+    // 저장 형식은 {"markdown": ..., "documentType": ...} JSON — 색인에는 markdown 본문만 쓴다.
+    private String markdownOf(String stored) {
+        try {
+            PythonResponse parsed = objectMapper.readValue(stored, PythonResponse.class);
+            return parsed.getMarkdown() != null ? parsed.getMarkdown() : "";
+        } catch (Exception e) {
+            return stored;
+        }
+    }
+}
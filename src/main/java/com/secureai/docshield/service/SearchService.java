@@ -0,0 +1,254 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.dto.PythonResponse;
+import com.secureai.docshield.dto.SearchResponse;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import com.secureai.docshield.util.KoreanTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/search — 마스킹된 문서 전체에서 검색어가 들어 있는 문서를 찾는다.
+ *
+ * 업로드 파이프라인이 문서를 완료로 저장할 때 DocumentSearchIndex에 한 건씩 더하고,
+ * 기동할 때는 저장된 마스킹 결과로 색인을 백그라운드에서 다시 만든다. (그동안 응답의 complete=false)
+ * 재구성은 배치를 잠금 없이 읽고 토큰화한 뒤, 넣을 때만 writes를 잡는다. 재구성 중에 업로드가 색인/삭제한 id는
+ * touched에 남겨 두고 배치에서 건너뛰므로, 읽은 뒤에 지워진 문서를 되살리거나 방금 색인한 문서를 옛 값으로 덮지 않는다.
+ * 색인에는 본문을 두지 않으므로, 발췌(highlight)는 돌려줄 페이지의 문서 본문만 한 번에 읽어 만든다.
+ *
+ * 지표: docshield.search.latency, docshield.search.documents
+ */
+@Slf4j
+@Service
+public class SearchService {
+
+    private final DocumentSearchIndex index = new DocumentSearchIndex();
+    private final DocumentResultRepository repository;
+    private final DocumentContentService contentService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int snippetChars;
+    private final int maxSnippets;
+    private final int rebuildBatch;
+    private volatile boolean complete;
+    // 색인 쓰기(index, remove)와 재구성 배치 적용을 한 번에 하나씩
+    private final Object writes = new Object();
+    // 재구성 중에 업로드가 색인/삭제한 id (재구성 중이 아니면 null, writes로 보호)
+    private Set<String> touched;
+
+    private final Timer latency;
+
+    public SearchService(DocumentResultRepository repository,
+                         DocumentContentService contentService,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${docshield.search.enabled:true}") boolean enabled,
+                         @Value("${docshield.search.snippet-chars:60}") int snippetChars,
+                         @Value("${docshield.search.snippets:3}") int maxSnippets,
+                         @Value("${docshield.search.rebuild-batch:500}") int rebuildBatch) {
+        this.repository = repository;
+        this.contentService = contentService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.snippetChars = snippetChars;
+        this.maxSnippets = maxSnippets;
+        this.rebuildBatch = rebuildBatch;
+
+        this.latency = Timer.builder("docshield.search.latency").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        meterRegistry.gauge("docshield.search.documents", index, DocumentSearchIndex::size);
+    }
+
+    /** 완료된 문서의 마스킹 결과(markdown 본문)를 색인한다. */
+    public void index(DocumentResult doc, String markdown) {
+        if (!enabled || !doc.isCompleted() || markdown == null) return;
+        // 방금 저장한 행은 save(merge)가 돌려준 사본에만 업로드 시각이 채워지므로 없으면 지금 시각을 쓴다.
+        Instant createdAt = doc.getCreatedAt() != null ? doc.getCreatedAt() : Instant.now();
+        DocumentSearchIndex.Entry entry = DocumentSearchIndex.prepare(doc.getId(), doc.getType(), doc.getFileName(),
+                createdAt, markdown);
+        synchronized (writes) {
+            index.put(entry);
+            if (touched != null) touched.add(doc.getId());
+        }
+    }
+
+    /** 본문을 DB에서 읽어 색인한다. (마스킹 결과를 재사용한 문서처럼 호출자가 본문을 들고 있지 않을 때) */
+    public void indexStored(DocumentResult doc) {
+        if (!enabled || !doc.isCompleted()) return;
+        contentService.pythonMarkdown(doc.getId()).ifPresent(stored -> index(doc, markdownOf(stored)));
+    }
+
+    public void remove(String docId) {
+        synchronized (writes) {
+            index.remove(docId);
+            if (touched != null) touched.add(docId);
+        }
+    }
+
+    // 문서 본문 마이그레이션/압축(@Order 0, 1)이 끝난 뒤에 읽는다.
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void rebuildOnStartup() {
+        if (!enabled) return;
+        Thread rebuild = new Thread(this::rebuild, "search-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    /** 저장된 완료 문서를 rebuild-batch건씩 읽어 색인한다. */
+    void rebuild() {
+        long start = System.nanoTime();
+        int indexed = 0;
+        String after = "";
+        synchronized (writes) {
+            touched = new HashSet<>();
+        }
+        try {
+            while (true) {
+                // DB 읽기, 압축 해제, 토큰화는 잠금 밖에서 — 그동안 업로드의 색인/삭제는 기다리지 않는다.
+                List<DocumentResult> docs = repository.findCompletedAfter(after, PageRequest.ofSize(rebuildBatch));
+                if (docs.isEmpty()) break;
+                Map<String, String> stored = contentService.pythonMarkdowns(docs.stream().map(DocumentResult::getId).toList());
+                List<DocumentSearchIndex.Entry> entries = new ArrayList<>(docs.size());
+                for (DocumentResult doc : docs) {
+                    String content = stored.get(doc.getId());
+                    if (content == null || !doc.isCompleted()) continue;
+                    Instant createdAt = doc.getCreatedAt() != null ? doc.getCreatedAt() : Instant.now();
+                    entries.add(DocumentSearchIndex.prepare(doc.getId(), doc.getType(), doc.getFileName(),
+                            createdAt, markdownOf(content)));
+                }
+                synchronized (writes) {
+                    for (DocumentSearchIndex.Entry entry : entries) {
+                        // 읽은 뒤 업로드가 색인/삭제한 문서는 그쪽이 더 새롭다.
+                        if (touched.contains(entry.id())) continue;
+                        index.put(entry);
+                        indexed++;
+                    }
+                }
+                after = docs.get(docs.size() - 1).getId();
+            }
+            complete = true;
+            log.info("🔍 검색 색인 재구성 완료 — 문서 {}건 ({}ms)", indexed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ 검색 색인 재구성 실패 ({}건까지 색인됨): {}", indexed, e.getMessage());
+        } finally {
+            synchronized (writes) {
+                touched = null;
+            }
+        }
+    }
+
+    /**
+     * @param types 비어 있으면 모든 유형
+     * @param page  0부터
+     */
+    public SearchResponse search(String query, Set<DocumentType> types, int page, int size) {
+        long start = System.nanoTime();
+        DocumentSearchIndex.Result result = index.search(query, types, page * size, size);
+
+        // 발췌는 이 페이지의 문서만 — 본문을 한 번의 쿼리로 읽는다.
+        Map<String, String> stored = result.hits().isEmpty() ? Map.of()
+                : contentService.pythonMarkdowns(result.hits().stream().map(DocumentSearchIndex.Hit::id).toList());
+        List<String> terms = KoreanTokenizer.tokenize(query);
+        List<SearchResponse.Item> items = new ArrayList<>();
+        for (DocumentSearchIndex.Hit hit : result.hits()) {
+            String content = stored.get(hit.id());
+            List<String> highlights = content == null ? List.of() : highlight(markdownOf(content), terms);
+            items.add(new SearchResponse.Item(hit.id(), hit.fileName(), hit.type(), hit.createdAt(), hit.score(), highlights));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        latency.record(elapsed, TimeUnit.NANOSECONDS);
+        return new SearchResponse(result.total(), page, size, complete || !enabled,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), items);
+    }
+
+    /**
+     * 검색 토큰이 나오는 자리를 찾아 앞뒤 snippetChars 글자씩 잘라 최대 maxSnippets개 돌려준다.
+     * bigram이 이어지는 자리("퇴사" + "사자")는 겹친 구간을 합쳐 한 번에 감싼다.
+     */
+    List<String> highlight(String text, List<String> terms) {
+        // 토크나이저처럼 영문은 소문자로 맞춰 찾는다. (글자 수가 바뀌지 않도록 글자 단위로)
+        char[] lower = text.toCharArray();
+        for (int i = 0; i < lower.length; i++) lower[i] = Character.toLowerCase(lower[i]);
+        String haystack = new String(lower);
+
+        List<int[]> spans = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(terms)) {
+            for (int at = haystack.indexOf(term); at >= 0 && spans.size() < 1000; at = haystack.indexOf(term, at + 1)) {
+                spans.add(new int[]{at, at + term.length()});
+            }
+        }
+        if (spans.isEmpty()) return List.of();
+        spans.sort(Comparator.comparingInt(s -> s[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] span : spans) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && span[0] <= last[1]) last[1] = Math.max(last[1], span[1]);
+            else merged.add(span);
+        }
+
+        List<String> snippets = new ArrayList<>();
+        int i = 0;
+        int previous = 0;
+        while (i < merged.size() && snippets.size() < maxSnippets) {
+            int from = Math.max(previous, merged.get(i)[0] - snippetChars);
+            int to = Math.min(text.length(), merged.get(i)[1] + snippetChars);
+            StringBuilder snippet = new StringBuilder();
+            if (from > 0) snippet.append('…');
+            int pos = from;
+            // 창 안에 들어오는 일치 구간은 모두 감싼다.
+            while (i < merged.size() && merged.get(i)[0] < to) {
+                int[] span = merged.get(i++);
+                int end = Math.min(span[1], to);
+                escape(snippet, text, pos, span[0]);
+                snippet.append("<em>");
+                escape(snippet, text, span[0], end);
+                snippet.append("</em>");
+                pos = end;
+            }
+            escape(snippet, text, pos, to);
+            if (to < text.length()) snippet.append('…');
+            snippets.add(snippet.toString().replace('\n', ' '));
+            previous = to;
+        }
+        return snippets;
+    }
+
+    private static void escape(StringBuilder out, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    // 저장 형식은 {"markdown": ..., "documentType": ...} JSON — 색인과 발췌에는 markdown 본문만 쓴다.
+    private String markdownOf(String stored) {
+        try {
+            PythonResponse parsed = objectMapper.readValue(stored, PythonResponse.class);
+            return parsed.getMarkdown() != null ? parsed.getMarkdown() : "";
+        } catch (Exception e) {
+            return stored;
+        }
+    }
+}
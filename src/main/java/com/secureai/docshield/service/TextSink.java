@@ -0,0 +1,18 @@
+package com.secureai.docshield.service;
+
+import java.io.IOException;
+
+/**
+ * 파서가 추출한 텍스트를 조각 단위로 넘겨받는 싱크.
+ * 전달된 {@link CharSequence}는 파서가 버퍼를 재사용하므로 호출 중에만 유효하다.
+ * (보관이 필요하면 반드시 복사해서 사용)
+ */
+@FunctionalInterface
+public interface TextSink {
+
+    void write(CharSequence text) throws IOException;
+
+    /** 추출이 끝났을 때 한 번 호출된다. */
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,17 @@
+package com.secureai.docshield.service;
+
+import lombok.Getter;
+
+/**
+ * 업로드의 previousId가 완료된 문서를 가리키지 않는다. (클라이언트 오류 — 행을 만들기 전에 거절한다)
+ */
+@Getter
+public class UnknownPreviousVersionException extends RuntimeException {
+
+    private final String previousId;
+
+    public UnknownPreviousVersionException(String previousId) {
+        super("이전 판으로 이을 완료 문서가 없습니다: " + previousId);
+        this.previousId = previousId;
+    }
+}
@@ -0,0 +1,146 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.UploadJob;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 비동기 업로드 작업 관리.
+ *
+ * 업로드 파일은 요청이 끝나면 사라지므로 먼저 임시 파일로 옮긴 뒤 작업 실행기에 넘긴다.
+ * 실행 중 + 대기 중 작업 수가 workers + queue-capacity를 넘으면 즉시 거절한다. (컨트롤러에서 429)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadJobService {
+
+    private final DocumentPipelineService documentPipelineService;
+    @Qualifier("uploadJobExecutor")
+    private final ExecutorService uploadJobExecutor;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${docshield.jobs.workers:4}")
+    private int workers;
+
+    @Value("${docshield.jobs.queue-capacity:32}")
+    private int queueCapacity;
+
+    // 끝난 작업 상태를 메모리에 남겨 두는 시간
+    @Value("${docshield.jobs.retention:PT1H}")
+    private Duration retention;
+
+    private Semaphore admission;
+
+    @PostConstruct
+    void init() {
+        admission = new Semaphore(workers + queueCapacity);
+    }
+
+    /** @param previousId 다음 판으로 이을 완료 문서 id (없으면 null) — 맞지 않으면 작업이 실패한다. */
+    public UploadJob submit(MultipartFile file, String previousId) throws IOException {
+        String fileName = file.getOriginalFilename();
+        if (fileName == null) throw new IOException("파일 이름이 없습니다.");
+        evictFinished();
+
+        Semaphore slots = admission;
+        if (!slots.tryAcquire()) {
+            throw new RejectedExecutionException("업로드 작업 대기열이 가득 찼습니다.");
+        }
+
+        Path spooled;
+        try {
+            spooled = Files.createTempFile("docshield-job-", ".upload");
+            file.transferTo(spooled);
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), fileName);
+        jobs.put(job.getId(), job);
+        try {
+            uploadJobExecutor.execute(() -> run(job, spooled, slots, previousId));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            slots.release();
+            deleteQuietly(spooled);
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<UploadJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(UploadJob job, Path spooled, Semaphore slots, String previousId) {
+        job.start();
+        try {
+            PipelineListener listener = new PipelineListener() {
+                @Override
+                public void onChunkParsed(int seq) {
+                    job.chunkParsed();
+                }
+
+                @Override
+                public void onParsingDone(int totalChunks) {
+                    job.parsingDone();
+                }
+
+                @Override
+                public void onChunkMasked(int seq) {
+                    job.chunkMasked();
+                }
+
+                @Override
+                public void onTypePredicted(DocumentType type) {
+                    job.typePredicted(type);
+                }
+            };
+            documentPipelineService.process(job.getId(), job.getFileName(), new FileSystemResource(spooled),
+                    previousId, listener);
+            job.complete();
+        } catch (Exception e) {
+            log.warn("❌ 업로드 작업 실패 ({}): {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            deleteQuietly(spooled);
+            slots.release();
+        }
+    }
+
+    private void evictFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("⚠️ 임시 파일 삭제 실패: {}", path);
+        }
+    }
+}
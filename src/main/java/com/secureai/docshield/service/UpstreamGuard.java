@@ -0,0 +1,302 @@
+package com.secureai.docshield.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 업스트림 하나(Python 서버 또는 Gemini)를 부르는 호출을 감싸는 격벽 + 재시도 + 회로 차단기.
+ *
+ * - 격벽: 업스트림별 동시 호출 수를 Semaphore로 제한해, 멈춘 Python 서버가 /api/ask가 쓸 스레드까지 붙잡지 못하게 한다.
+ *   요청을 붙잡고 있는 호출(call)은 자리가 나기를 max-wait 넘게 기다리지 않고 바로 UpstreamUnavailableException으로 끝낸다.
+ *   업로드 파이프라인의 마스킹처럼 뒤에서 도는 호출(callQueued)은 마감 안에서 자리가 날 때까지 줄을 선다.
+ * - 마감 시간: 호출마다 time-budget 안에서만 재시도하고, withDeadline으로 바깥 요청의 마감이 걸려 있으면 더 이른 쪽을 따른다.
+ *   남은 시간은 Attempt에 넘겨 업스트림에도 전달할 수 있다. (한 번의 시도는 RestTemplate의 read-timeout이 끊는다)
+ * - 재시도: 연결 실패/타임아웃, 429, 502/503/504만 지수 백오프 + full jitter로 다시 보낸다. Retry-After가 있으면 그만큼은 기다린다.
+ *   요청이 이미 일부 처리되었을 수 있는 호출은 retryable이 false를 돌려주면 연결 실패 외에는 다시 보내지 않는다.
+ * - 회로 차단기: 최근 window개 호출 중 업스트림 장애 비율이 failure-rate% 이상이면 open-duration 동안 호출하지 않고 바로 실패하고,
+ *   그 뒤 시험 호출 하나가 성공하면 다시 닫는다. 4xx 같은 요청 오류는 장애로 세지 않는다.
+ *
+ * 지표: docshield.upstream.calls{upstream,outcome}, docshield.upstream.retries{upstream}, docshield.upstream.circuit.state{upstream}
+ */
+@Slf4j
+public class UpstreamGuard {
+
+    /** 한 번의 시도. remaining은 마감까지 남은 시간이다. */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run(Duration remaining);
+    }
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private final String name;
+    private final Semaphore bulkhead;
+    private final long maxWaitNanos;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final long budgetNanos;
+    private final int failureRate;
+    private final int minCalls;
+    private final long openNanos;
+
+    // 최근 호출 결과 (true = 장애). synchronized(this)로만 만진다.
+    private final boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final Counter success;
+    private final Counter failure;
+    private final Counter rejected;
+    private final Counter shortCircuited;
+    private final Counter retries;
+
+    public UpstreamGuard(String name, MeterRegistry meterRegistry,
+                         int maxConcurrent, Duration maxWait,
+                         int maxAttempts, Duration backoff, Duration maxBackoff, Duration budget,
+                         int windowSize, int minCalls, int failureRate, Duration openDuration) {
+        this.name = name;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffNanos = backoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.budgetNanos = budget.toNanos();
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.min(Math.max(1, minCalls), window.length);
+        this.failureRate = failureRate;
+        this.openNanos = openDuration.toNanos();
+
+        this.success = meterRegistry.counter("docshield.upstream.calls", "upstream", name, "outcome", "success");
+        this.failure = meterRegistry.counter("docshield.upstream.calls", "upstream", name, "outcome", "failure");
+        this.rejected = meterRegistry.counter("docshield.upstream.calls", "upstream", name, "outcome", "bulkhead-full");
+        this.shortCircuited = meterRegistry.counter("docshield.upstream.calls", "upstream", name, "outcome", "circuit-open");
+        this.retries = meterRegistry.counter("docshield.upstream.retries", "upstream", name);
+        // 0 = 닫힘, 1 = 열림, 2 = 반쯤 열림
+        meterRegistry.gauge("docshield.upstream.circuit.state", Tags.of("upstream", name), this, g -> g.state().ordinal());
+        meterRegistry.gauge("docshield.upstream.in-flight", Tags.of("upstream", name), this,
+                g -> maxConcurrent - g.bulkhead.availablePermits());
+    }
+
+    /**
+     * 바깥 요청의 마감 시간(System.nanoTime 기준)을 걸고 action을 실행한다.
+     * 이 스레드에서 부르는 업스트림 호출은 모두 이 마감을 넘기지 않는다.
+     */
+    public static <T> T withDeadline(long deadlineNanos, Supplier<T> action) {
+        Long previous = DEADLINE.get();
+        DEADLINE.set(previous == null ? deadlineNanos : Math.min(previous, deadlineNanos));
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) DEADLINE.remove();
+            else DEADLINE.set(previous);
+        }
+    }
+
+    /** 다시 보내도 되는 호출 */
+    public <T> T call(Attempt<T> attempt) {
+        return call(() -> true, attempt);
+    }
+
+    /**
+     * @param retryable 실패한 시도를 다시 보내도 되는지 (실패 직후에 묻는다)
+     * @throws UpstreamUnavailableException 회로가 열려 있거나, 격벽 자리가 없거나, 마감이 지났을 때
+     */
+    public <T> T call(BooleanSupplier retryable, Attempt<T> attempt) {
+        return call(retryable, false, attempt);
+    }
+
+    /**
+     * 다시 보내도 되는 백그라운드 호출. 격벽 자리가 없으면 max-wait에서 끊지 않고 마감까지 기다린다.
+     * 동시 호출 수는 그대로 max-concurrent로 묶인다.
+     */
+    public <T> T callQueued(Attempt<T> attempt) {
+        return call(() -> true, true, attempt);
+    }
+
+    private <T> T call(BooleanSupplier retryable, boolean queue, Attempt<T> attempt) {
+        long now = System.nanoTime();
+        long deadline = now + budgetNanos;
+        Long outer = DEADLINE.get();
+        if (outer != null) deadline = Math.min(deadline, outer);
+
+        RuntimeException last = null;
+        for (int n = 1; ; n++) {
+            now = System.nanoTime();
+            if (now >= deadline) {
+                if (last != null) throw last;
+                throw new UpstreamUnavailableException(name, "마감 시간이 지났습니다.", Duration.ZERO);
+            }
+            if (!permit(now)) {
+                shortCircuited.increment();
+                throw new UpstreamUnavailableException(name, "회로 차단 중 — 호출하지 않고 실패합니다.", retryAfter(now));
+            }
+            if (!acquire(queue ? deadline - now : Math.min(maxWaitNanos, deadline - now))) {
+                release(false, false);
+                rejected.increment();
+                throw new UpstreamUnavailableException(name, "동시 호출 한도에 도달했습니다.", Duration.ofSeconds(1));
+            }
+
+            boolean recorded = false;
+            try {
+                T result = attempt.run(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+                recorded = true;
+                release(true, false);
+                success.increment();
+                return result;
+            } catch (RuntimeException e) {
+                boolean fault = isFault(e);
+                recorded = true;
+                release(!fault, fault);
+                failure.increment();
+                last = e;
+                if (!isRetryable(e) || (!retryable.getAsBoolean() && !isConnectFailure(e)) || n >= maxAttempts) throw e;
+            } finally {
+                // Error 등 위에서 결과를 반영하지 못하고 빠져나가도 시험 호출 자리는 돌려준다.
+                if (!recorded) release(false, false);
+                bulkhead.release();
+            }
+
+            long sleep = Math.max(backoff(n), retryAfterHeader(last));
+            if (System.nanoTime() + sleep >= deadline) throw last;
+            retries.increment();
+            log.info("🔁 {} 호출 재시도 {}/{} ({}ms 후): {}", name, n, maxAttempts - 1,
+                    TimeUnit.NANOSECONDS.toMillis(sleep), last.getMessage());
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw last;
+            }
+        }
+    }
+
+    synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) return State.HALF_OPEN;
+        return state;
+    }
+
+    // 회로 상태에 따라 이번 시도를 보내도 되는지. 반쯤 열린 상태에서는 시험 호출 하나만 통과시킨다.
+    private synchronized boolean permit(long now) {
+        if (state == State.OPEN && now - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) yield false;
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    // 시도 결과를 회로에 반영한다. (ok도 fault도 아니면 — 격벽에서 밀린 경우 — 시험 호출 자리만 돌려준다)
+    private synchronized void release(boolean ok, boolean fault) {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (ok) {
+                state = State.CLOSED;
+                windowPos = windowCount = windowFailures = 0;
+                log.info("🟢 {} 회로 닫힘", name);
+            } else if (fault) {
+                open();
+            }
+            return;
+        }
+        if (state != State.CLOSED || (!ok && !fault)) return;
+
+        if (windowCount == window.length) {
+            if (window[windowPos]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = fault;
+        if (fault) windowFailures++;
+        windowPos = (windowPos + 1) % window.length;
+
+        if (windowCount >= minCalls && windowFailures * 100 >= failureRate * windowCount) open();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        log.warn("🔴 {} 회로 열림 — {}초 동안 바로 실패합니다.", name, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+    }
+
+    private synchronized Duration retryAfter(long now) {
+        return Duration.ofNanos(Math.max(0, openNanos - (now - openedAt)));
+    }
+
+    private boolean acquire(long waitNanos) {
+        try {
+            return bulkhead.tryAcquire(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // full jitter: [0, min(max, base * 2^(n-1))) 사이에서 고르게
+    private long backoff(int n) {
+        long cap = Math.min(maxBackoffNanos, backoffNanos << Math.min(n - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap);
+    }
+
+    // 업스트림이 망가졌다는 신호 (회로 차단기에 센다)
+    private static boolean isFault(RuntimeException e) {
+        if (e instanceof ResourceAccessException) return true;
+        if (e instanceof HttpStatusCodeException h) {
+            return h.getStatusCode().is5xxServerError() || h.getStatusCode().value() == 429;
+        }
+        return false;
+    }
+
+    // 같은 요청을 다시 보내면 성공할 수 있는 실패
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof ResourceAccessException) return true;
+        if (e instanceof HttpStatusCodeException h) {
+            int code = h.getStatusCode().value();
+            return code == 429 || code == 502 || code == 503 || code == 504;
+        }
+        return false;
+    }
+
+    // 요청이 업스트림에 닿지도 않은 실패 — 어떤 호출이든 다시 보내도 된다.
+    private static boolean isConnectFailure(RuntimeException e) {
+        return e instanceof ResourceAccessException && e.getCause() instanceof ConnectException;
+    }
+
+    private static long retryAfterHeader(RuntimeException e) {
+        if (!(e instanceof HttpStatusCodeException h)) return 0;
+        HttpHeaders headers = h.getResponseHeaders();
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) return 0;
+        try {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(value.strip()));
+        } catch (NumberFormatException ignored) {
+            return 0; // HTTP-date 형식은 쓰지 않는다.
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.secureai.docshield.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 업스트림(Python 서버, Gemini)을 부르지 않고 바로 실패한 요청 — 회로가 열려 있거나, 동시 호출 한도가 찼거나, 마감 시간이 지났다.
+ */
+@Getter
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String upstream;
+    // 클라이언트에게 Retry-After로 알려줄 대기 시간
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(String upstream, String message, Duration retryAfter) {
+        super(upstream + ": " + message);
+        this.upstream = upstream;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,158 @@
+package com.secureai.docshield.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 사전 단어 여러 개를 한 번에 찾는 Aho-Corasick 오토마톤. 만든 뒤에는 불변이고 여러 스레드가 함께 쓴다.
+ *
+ * 한글처럼 알파벳이 큰 입력을 위해 전이는 (상태, 글자) → 상태의 open-addressing 표에 둔다.
+ * 조회는 박싱 없이 long 키로 하므로 검색 중에 객체를 만들지 않는다. ASCII는 대소문자를 구분하지 않는다.
+ */
+public final class AhoCorasick {
+
+    private static final long EMPTY = -1L;
+
+    private final long[] keys;
+    private final int[] targets;
+    private final int mask;
+    private final int[] fail;
+    // 이 상태에서 끝나는 가장 긴 단어의 길이(실패 링크로 이어지는 단어 포함)와 그 단어의 payload. 없으면 0 / -1
+    private final int[] matchLength;
+    private final int[] matchPayload;
+
+    /**
+     * @param terms    찾을 단어들
+     * @param payloads 단어별 값 (terms와 같은 순서). 매칭 시 그대로 돌려준다.
+     */
+    public AhoCorasick(Collection<String> terms, int[] payloads) {
+        int maxStates = 1;
+        for (String term : terms) maxStates += term.length();
+
+        int capacity = Integer.highestOneBit(Math.max(16, maxStates * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.targets = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+
+        int[] parent = new int[maxStates];
+        char[] edge = new char[maxStates];
+        int[] ownLength = new int[maxStates];
+        int[] ownPayload = new int[maxStates];
+        Arrays.fill(ownPayload, -1);
+        int states = 1;
+        int t = 0;
+        for (String term : terms) {
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                char c = fold(term.charAt(i));
+                int next = next(state, c);
+                if (next < 0) {
+                    next = states++;
+                    parent[next] = state;
+                    edge[next] = c;
+                    put(state, c, next);
+                }
+                state = next;
+            }
+            if (state != 0) {
+                ownLength[state] = term.length();
+                ownPayload[state] = payloads[t];
+            }
+            t++;
+        }
+
+        // 실패 링크는 BFS 순서로 — 부모의 링크가 먼저 정해져 있어야 한다.
+        this.fail = new int[states];
+        this.matchLength = Arrays.copyOf(ownLength, states);
+        this.matchPayload = Arrays.copyOf(ownPayload, states);
+        int[][] children = childrenOf(parent, states);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : children[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (matchLength[state] == 0 && matchLength[fail[state]] > 0) {
+                matchLength[state] = matchLength[fail[state]];
+                matchPayload[state] = matchPayload[fail[state]];
+            }
+            for (int child : children[state]) {
+                char c = edge[child];
+                int f = fail[state];
+                while (f != 0 && next(f, c) < 0) f = fail[f];
+                int target = next(f, c);
+                fail[child] = (target >= 0 && target != child) ? target : 0;
+                queue.add(child);
+            }
+        }
+    }
+
+    /** 시작 상태 */
+    public int start() {
+        return 0;
+    }
+
+    /** c를 읽은 뒤의 상태 */
+    public int step(int state, char c) {
+        char folded = fold(c);
+        while (true) {
+            int next = next(state, folded);
+            if (next >= 0) return next;
+            if (state == 0) return 0;
+            state = fail[state];
+        }
+    }
+
+    /** 이 상태에서 끝나는 가장 긴 단어의 길이. 없으면 0 */
+    public int matchLength(int state) {
+        return matchLength[state];
+    }
+
+    /** matchLength 단어의 payload. 없으면 -1 */
+    public int matchPayload(int state) {
+        return matchPayload[state];
+    }
+
+    private int next(int state, char c) {
+        long key = key(state, c);
+        for (int slot = hash(key); ; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key) return targets[slot];
+            if (k == EMPTY) return -1;
+        }
+    }
+
+    private void put(int state, char c, int target) {
+        long key = key(state, c);
+        int slot = hash(key);
+        while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+        keys[slot] = key;
+        targets[slot] = target;
+    }
+
+    // 빌드 때만 쓰는 자식 목록 (상태 0은 루트라 부모가 없다)
+    private static int[][] childrenOf(int[] parent, int states) {
+        int[] counts = new int[states];
+        for (int s = 1; s < states; s++) counts[parent[s]]++;
+        int[][] children = new int[states][];
+        for (int s = 0; s < states; s++) children[s] = new int[counts[s]];
+        int[] filled = new int[states];
+        for (int s = 1; s < states; s++) children[parent[s]][filled[parent[s]]++] = s;
+        return children;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static char fold(char c) {
+        return c < 0x80 ? Character.toLowerCase(c) : c;
+    }
+}
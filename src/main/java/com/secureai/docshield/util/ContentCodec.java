@@ -0,0 +1,247 @@
+package com.secureai.docshield.util;
+
+import com.secureai.docshield.domain.DocumentType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * document_contents 본문(마스킹 결과 JSON, Gemini 답변) 압축.
+ *
+ * raw deflate에 문서 유형별 preset dictionary를 걸고, 결과를 Base64로 만들어 CLOB에 그대로 담는다.
+ * 저장 형식은 MAGIC(U+0001 "DZ1") + 사전 id(16진 2자리) + 사전 CRC32(16진 8자리) + ':' + Base64.
+ * 이 머리글 모양이 아닌 값은 압축 전에 저장된 행(또는 압축 이득이 없던 값)이므로 그대로 읽는다.
+ *
+ * 사전은 resources/codec/dictionary-XX.bin에 고정된 바이트로 들어 있다. 한 번 쓴 id의 사전은 바꾸지 않는다.
+ * 사전을 새로 만들면 새 id와 파일, CRC를 DICTIONARIES에 추가하고 dictionaryIdFor가 새 id를 고르게 한다.
+ * 파일이 CRC와 다르면 기동할 때, 머리글의 id를 모르거나 CRC가 다르면 읽을 때 실패한다.
+ */
+public final class ContentCodec {
+
+    public static final String MAGIC = "\u0001DZ1";
+    private static final int HEADER = MAGIC.length() + 2 + 8 + 1;
+
+    // id → 사전 파일의 CRC32. 사전 파일을 고치면 기존 압축 행을 풀 수 없으므로 id는 추가만 한다.
+    private static final int GENERAL = 0x01;
+    private static final Map<Integer, Long> DICTIONARIES = Map.of(
+            GENERAL, 0x877edf4cL,
+            0x02, 0xc80320e1L,   // HR_INFO
+            0x03, 0x8f557bfaL,   // BUSINESS_INFO
+            0x04, 0x3149607cL,   // TECH_INFO
+            0x05, 0x3149607cL,   // PUBLIC_INFO
+            0x06, 0x8f557bfaL);  // PERSONAL_INFO
+
+    // 이보다 짧은 값은 Base64 오버헤드 때문에 이득이 없다.
+    private static final int MIN_CHARS = 256;
+
+    private static final String TYPE_FIELD = "\"documentType\":\"";
+
+    private ContentCodec() {
+    }
+
+    /** 압축 머리글 모양인지. 사전 id가 알려진 것인지는 풀 때 확인한다. */
+    public static boolean isEncoded(String value) {
+        if (value == null || value.length() < HEADER || !value.startsWith(MAGIC)) return false;
+        for (int i = MAGIC.length(); i < HEADER - 1; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) return false;
+        }
+        return value.charAt(HEADER - 1) == ':';
+    }
+
+    /** 압축해서 저장할 값. 짧거나 압축 이득이 없으면 원문 그대로 돌려준다. */
+    public static String encode(String text) {
+        if (text == null || text.length() < MIN_CHARS || isEncoded(text)) return text;
+
+        int dictionaryId = dictionaryIdFor(text);
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setDictionary(Dictionaries.get(dictionaryId));
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+            String encoded = Base64.getEncoder().encodeToString(out.toByteArray());
+            if (encoded.length() + HEADER >= input.length) return text;
+            return header(dictionaryId) + encoded;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** 저장된 값을 원문으로. 압축되지 않은 값은 그대로 돌려준다. */
+    public static String decode(String stored) {
+        if (!isEncoded(stored)) return stored;
+
+        byte[] dictionary = dictionaryOf(stored.substring(MAGIC.length(), HEADER - 1));
+        byte[] compressed = Base64.getDecoder().decode(stored.substring(HEADER));
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(dictionary);
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buf = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("압축된 본문이 잘려 있습니다.");
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("압축된 본문을 풀 수 없습니다.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 저장된 값을 읽는 Reader를 원문 Reader로 감싼다. 본문 전체를 메모리에 올리지 않는다.
+     * 돌려받은 Reader를 닫으면 stored도 닫힌다.
+     */
+    public static Reader openReader(Reader stored) throws IOException {
+        PushbackReader in = new PushbackReader(stored, HEADER);
+        char[] head = new char[HEADER];
+        int read = 0;
+        while (read < HEADER) {
+            int n = in.read(head, read, HEADER - read);
+            if (n < 0) break;
+            read += n;
+        }
+        String header = new String(head, 0, read);
+        if (!isEncoded(header)) {
+            if (read > 0) in.unread(head, 0, read);
+            return in;
+        }
+
+        byte[] dictionary;
+        try {
+            dictionary = dictionaryOf(header.substring(MAGIC.length(), HEADER - 1));
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        Inflater inflater = new Inflater(true);
+        inflater.setDictionary(dictionary);
+        InputStream compressed = Base64.getDecoder().wrap(new AsciiInputStream(in));
+        InputStream inflated = new InflaterInputStream(compressed, inflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+        return new InputStreamReader(inflated, StandardCharsets.UTF_8);
+    }
+
+    private static String header(int dictionaryId) {
+        return MAGIC + String.format("%02x%08x:", dictionaryId, DICTIONARIES.get(dictionaryId));
+    }
+
+    // 머리글의 "id(2)crc(8)"로 사전을 찾는다. 모르는 id이거나 CRC가 다르면 풀지 않는다.
+    private static byte[] dictionaryOf(String idAndCrc) {
+        int id = Integer.parseInt(idAndCrc.substring(0, 2), 16);
+        long crc = Long.parseLong(idAndCrc.substring(2), 16);
+        Long expected = DICTIONARIES.get(id);
+        if (expected == null) {
+            throw new IllegalStateException("알 수 없는 압축 사전: " + idAndCrc.substring(0, 2));
+        }
+        if (expected != crc) {
+            throw new IllegalStateException("압축 사전 CRC가 다릅니다: " + idAndCrc);
+        }
+        return Dictionaries.get(id);
+    }
+
+    // PythonResponse JSON이면 끝쪽의 documentType으로 사전을 고른다. 답변처럼 유형을 모르면 공통 사전.
+    private static int dictionaryIdFor(String text) {
+        int at = text.lastIndexOf(TYPE_FIELD);
+        if (at < 0) return GENERAL;
+        int start = at + TYPE_FIELD.length();
+        int end = text.indexOf('"', start);
+        if (end < 0) return GENERAL;
+        try {
+            return switch (DocumentType.valueOf(text.substring(start, end))) {
+                case HR_INFO -> 0x02;
+                case BUSINESS_INFO -> 0x03;
+                case TECH_INFO -> 0x04;
+                case PUBLIC_INFO -> 0x05;
+                case PERSONAL_INFO -> 0x06;
+            };
+        } catch (IllegalArgumentException e) {
+            return GENERAL;
+        }
+    }
+
+    private static final class Dictionaries {
+
+        private static final Map<Integer, byte[]> BY_ID = new HashMap<>();
+
+        static {
+            DICTIONARIES.forEach((id, crc) -> {
+                String file = String.format("codec/dictionary-%02x.bin", id);
+                byte[] bytes = FileLoader.loadBytes(file);
+                if (bytes == null) throw new IllegalStateException("압축 사전 파일이 없습니다: " + file);
+                CRC32 actual = new CRC32();
+                actual.update(bytes);
+                if (actual.getValue() != crc) {
+                    throw new IllegalStateException("압축 사전 파일이 바뀌었습니다: " + file);
+                }
+                BY_ID.put(id, bytes);
+            });
+        }
+
+        static byte[] get(int id) {
+            return BY_ID.get(id);
+        }
+    }
+
+    // Base64 글자(ASCII)만 담긴 Reader를 바이트 스트림으로 본다.
+    private static final class AsciiInputStream extends InputStream {
+
+        private final Reader reader;
+        private final char[] chars = new char[8192];
+
+        AsciiInputStream(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return reader.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = reader.read(chars, 0, Math.min(len, chars.length));
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) chars[i];
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -1,18 +1,40 @@
 package com.secureai.docshield.util;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ClassPathResource;
-import java.nio.file.Files;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
+// jar 안에서도 읽히도록 파일 경로(getFile) 대신 스트림으로 읽는다.
+@Slf4j
 public class FileLoader {
 
     public static String load(String filename) {
-        try {
-            var resource = new ClassPathResource(filename);
-            return Files.readString(resource.getFile().toPath(), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            System.err.println("⚠️ 예시데이터 파일 로드 실패: " + e.getMessage());
+        byte[] bytes = loadBytes(filename);
+        if (bytes == null) {
+            log.warn("⚠️ 예시데이터 파일 로드 실패: {}", filename);
             return "";
         }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** 클래스패스 리소스를 읽는다. 없으면 조용히 "" */
+    public static String loadIfExists(String filename) {
+        byte[] bytes = loadBytes(filename);
+        return bytes == null ? "" : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** 클래스패스 리소스 바이트. 없거나 읽지 못하면 null */
+    public static byte[] loadBytes(String filename) {
+        var resource = new ClassPathResource(filename);
+        if (!resource.exists()) return null;
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            log.warn("⚠️ 리소스 로드 실패: {} — {}", filename, e.getMessage());
+            return null;
+        }
     }
 }
@@ -0,0 +1,111 @@
+package com.secureai.docshield.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gemini generateContent 응답(및 SSE 조각)을 JsonNode 트리 없이 한 번 훑어서 필요한 값만 꺼낸다.
+ * candidates[0].content.parts[*].text 와 usageMetadata 토큰 수 외의 필드는 읽지 않고 건너뛴다.
+ */
+public final class GeminiJson {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * @param parts    첫 번째 후보의 텍스트 조각 (없으면 빈 목록)
+     * @param hasUsage usageMetadata가 있었는지 (스트림 조각은 마지막 조각에만 올 수 있다)
+     */
+    public record Reply(List<String> parts, int promptTokens, int outputTokens, boolean hasUsage) {
+
+        /** 첫 번째 텍스트 조각. 텍스트가 없는 응답이면 예외. */
+        public String text() {
+            if (parts.isEmpty()) throw new IllegalStateException("Gemini 응답에 텍스트가 없음");
+            return parts.get(0);
+        }
+    }
+
+    private GeminiJson() {
+    }
+
+    public static Reply read(byte[] json) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            return read(p);
+        }
+    }
+
+    public static Reply read(String json) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            return read(p);
+        }
+    }
+
+    private static Reply read(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) throw new JsonParseException(p, "Gemini 응답이 JSON 객체가 아님");
+        List<String> parts = new ArrayList<>(1);
+        int promptTokens = 0;
+        int outputTokens = 0;
+        boolean hasUsage = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if (field.equals("candidates") && value == JsonToken.START_ARRAY) {
+                // 첫 번째 후보만 읽는다.
+                boolean first = true;
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (first && p.currentToken() == JsonToken.START_OBJECT) readCandidate(p, parts);
+                    else p.skipChildren();
+                    first = false;
+                }
+            } else if (field.equals("usageMetadata") && value == JsonToken.START_OBJECT) {
+                hasUsage = true;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.currentName();
+                    p.nextToken();
+                    switch (name) {
+                        case "promptTokenCount" -> promptTokens = p.getValueAsInt(0);
+                        case "candidatesTokenCount" -> outputTokens = p.getValueAsInt(0);
+                        default -> p.skipChildren();
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Reply(parts, promptTokens, outputTokens, hasUsage);
+    }
+
+    // {"content": {"parts": [{"text": ...}, ...]}, ...}
+    private static void readCandidate(JsonParser p, List<String> parts) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() != JsonToken.START_OBJECT || !field.equals("content")) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                if (p.nextToken() != JsonToken.START_ARRAY || !name.equals("parts")) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (p.currentToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        boolean text = p.currentName().equals("text");
+                        if (p.nextToken() == JsonToken.VALUE_STRING && text) parts.add(p.getText());
+                        else p.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.secureai.docshield.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 검색용 토크나이저. 형태소 분석기 없이 한국어를 다루기 위해
+ * 한글 연속 구간은 글자 bigram으로 (한 글자면 그대로), 영문/숫자 연속 구간은 소문자 단어로 자른다.
+ *
+ * 예) "홍길동 급여명세서 2024" → [홍길, 길동, 급여, 여명, 명세, 세서, 2024]
+ * 마스킹 표시([PHONE] 등)나 문장부호는 구분자로 취급한다.
+ */
+public final class KoreanTokenizer {
+
+    private KoreanTokenizer() {
+    }
+
+    public static List<String> tokenize(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens::add);
+        return tokens;
+    }
+
+    public static void tokenize(CharSequence text, Consumer<String> out) {
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isHangul(c)) {
+                int start = i;
+                while (i < n && isHangul(text.charAt(i))) i++;
+                if (i - start == 1) {
+                    out.accept(String.valueOf(c));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        out.accept(new String(new char[]{text.charAt(j), text.charAt(j + 1)}));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                StringBuilder word = new StringBuilder();
+                while (i < n) {
+                    char d = text.charAt(i);
+                    if (!Character.isLetterOrDigit(d) || isHangul(d)) break;
+                    word.append(Character.toLowerCase(d));
+                    i++;
+                }
+                out.accept(word.toString());
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public static boolean isHangul(char c) {
+        return (c >= '가' && c <= '힣') || (c >= 'ㄱ' && c <= 'ㆎ');
+    }
+}
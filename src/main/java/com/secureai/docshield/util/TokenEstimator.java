@@ -0,0 +1,68 @@
+package com.secureai.docshield.util;
+
+/**
+ * Gemini 토크나이저 없이 프롬프트 토큰 수를 어림한다.
+ *
+ * Gemini(SentencePiece) 토큰화 규칙을 흉내 내 글자 종류별 연속 구간 단위로 센다.
+ * 영문 단어는 약 4글자당 1토큰, 숫자는 자릿수마다 1토큰, 기호는 글자당 1토큰,
+ * 한글 등 그 밖의 문자는 글자당 1토큰이고, 단어 사이의 공백 한 칸은 다음 토큰에 붙어 세지 않는다.
+ * 실제보다 조금 많게 세도록 잡았으므로 상한 검사에 그대로 써도 된다. (어느 경우에도 글자 수를 넘지 않는다)
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+        return count(text, -1);
+    }
+
+    /**
+     * 토큰 추정치가 maxTokens를 넘지 않는 가장 긴 앞부분의 길이.
+     * 구간(단어, 공백 묶음) 중간에서는 자르지 않는다.
+     */
+    public static int prefixLength(CharSequence text, int maxTokens) {
+        if (text == null || maxTokens <= 0) return 0;
+        return count(text, maxTokens);
+    }
+
+    // maxTokens < 0 이면 토큰 수를, 아니면 그 안에 들어가는 앞부분 길이를 돌려준다.
+    private static int count(CharSequence text, int maxTokens) {
+        int n = text.length();
+        int tokens = 0;
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            int start = i;
+            int cost;
+            if (isAsciiLetter(c)) {
+                while (i < n && isAsciiLetter(text.charAt(i))) i++;
+                cost = (i - start + 3) / 4;
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                boolean newline = false;
+                while (i < n && (text.charAt(i) == ' ' || text.charAt(i) == '\t'
+                        || text.charAt(i) == '\n' || text.charAt(i) == '\r')) {
+                    if (text.charAt(i) == '\n') newline = true;
+                    i++;
+                }
+                // 공백 한 칸은 다음 단어 토큰에 붙는다. 줄바꿈이나 여러 칸은 한 토큰으로 묶인다.
+                cost = (newline || i - start > 1) ? 1 : 0;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                i += 2;
+                cost = 1;
+            } else {
+                // 숫자, 기호, 한글 등은 글자당 1토큰
+                i++;
+                cost = 1;
+            }
+            if (maxTokens >= 0 && tokens + cost > maxTokens) return start;
+            tokens += cost;
+        }
+        return maxTokens < 0 ? tokens : n;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,29 @@
+package com.secureai.docshield.util;
+
+/**
+ * 문자열을 인코딩하지 않고 UTF-8 바이트 수를 센다. (요청/응답 크기 지표용 — getBytes로 사본을 만들지 않는다)
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    public static long length(CharSequence text) {
+        if (text == null) return 0;
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -25,7 +25,8 @@ const state = {
     docs: {}, // doc_id -> { title, categories:string[], preview? }
     byCategory: Object.fromEntries(CAT_KEYS.map(k => [k, []])),
     selectedDocIds: new Set(),
-    collapsedCats: Object.fromEntries(CAT_KEYS.map(k => [k, false])) // false=접힘(기본)
+    collapsedCats: Object.fromEntries(CAT_KEYS.map(k => [k, false])), // false=접힘(기본)
+    docPages: Object.fromEntries(CAT_KEYS.map(k => [k, { cursors: [null], next: null, loaded: false }])) // 카테고리별 /api/documents 페이지 위치
 };
 
 /* ========= 유틸 ========= */
@@ -290,11 +291,19 @@ function renderCategories(){
             state.collapsedCats[key] = !state.collapsedCats[key];
             sec.setAttribute('aria-expanded', String(state.collapsedCats[key]));
             btn.setAttribute('aria-expanded', String(state.collapsedCats[key]));
+            if (state.collapsedCats[key] && !state.docPages[key].loaded) loadDocumentsByType(key);
         };
         head.addEventListener('click', (e)=>{ if(!(e.target instanceof HTMLInputElement)) toggle(); });
         btn.addEventListener('click', (e)=>{ e.stopPropagation(); toggle(); });
 
-        sec.appendChild(head); sec.appendChild(list);
+        // 페이지 이동
+        const pager = document.createElement('div');
+        pager.className='doc-pager'; pager.id=`pager-${key}`; pager.hidden=true;
+        pager.innerHTML = '<button type="button" class="prev">◀ 이전</button><span class="page-no"></span><button type="button" class="next">다음 ▶</button>';
+        pager.querySelector('.prev').addEventListener('click', ()=>loadDocumentsByType(key, -1));
+        pager.querySelector('.next').addEventListener('click', ()=>loadDocumentsByType(key, 1));
+
+        sec.appendChild(head); sec.appendChild(list); sec.appendChild(pager);
         root.appendChild(sec);
 
         renderDocListForCategory(key);
@@ -320,6 +329,7 @@ function renderDocListForCategory(catKey){
         li.appendChild(cb); li.appendChild(title);
         listEl.appendChild(li);
     });
+    renderPager(catKey);
 }
 
 /* ========= 선택/요약 ========= */
@@ -425,7 +435,7 @@ function pushBotMarkdownWithMeta(markdown, metrics) {
 
 async function askMulti(docIds, question) {
     const params = new URLSearchParams();
-    params.append('docId', docIds[0]);      // 백엔드는 하나만 받음
+    docIds.forEach(id => params.append('docIds', id));   // 여러 개면 서버가 문서별 질의 후 답변을 합친다.
     params.append('question', question);
 
     const r = await fetch('/api/ask?' + params.toString(), {
@@ -434,10 +444,76 @@ async function askMulti(docIds, question) {
     });
     if (!r.ok) throw new Error(`/ask 실패: ${r.status}`);
 
-    // 응답이 GenericAiResponse → markdown 문자열
-    const data = await r.json(); // { markdown: "..." }
+    // 응답이 GenericAiResponse → markdown 문자열 (+ 멀티 문서면 metrics)
+    const data = await r.json(); // { markdown: "...", metrics? }
     return data;
 }
+// 문서 하나에 대한 질문은 /ask/stream(SSE)으로 받아 도착하는 대로 말풍선에 그린다.
+async function askStream(docId, question) {
+    const params = new URLSearchParams();
+    params.append('docId', docId);
+    params.append('question', question);
+
+    const started = performance.now();
+    const r = await fetch('/api/ask/stream?' + params.toString(), {
+        method: 'POST',
+        credentials: 'include',
+        headers: { 'Accept': 'text/event-stream' }
+    });
+    if (!r.ok || !r.body) throw new Error(`/ask/stream 실패: ${r.status}`);
+
+    // 1️⃣ 빈 말풍선을 먼저 만들고 조각이 올 때마다 다시 렌더링
+    const bubble = document.createElement('div');
+    bubble.className = 'bubble bot';
+    bubble.innerHTML = '<div class="viewer md"></div>';
+    const viewer = bubble.firstElementChild;
+    const row = document.createElement('div');
+    row.style.display = 'flex';
+    row.style.justifyContent = 'flex-start';
+    row.appendChild(bubble);
+    historyEl.appendChild(row);
+
+    let markdown = '';
+    let pending = false;
+    const render = () => {
+        pending = false;
+        viewer.innerHTML = renderInlineMarkdown(markdown);
+        historyEl.scrollTop = historyEl.scrollHeight;
+    };
+
+    // 2️⃣ SSE 프레임 파싱 (빈 줄로 구분, event:/data: 줄)
+    const reader = r.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true });
+        let sep;
+        while ((sep = buffer.search(/\r?\n\r?\n/)) >= 0) {
+            const frame = buffer.slice(0, sep);
+            buffer = buffer.slice(sep).replace(/^\r?\n\r?\n/, '');
+            let event = 'message', data = '';
+            for (const line of frame.split(/\r?\n/)) {
+                if (line.startsWith('event:')) event = line.slice(6).trim();
+                else if (line.startsWith('data:')) data += line.slice(5).trim();
+            }
+            if (!data) continue;
+            const payload = JSON.parse(data);
+            if (event === 'delta') {
+                markdown += payload.text || '';
+                if (!pending) { pending = true; requestAnimationFrame(render); }
+            } else if (event === 'error') {
+                markdown += (markdown ? '\n\n' : '') + (payload.message || '오류');
+            }
+        }
+    }
+
+    // 3️⃣ 마지막 렌더링 + 메타바(소요 시간)
+    render();
+    bubble.insertAdjacentHTML('afterbegin', `<div class="metabar">${formatLatency(performance.now() - started)}</div>`);
+    return markdown;
+}
 /* ========= 변환 → 서버 호출 (upload→result) ========= */
 $('#btnTransform').addEventListener('click', async ()=> {
     const file = $('#file').files?.[0];
@@ -508,6 +584,14 @@ $('#chatForm').addEventListener('submit', async (e) => {
     pushText(question, 'me'); // 내가 보낸 질문을 채팅창에 표시
 
     try {
+        // 문서 하나면 스트리밍으로 받는다.
+        if (docIds.length === 1 && window.ReadableStream) {
+            const answer = await askStream(docIds[0], question);
+            if (!answer) pushText('(응답 없음)', 'bot');
+            $('#chatInput').value = '';
+            return;
+        }
+
         // 서버 호출
         const res = await askMulti(docIds, question);
         if (res.markdown) {
@@ -577,14 +661,31 @@ $('#chatForm').addEventListener('submit', async (e) => {
     // ... 생략 ...
 });
 
-/* ✅ 카테고리별 문서 목록 불러오기 */
-async function loadDocumentsByType(type) {
+/* ✅ 카테고리별 문서 목록 불러오기 (한 번에 한 페이지) */
+const DOC_PAGE_SIZE = 50;
+
+// move: 0=현재 페이지 다시, 1=다음, -1=이전. 서버 커서는 앞으로만 가므로 지나온 커서를 쌓아 두고 이전 페이지는 그걸로 다시 받는다.
+async function loadDocumentsByType(type, move = 0) {
+    const pg = state.docPages[type];
+    if (move > 0 && !pg.next) return [];
+    if (move < 0 && pg.cursors.length <= 1) return [];
+    const cursor = move > 0 ? pg.next : move < 0 ? pg.cursors[pg.cursors.length - 2] : pg.cursors[pg.cursors.length - 1];
     try {
-        const res = await fetch(`/api/documents?type=${type}`);
+        const params = new URLSearchParams({ type, size: String(DOC_PAGE_SIZE) });
+        if (cursor) params.append('cursor', cursor);
+        const res = await fetch(`/api/documents?${params.toString()}`);
         if (!res.ok) throw new Error(`HTTP ${res.status}`);
         const docs = await res.json();
-        console.log(`📄 ${type} 문서 목록:`, docs);
-        toast(`${type} 문서 ${docs.length}개 불러옴`);
+
+        if (move > 0) pg.cursors.push(cursor);
+        else if (move < 0) pg.cursors.pop();
+        pg.next = res.headers.get('X-Next-Cursor');
+        pg.loaded = true;
+
+        docs.forEach(d => { state.docs[d.id] = { ...state.docs[d.id], title: d.fileName || d.id, categories: [type] }; });
+        state.byCategory[type] = docs.map(d => d.id);
+        renderDocListForCategory(type);
+        console.log(`📄 ${type} 문서 목록 ${pg.cursors.length}페이지:`, docs);
         return docs;
     } catch (err) {
         console.error('⚠️ 문서 목록 불러오기 실패:', err);
@@ -593,6 +694,16 @@ async function loadDocumentsByType(type) {
     }
 }
 
+function renderPager(catKey){
+    const pager = document.getElementById(`pager-${catKey}`);
+    if (!pager) return;
+    const pg = state.docPages[catKey];
+    pager.hidden = !pg.loaded || (pg.cursors.length <= 1 && !pg.next);
+    pager.querySelector('.prev').disabled = pg.cursors.length <= 1;
+    pager.querySelector('.next').disabled = !pg.next;
+    pager.querySelector('.page-no').textContent = `${pg.cursors.length}페이지`;
+}
+
 /* ========= 초기화 ========= */
 (function initial() {
     setTab('transform');
@@ -0,0 +1,92 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentContent;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.repository.DocumentContentRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /api/ask/stream — Gemini 조각이 도착한 순서대로 delta 이벤트로 나가고 done으로 끝난다.
+ * 끝까지 받은 답변만 캐시되어 같은 질문은 Gemini 없이 한 번에 나가고, 업스트림 실패는 error 이벤트가 된다.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:ask-stream;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class AskStreamServiceTest {
+
+    private static final PythonStub PYTHON = new PythonStub();
+    private static final GeminiStub GEMINI = new GeminiStub();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DocumentPipelineService pipeline;
+
+    @Autowired
+    private DocumentContentRepository contentRepository;
+
+    @DynamicPropertySource
+    static void upstreams(DynamicPropertyRegistry registry) {
+        registry.add("python.server.url", PYTHON::url);
+        registry.add("gemini.api.base-url", GEMINI::url);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        PYTHON.stop();
+        GEMINI.stop();
+    }
+
+    @Test
+    void streamsFragmentsThenReplaysCachedAnswerAndReportsUpstreamErrors() throws Exception {
+        DocumentResult doc = pipeline.process(UUID.randomUUID().toString(), "휴가규정.txt",
+                new ByteArrayResource("연차는 입사 1년 후 15일이 부여된다.\n".getBytes(StandardCharsets.UTF_8)), PipelineListener.NONE);
+        GEMINI.reset();
+        GEMINI.answer("연차는 ", "15일", "입니다.");
+
+        String streamed = stream(doc.getId(), "연차는 며칠인가요?");
+        assertThat(GEMINI.takeRequests()).hasSize(1);
+        assertThat(streamed).containsSubsequence(
+                "event:delta", "\"text\":\"연차는 \"",
+                "event:delta", "\"text\":\"15일\"",
+                "event:delta", "\"text\":\"입니다.\"",
+                "event:done", "\"length\":" + "연차는 15일입니다.".length());
+        assertThat(streamed).doesNotContain("event:error");
+        assertThat(contentRepository.findById(doc.getId()).map(DocumentContent::getGeminiMarkdown)).contains("연차는 15일입니다.");
+
+        // 같은 질문(공백/문장부호만 다름)은 캐시에서 한 조각으로 나간다.
+        String cached = stream(doc.getId(), "  연차는 며칠인가요  ");
+        assertThat(GEMINI.takeRequests()).isEmpty();
+        assertThat(cached).containsSubsequence("event:delta", "\"text\":\"연차는 15일입니다.\"", "event:done");
+
+        GEMINI.fail("업스트림-실패");
+        String failed = stream(doc.getId(), "업스트림-실패 질문");
+        assertThat(failed).contains("event:error").doesNotContain("event:done");
+    }
+
+    private String stream(String docId, String question) throws Exception {
+        MvcResult started = mvc.perform(post("/api/ask/stream").param("docId", docId).param("question", question))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(10_000);
+        return started.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,154 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.repository.DocumentChunkRepository;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * 일괄 업로드: ZIP 항목과 일반 파일이 함께 처리되고, 파일마다 NDJSON 줄이 나온 뒤 매니페스트가 오며, 행은 모아서 저장된다.
+ * 행을 저장하지 못하면 그 파일들이 남긴 본문과 청크를 지운다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk-upload;DB_CLOSE_DELAY=-1",
+        "docshield.bulk.per-request=2",
+        "docshield.bulk.save-batch=2",
+        "docshield.bulk.max-entry-size=1KB",
+        "docshield.mask-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+class BulkUploadServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final PythonStub PYTHON = new PythonStub();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockitoSpyBean
+    private DocumentResultRepository repository;
+
+    @Autowired
+    private DocumentChunkRepository chunkRepository;
+
+    @Autowired
+    private DocumentContentService contentService;
+
+    @DynamicPropertySource
+    static void pythonUrl(DynamicPropertyRegistry registry) {
+        registry.add("python.server.url", PYTHON::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        PYTHON.stop();
+    }
+
+    @Test
+    void processesZipEntriesAndFilesAndStreamsManifest() throws Exception {
+        byte[] zip = zip(
+                "부서/a.txt", "a 본문\n",
+                "부서/b.txt", "b 본문\n",
+                "부서/.hidden", "무시\n",
+                "부서/big.txt", "x".repeat(2048));
+        MockMultipartFile archive = new MockMultipartFile("files", "dept.zip", "application/zip", zip);
+        MockMultipartFile plain = new MockMultipartFile("files", "c.txt", "text/plain", "c 본문\n".getBytes(StandardCharsets.UTF_8));
+
+        MvcResult result = mvc.perform(multipart("/api/upload/bulk").file(archive).file(plain))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(10_000);
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(MAPPER.readTree(line));
+        }
+        assertThat(lines).hasSize(5);
+        assertThat(lines.subList(0, 4)).allMatch(line -> line.get("event").asText().equals("file"));
+
+        JsonNode done = lines.get(4);
+        assertThat(done.get("event").asText()).isEqualTo("done");
+        assertThat(done.get("total").asInt()).isEqualTo(4);
+        assertThat(done.get("completed").asInt()).isEqualTo(3);
+        assertThat(done.get("skipped").asInt()).isEqualTo(1);
+
+        List<String> completedIds = new ArrayList<>();
+        for (JsonNode file : done.get("files")) {
+            if (file.get("status").asText().equals("SKIPPED")) {
+                assertThat(file.get("file").asText()).isEqualTo("dept.zip!/부서/big.txt");
+                assertThat(file.get("id").isNull()).isTrue();
+            } else {
+                assertThat(file.get("status").asText()).isEqualTo("COMPLETED");
+                completedIds.add(file.get("id").asText());
+            }
+        }
+
+        // done 줄이 나갈 때는 모든 행이 저장되어 있다.
+        List<DocumentResult> rows = repository.findAllById(completedIds);
+        assertThat(rows).hasSize(3)
+                .allMatch(row -> row.getStatus() == ProcessingStatus.COMPLETED)
+                .extracting(DocumentResult::getFileName)
+                .containsExactlyInAnyOrder("a.txt", "b.txt", "c.txt");
+    }
+
+    @Test
+    void failedRowSaveRemovesWhatTheFilesLeftBehind() throws Exception {
+        doThrow(new IllegalStateException("db down")).when(repository).saveAll(anyList());
+        MockMultipartFile plain = new MockMultipartFile("files", "d.txt", "text/plain", "d 본문\n".getBytes(StandardCharsets.UTF_8));
+
+        MvcResult result = mvc.perform(multipart("/api/upload/bulk").file(plain))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(10_000);
+
+        // 파일 줄은 나갔지만 done 줄은 없다.
+        String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        JsonNode file = MAPPER.readTree(lines[0]);
+        assertThat(file.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(lines).noneMatch(line -> line.contains("\"done\""));
+
+        String id = file.get("id").asText();
+        assertThat(repository.findById(id)).isEmpty();
+        assertThat(contentService.pythonMarkdown(id)).isEmpty();
+        assertThat(chunkRepository.findByDocIdOrderBySeq(id)).isEmpty();
+    }
+
+    private static byte[] zip(String... pathsAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < pathsAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(pathsAndContents[i]));
+                zip.write(pathsAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,39 @@
+package com.secureai.docshield.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 내용 기준 청크 경계 — 줄바꿈 없는 긴 문단도 해시 경계에서 잘려, 앞부분이 바뀌어도 뒤 청크는 이전 판과 같다.
+ */
+class ChunkingTextSinkTest {
+
+    @Test
+    void paragraphWithoutNewlinesStillRealignsAfterAnEdit() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) sb.append((char) ('가' + random.nextInt(500)));
+        String original = sb.toString();
+
+        List<String> before = chunks(original);
+        List<String> after = chunks("앞에 덧붙인 문장 " + original);
+
+        assertThat(String.join("", before)).isEqualTo(original);
+        assertThat(before).allMatch(chunk -> chunk.length() <= 2000);
+        // 첫 청크만 달라지고 나머지 경계는 예전 자리로 돌아온다.
+        assertThat(after.subList(1, after.size())).isEqualTo(before.subList(1, before.size()));
+    }
+
+    private static List<String> chunks(String text) throws Exception {
+        List<String> out = new ArrayList<>();
+        ChunkingTextSink sink = new ChunkingTextSink(2000, true, (seq, chunk) -> out.add(chunk));
+        for (int i = 0; i < text.length(); i += 333) sink.write(text.substring(i, Math.min(text.length(), i + 333)));
+        sink.close();
+        return out;
+    }
+}
@@ -0,0 +1,77 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로컬 문서 유형 분류기 — 예시 코퍼스와 기본 단어로 유형을 어림하고, Python 유형과의 일치율을 센다.
+ * 계속 학습은 켰을 때만 하고 카운트는 max-features에서 절반으로 줄어든다. 최종 유형으로는 확신이 높을 때만 쓴다.
+ */
+class DocumentClassifierTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DocumentClassifier classifier = new DocumentClassifier(registry, true, 4000, 1.0, 0.9, 1_000_000);
+
+    @Test
+    void predictsTypeFromCorpusVocabulary() {
+        assertThat(classifier.predict("[인사기록부]\n사원명: 김민수\n직급: 대리\n소속부서: 인사팀\n입사일: 2019-03-15\n연봉 정보: 5,200만원"))
+                .isEqualTo(DocumentType.HR_INFO);
+        assertThat(classifier.predict("2025년 상반기 매출과 영업이익, 신규 거래처 계약 및 예산 계획"))
+                .isEqualTo(DocumentType.BUSINESS_INFO);
+        assertThat(classifier.predict("주민등록번호와 여권 번호, 가족관계 및 주소 정보"))
+                .isEqualTo(DocumentType.PERSONAL_INFO);
+        assertThat(classifier.predict("qwerty zxcv")).isNull();
+    }
+
+    @Test
+    void countsAgreementWithPythonLabelAndLearnsFromIt() {
+        String text = "분기별 물류 창고 재고 회전율 점검표";
+        classifier.record(text, DocumentType.HR_INFO, DocumentType.HR_INFO);
+        classifier.record(text, DocumentType.HR_INFO, DocumentType.BUSINESS_INFO);
+        classifier.record(text, null, DocumentType.BUSINESS_INFO);
+
+        assertThat(registry.counter("docshield.classifier.predictions", "outcome", "agree").count()).isEqualTo(1);
+        assertThat(registry.counter("docshield.classifier.predictions", "outcome", "disagree").count()).isEqualTo(1);
+        assertThat(classifier.agreementRate()).isEqualTo(0.5);
+        assertThat(classifier.predict("물류 창고 재고 회전율")).isEqualTo(DocumentType.BUSINESS_INFO);
+    }
+
+    @Test
+    void learningIsOptIn() {
+        DocumentClassifier frozen = new DocumentClassifier(new SimpleMeterRegistry(), false, 4000, 1.0, 0.9, 1_000_000);
+        String text = "분기별 물류 창고 재고 회전율 점검표";
+        DocumentType before = frozen.predict("물류 창고 재고 회전율");
+        for (int i = 0; i < 20; i++) frozen.record(text, null, DocumentType.TECH_INFO);
+
+        assertThat(frozen.predict("물류 창고 재고 회전율")).isEqualTo(before);
+    }
+
+    @Test
+    void countsDecayInsteadOfGrowingWithoutBound() {
+        // 상한을 작게 두면 학습이 쌓여도 유형별 특징 수가 상한 근처에 머문다.
+        DocumentClassifier bounded = new DocumentClassifier(new SimpleMeterRegistry(), true, 4000, 1.0, 0.9, 5_000);
+        String text = "물류 창고 재고 회전율 점검 ".repeat(50);
+        for (int i = 0; i < 200; i++) bounded.record(text, null, DocumentType.BUSINESS_INFO);
+
+        // 한 번에 더해지는 특징 수(약 550)만큼만 상한을 넘을 수 있다.
+        assertThat(bounded.trainedFeatures(DocumentType.BUSINESS_INFO)).isLessThanOrEqualTo(5_000 + 1_000);
+        assertThat(bounded.predict("물류 창고 재고 회전율")).isEqualTo(DocumentType.BUSINESS_INFO);
+    }
+
+    @Test
+    void finalTypeNeedsHighConfidence() {
+        String clear = "[인사기록부]\n사원명: 김민수\n직급: 대리\n소속부서: 인사팀\n입사일: 2019-03-15\n연봉 정보: 5,200만원";
+        assertThat(classifier.classify(clear).confidence()).isGreaterThan(0.9);
+        assertThat(classifier.finalType(clear)).isEqualTo(DocumentType.HR_INFO);
+
+        // 두 유형의 단어가 섞여 한쪽으로 기울지 않으면 힌트로는 쓸 수 있어도 최종 유형으로는 쓰지 않는다.
+        String mixed = "매출 연봉";
+        assertThat(classifier.predict(mixed)).isEqualTo(DocumentType.HR_INFO);
+        assertThat(classifier.classify(mixed).confidence()).isLessThan(0.9);
+        assertThat(classifier.finalType(mixed)).isNull();
+        assertThat(classifier.finalType("qwerty zxcv")).isNull();
+    }
+}
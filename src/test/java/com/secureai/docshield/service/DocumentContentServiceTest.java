@@ -0,0 +1,91 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.util.ContentCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.StringWriter;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 본문 압축 — 새로 저장하는 본문은 압축되고, 압축 전에 저장된 행은 그대로 읽히며 일괄 압축 후에도 내용이 같다.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:contents;DB_CLOSE_DELAY=-1")
+class DocumentContentServiceTest {
+
+    private static final String MARKDOWN = "{\"markdown\":\"" + "## 인사 기록\\n성명: [이름], 연락처: [전화번호]\\n".repeat(50)
+            + "\",\"documentType\":\"HR_INFO\"}";
+
+    @Autowired
+    private DocumentContentService contentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void savedBodiesAreStoredCompressed() {
+        String id = UUID.randomUUID().toString();
+        contentService.save(id, MARKDOWN);
+        contentService.saveAnswer(id, "답변 내용입니다. ".repeat(100));
+
+        assertThat(ContentCodec.isEncoded(column(id, "python_markdown"))).isTrue();
+        assertThat(ContentCodec.isEncoded(column(id, "gemini_markdown"))).isTrue();
+        assertThat(column(id, "python_markdown").length()).isLessThan(MARKDOWN.length() / 4);
+        assertThat(contentService.pythonMarkdown(id)).contains(MARKDOWN);
+        assertThat(streamed(id)).isEqualTo(MARKDOWN);
+    }
+
+    @Test
+    void uncompressedRowsAreReadAsIsAndCompressedInBatches() {
+        String[] ids = new String[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            jdbcTemplate.update("insert into document_contents (id, python_markdown) values (?, ?)", ids[i], MARKDOWN);
+        }
+        assertThat(contentService.pythonMarkdown(ids[0])).contains(MARKDOWN);
+        assertThat(streamed(ids[0])).isEqualTo(MARKDOWN);
+
+        assertThat(contentService.compressStored(2)).isEqualTo(ids.length);
+        assertThat(contentService.compressStored(2)).isZero();
+
+        for (String id : ids) {
+            assertThat(ContentCodec.isEncoded(column(id, "python_markdown"))).isTrue();
+            assertThat(contentService.pythonMarkdown(id)).contains(MARKDOWN);
+            assertThat(streamed(id)).isEqualTo(MARKDOWN);
+        }
+    }
+
+    @Test
+    void encodedHeaderNamesAKnownDictionary() {
+        String stored = ContentCodec.encode(MARKDOWN);
+        assertThat(ContentCodec.decode(stored)).isEqualTo(MARKDOWN);
+
+        // 머리글: MAGIC + 사전 id(2) + CRC(8) + ':'
+        int id = ContentCodec.MAGIC.length();
+        String unknownId = stored.substring(0, id) + "7f" + stored.substring(id + 2);
+        String wrongCrc = stored.substring(0, id + 2) + "00000000" + stored.substring(id + 10);
+        assertThatThrownBy(() -> ContentCodec.decode(unknownId)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("알 수 없는 압축 사전");
+        assertThatThrownBy(() -> ContentCodec.decode(wrongCrc)).isInstanceOf(IllegalStateException.class);
+
+        // 머리글 모양이 아니면 우연히 제어 문자로 시작해도 원문이다.
+        String plain = "\u0001" + "압축하지 않은 본문 ".repeat(40);
+        assertThat(ContentCodec.isEncoded(plain)).isFalse();
+        assertThat(ContentCodec.decode(plain)).isEqualTo(plain);
+    }
+
+    private String column(String id, String column) {
+        return jdbcTemplate.queryForObject("select " + column + " from document_contents where id = ?", String.class, id);
+    }
+
+    private String streamed(String id) {
+        StringWriter out = new StringWriter();
+        contentService.streamPythonMarkdown(id, reader -> reader.transferTo(out));
+        return out.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.repository.DocumentChunkRepository;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * 업로드 파이프라인 — 실패 처리(호출 스레드에서 난 예외도 행을 FAILED로 남기고 청크를 지운다)와
+ * 추출 텍스트 해시가 같은 문서의 마스킹 결과 재사용(캐시 창보다 큰 문서 포함), JVM 안의 빠른 마스킹, previousId로 고친 판을 올리면 바뀐 청크만 마스킹.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pipeline;DB_CLOSE_DELAY=-1",
+        "docshield.pipeline.chunk-chars=100",
+        "docshield.fast-mask.skip-llm=true"
+})
+class DocumentPipelineServiceTest {
+
+    private static final PythonStub PYTHON = new PythonStub();
+
+    @Autowired
+    private DocumentPipelineService pipeline;
+
+    @Autowired
+    private DocumentResultRepository repository;
+
+    @Autowired
+    private DocumentChunkRepository chunkRepository;
+
+    @Autowired
+    private DocumentContentService contentService;
+
+    @MockitoSpyBean
+    private RetrievalService retrievalService;
+
+    @DynamicPropertySource
+    static void pythonUrl(DynamicPropertyRegistry registry) {
+        registry.add("python.server.url", PYTHON::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        PYTHON.stop();
+    }
+
+    @Test
+    void failureOnCallerThreadMarksRowFailedAndRemovesChunksAndContent() {
+        String id = UUID.randomUUID().toString();
+        doThrow(new IllegalStateException("index down")).when(retrievalService).index(eq(id), any());
+
+        assertThatThrownBy(() -> upload(id, "회의록 본문입니다\n".repeat(40)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("index down");
+
+        assertThat(repository.findById(id).orElseThrow().getStatus()).isEqualTo(ProcessingStatus.FAILED);
+        assertThat(chunkRepository.findByDocIdOrderBySeq(id)).isEmpty();
+        assertThat(contentService.pythonMarkdown(id)).isEmpty();
+    }
+
+    @Test
+    void sameExtractedTextReusesMaskedResultWithoutCallingPython() throws Exception {
+        String text = "분기 실적 검토 회의 " + UUID.randomUUID() + "\n" + "안건 정리와 진행 상황 보고\n".repeat(10);
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+
+        PYTHON.takeCalls();
+        upload(first, text);
+        assertThat(PYTHON.takeCalls()).isGreaterThan(1);
+        upload(second, text);
+        assertThat(PYTHON.takeCalls()).isZero();
+
+        assertThat(repository.findById(second).orElseThrow().getContentHash())
+                .isEqualTo(repository.findById(first).orElseThrow().getContentHash());
+        assertThat(result(second)).isEqualTo(result(first));
+
+        // 한 글자라도 다르면 다시 마스킹한다.
+        upload(UUID.randomUUID().toString(), text + ".");
+        assertThat(PYTHON.takeCalls()).isGreaterThan(0);
+    }
+
+    @Test
+    void structuredPiiIsMaskedInJvmAndNumericChunksSkipPython() throws Exception {
+        PYTHON.takeCalls();
+        String prose = UUID.randomUUID().toString();
+        upload(prose, "담당 직원 연락처는 010-2345-6789 이고 메일은 minsu.kim@company.com 입니다 " + prose);
+        assertThat(PYTHON.takeCalls()).isPositive();
+        assertThat(result(prose)).contains("[MASKED]").doesNotContain("010-2345-6789").doesNotContain("minsu.kim");
+
+        String table = UUID.randomUUID().toString();
+        upload(table, "no,amount,card\n1,52000,1234-5678-9012-3456\n2,13000,9876-5432-1098-7654\n" + table.hashCode());
+        assertThat(PYTHON.takeCalls()).isZero();
+        assertThat(result(table)).doesNotContain("1234-5678").doesNotContain("9876-5432");
+    }
+
+    @Test
+    void cueTermAnywhereInTheDocumentSendsEveryChunkThroughPython() throws Exception {
+        // 숫자 청크가 먼저 오고 이름 단서(성명)는 뒤 청크에 있다 — 앞 청크도 LLM을 건너뛰면 안 된다.
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 12; i++) sb.append(i).append(",52000,13000,").append(i * 37).append('\n');
+        String numbers = sb.toString();
+        String id = UUID.randomUUID().toString();
+
+        PYTHON.takeCalls();
+        upload(id, numbers + "성명 김민수 부서 영업1팀 비고 " + id + "\n");
+        assertThat(PYTHON.takeCalls()).isPositive();
+        assertThat(result(id)).contains("<<0,52000,13000,0");
+    }
+
+    @Test
+    void revisedReuploadMasksOnlyChangedChunksAndLinksPreviousVersion() throws Exception {
+        // 청크가 캐시 창(16개)보다 많아 문서 전체 해시 재사용은 일어나지 않는 크기
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 80; i++) {
+            sb.append("제").append(i).append("조 정보보호 정책 조항 내용 ").append(i * 7919 % 1000).append('\n');
+        }
+        String original = sb.toString();
+        int middle = original.indexOf("제40조");
+        String revised = original.substring(0, middle) + "제40조의2 신설된 접근 통제 조항\n" + original.substring(middle);
+        String fileName = "정책-" + UUID.randomUUID() + ".txt";
+
+        PYTHON.takeCalls();
+        DocumentResult first = process(fileName, original);
+        int fullCalls = PYTHON.takeCalls();
+        DocumentResult second = process(fileName, revised, first.getId());
+        int revisedCalls = PYTHON.takeCalls();
+
+        assertThat(revisedCalls).isPositive().isLessThan(fullCalls / 2);
+        assertThat(first.versionNumber()).isEqualTo(1);
+        assertThat(second.getPreviousId()).isEqualTo(first.getId());
+        assertThat(second.versionNumber()).isEqualTo(2);
+        assertThat(repository.findById(second.getId()).orElseThrow().getPreviousId()).isEqualTo(first.getId());
+
+        // 처음부터 마스킹한 결과와 같다. 같은 파일 이름이라도 previousId가 없으면 판을 잇지 않는다.
+        DocumentResult fresh = process(fileName, revised);
+        assertThat(fresh.getPreviousId()).isNull();
+        assertThat(fresh.versionNumber()).isEqualTo(1);
+        assertThat(result(second.getId())).isEqualTo(result(fresh.getId()));
+    }
+
+    @Test
+    void unknownPreviousIdIsRejectedBeforeAnyRowIsSaved() {
+        String id = UUID.randomUUID().toString();
+        assertThatThrownBy(() -> pipeline.process(id, "정책.txt",
+                new ByteArrayResource("본문\n".getBytes(StandardCharsets.UTF_8)), UUID.randomUUID().toString(),
+                PipelineListener.NONE))
+                .isInstanceOf(UnknownPreviousVersionException.class);
+        assertThat(repository.findById(id)).isEmpty();
+    }
+
+    @Test
+    void largeReuploadUnderAnotherNameReusesEveryChunk() throws Exception {
+        // 청크가 캐시 창(16개)보다 많아 마스킹 전에 문서 전체 해시를 확인하지 못하는 크기
+        StringBuilder sb = new StringBuilder("감사 보고서 " + UUID.randomUUID() + "\n");
+        for (int i = 0; i < 80; i++) {
+            sb.append("항목 ").append(i).append(" 점검 결과 적정, 후속 조치 없음 ").append(i * 104729 % 997).append('\n');
+        }
+        String text = sb.toString();
+
+        PYTHON.takeCalls();
+        DocumentResult first = process("감사-" + UUID.randomUUID() + ".txt", text);
+        assertThat(PYTHON.takeCalls()).isPositive();
+        DocumentResult second = process("사본-" + UUID.randomUUID() + ".txt", text);
+        assertThat(PYTHON.takeCalls()).isZero();
+
+        assertThat(second.getPreviousId()).isNull();
+        assertThat(second.getContentHash()).isEqualTo(first.getContentHash());
+        assertThat(result(second.getId())).isEqualTo(result(first.getId()));
+    }
+
+    private DocumentResult process(String fileName, String text) throws Exception {
+        return process(fileName, text, null);
+    }
+
+    private DocumentResult process(String fileName, String text, String previousId) throws Exception {
+        return pipeline.process(UUID.randomUUID().toString(), fileName,
+                new ByteArrayResource(text.getBytes(StandardCharsets.UTF_8)), previousId, PipelineListener.NONE);
+    }
+
+    private String result(String id) {
+        return contentService.pythonMarkdown(id).orElseThrow();
+    }
+
+    private void upload(String id, String text) throws Exception {
+        pipeline.process(id, id + ".txt", new ByteArrayResource(text.getBytes(StandardCharsets.UTF_8)), PipelineListener.NONE);
+    }
+}
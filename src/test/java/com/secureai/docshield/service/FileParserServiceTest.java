@@ -0,0 +1,145 @@
+package com.secureai.docshield.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 스트리밍 추출(TextSink) — 형식마다 작은 문서를 만들어 기존 DOM 기반 추출(String 반환)과 같은 텍스트가 나오는지 본다.
+ * 표/시트 구분자(셀 사이 탭, 행 끝 개행)도 같아야 한다.
+ */
+class FileParserServiceTest {
+
+    private final FileParserService streaming = new FileParserService(true);
+    private final FileParserService legacy = new FileParserService(false);
+
+    @Test
+    void textMatchesAcrossReadBuffers() throws Exception {
+        // 8192자 읽기 버퍼 경계에 한글(3바이트)이 걸치도록
+        byte[] txt = ("급여 계좌 변경 안내 " + "가".repeat(9000) + "\r\n끝\n").getBytes(StandardCharsets.UTF_8);
+
+        assertThat(parse(streaming, "memo.txt", txt)).isEqualTo(parse(legacy, "memo.txt", txt));
+    }
+
+    @Test
+    void pdfMatchesPageByPage() throws Exception {
+        byte[] pdf = pdf("Quarterly security review", "Access log retention: 90 days");
+
+        String text = parse(streaming, "report.pdf", pdf);
+        assertThat(text).isEqualTo(parse(legacy, "report.pdf", pdf));
+        assertThat(text).contains("Quarterly security review", "Access log retention: 90 days");
+    }
+
+    @Test
+    void docxMatchesIncludingTableSeparators() throws Exception {
+        byte[] docx = docx();
+
+        String text = parse(streaming, "notice.docx", docx);
+        assertThat(text).isEqualTo(parse(legacy, "notice.docx", docx));
+        // 셀 사이 탭, 행 끝 개행, 한 셀 안의 문단 사이 탭
+        assertThat(text).contains("대상자\t영업1팀\n", "이름\t부서\t연락처\n", "김민수\t영업1팀\t내선 2041\t휴대폰 별도\n");
+    }
+
+    @Test
+    void xlsxMatchesIncludingRowsAndSheets() throws Exception {
+        byte[] xlsx = xlsx();
+
+        String text = parse(streaming, "payroll.xlsx", xlsx);
+        // 숫자 셀만 다르다: 기존 Cell.toString()은 52000.0, 스트리밍은 화면에 보이는 값(DataFormatter) 52000
+        assertThat(text).isEqualTo(parse(legacy, "payroll.xlsx", xlsx).replace("52000.0", "52000"));
+        assertThat(text).isEqualTo("사번\t성명\t지급액\t\nEMP-001\t김민수\t52000\t\n비고\t두 번째 시트\t\n");
+    }
+
+    @Test
+    void rejectsUnsupportedExtension() {
+        assertThatThrownBy(() -> parse(streaming, "archive.hwp", new byte[0]))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("지원하지 않는 파일 형식");
+    }
+
+    private static String parse(FileParserService parser, String fileName, byte[] content) throws IOException {
+        return parser.parse(fileName, new ByteArrayInputStream(content));
+    }
+
+    private static byte[] pdf(String... pages) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String line : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(line);
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] docx() throws IOException {
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            doc.createParagraph().createRun().setText("인사 발령 통보");
+            XWPFParagraph line = doc.createParagraph();
+            line.createRun().setText("대상자");
+            line.createRun().addTab();
+            line.createRun().setText("영업1팀");
+            line.createRun().addBreak();
+            line.createRun().setText("효력 발생일 2025-03-01");
+
+            XWPFTable table = doc.createTable(2, 3);
+            table.getRow(0).getCell(0).setText("이름");
+            table.getRow(0).getCell(1).setText("부서");
+            table.getRow(0).getCell(2).setText("연락처");
+            table.getRow(1).getCell(0).setText("김민수");
+            table.getRow(1).getCell(1).setText("영업1팀");
+            table.getRow(1).getCell(2).setText("내선 2041");
+            table.getRow(1).getCell(2).addParagraph().createRun().setText("휴대폰 별도");
+
+            doc.createParagraph().createRun().setText("인사팀");
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] xlsx() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet pay = workbook.createSheet("급여");
+            Row header = pay.createRow(0);
+            header.createCell(0).setCellValue("사번");
+            header.createCell(1).setCellValue("성명");
+            header.createCell(2).setCellValue("지급액");
+            Row row = pay.createRow(1);
+            row.createCell(0).setCellValue("EMP-001");
+            row.createCell(1).setCellValue("김민수");
+            row.createCell(2).setCellValue(52000);
+
+            // 빈 셀이 있는 행 — 셀이 없는 자리는 건너뛴다.
+            Sheet note = workbook.createSheet("비고");
+            Row sparse = note.createRow(0);
+            sparse.createCell(0).setCellValue("비고");
+            sparse.createCell(2).setCellValue("두 번째 시트");
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+}
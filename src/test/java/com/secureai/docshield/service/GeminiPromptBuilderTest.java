@@ -0,0 +1,71 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.util.TokenEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 프롬프트 조립 — 미리 직렬화한 조각으로 만든 본문이 올바른 JSON이고, 상한을 넘는 문서는 잘리며, 넘치는 질문은 바로 거절된다.
+ */
+class GeminiPromptBuilderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PromptTemplateRegistry registry = new PromptTemplateRegistry("", Duration.ofMillis(500));
+
+    private GeminiPromptBuilder builder(int maxTokens, String byType) {
+        return new GeminiPromptBuilder(registry, new SimpleMeterRegistry(), maxTokens, byType, 200, 100, true);
+    }
+
+    @Test
+    void buildsSameBodyAsBefore() throws Exception {
+        String doc = "# 인사 기록\n\"따옴표\"와 \\역슬래시\\, 탭\t포함";
+        GeminiPromptBuilder.Prompt prompt = builder(32000, "").build(doc, "요약해줘", DocumentType.HR_INFO);
+
+        JsonNode contents = mapper.readTree(prompt.body()).path("contents");
+        assertThat(contents.get(0).path("role").asText()).isEqualTo("model");
+        assertThat(contents.get(0).path("parts").get(0).path("text").asText())
+                .isEqualTo(registry.get(DocumentType.HR_INFO).promptPrefix());
+        assertThat(contents.get(1).path("parts").get(0).path("text").asText())
+                .isEqualTo("문서(Markdown):\n" + doc + "\n\n질문: 요약해줘");
+        assertThat(prompt.truncated()).isFalse();
+        assertThat(prompt.tokens()).isGreaterThan(TokenEstimator.estimate(doc));
+    }
+
+    @Test
+    void truncatesDocumentToPerTypeLimit() throws Exception {
+        String paragraph = "매출과 영업이익 현황을 분기별로 정리한 단락입니다.\n\n";
+        String doc = paragraph.repeat(200);
+        GeminiPromptBuilder builder = builder(32000, "BUSINESS_INFO=1000");
+
+        GeminiPromptBuilder.Prompt prompt = builder.build(doc, "요약", DocumentType.BUSINESS_INFO);
+
+        assertThat(prompt.truncated()).isTrue();
+        assertThat(prompt.tokens()).isLessThanOrEqualTo(1000);
+        String text = mapper.readTree(prompt.body()).path("contents").get(1).path("parts").get(0).path("text").asText();
+        assertThat(text).contains("(…)").endsWith("질문: 요약");
+        // 다른 유형은 기본 상한이라 자르지 않는다.
+        assertThat(builder.build(doc, "요약", DocumentType.HR_INFO).truncated()).isFalse();
+    }
+
+    @Test
+    void rejectsOversizedQuestionWithoutCallingGemini() {
+        assertThatThrownBy(() -> builder(32000, "").build("문서", "질문".repeat(500), DocumentType.TECH_INFO))
+                .isInstanceOf(PromptTooLargeException.class);
+    }
+
+    @Test
+    void estimatorCountsWordsDigitsAndHangul() {
+        assertThat(TokenEstimator.estimate("hello world")).isEqualTo(4);
+        assertThat(TokenEstimator.estimate("2024")).isEqualTo(4);
+        assertThat(TokenEstimator.estimate("인사기록")).isEqualTo(4);
+        assertThat(TokenEstimator.prefixLength("hello world", 2)).isEqualTo(6);
+    }
+}
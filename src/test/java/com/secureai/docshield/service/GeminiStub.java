@@ -0,0 +1,114 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/**
+ * 테스트용 Gemini 스텁. generateContent는 조각을 이어 붙인 답변 하나를, streamGenerateContent(alt=sse)는
+ * 조각마다 data: 줄 하나를 돌려준다. 요청 본문에 slow(...)로 정한 글자가 있으면 그만큼 늦게,
+ * fail(...)로 정한 글자가 있으면 500으로 답한다.
+ */
+class GeminiStub {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> slow = new ConcurrentHashMap<>();
+    private final List<String> failing = new CopyOnWriteArrayList<>();
+    private volatile List<String> fragments = List.of("답변");
+
+    GeminiStub() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1beta/models/", this::handle);
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void answer(String... fragments) {
+        this.fragments = List.of(fragments);
+    }
+
+    void slow(String marker, long millis) {
+        slow.put(marker, millis);
+    }
+
+    void fail(String marker) {
+        failing.add(marker);
+    }
+
+    void reset() {
+        slow.clear();
+        failing.clear();
+        requests.clear();
+        fragments = List.of("답변");
+    }
+
+    /** 지금까지 받은 요청 본문을 돌려주고 비운다. */
+    List<String> takeRequests() {
+        List<String> taken = new ArrayList<>(requests);
+        requests.clear();
+        return taken;
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(body);
+        try {
+            for (Map.Entry<String, Long> rule : slow.entrySet()) {
+                if (body.contains(rule.getKey())) Thread.sleep(rule.getValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failing.stream().anyMatch(body::contains)) {
+            ex.sendResponseHeaders(500, -1);
+            ex.close();
+            return;
+        }
+
+        boolean stream = ex.getRequestURI().getPath().endsWith(":streamGenerateContent");
+        ex.getResponseHeaders().add("Content-Type", stream ? "text/event-stream" : "application/json");
+        ex.sendResponseHeaders(200, 0);
+        try (OutputStream out = ex.getResponseBody()) {
+            if (stream) {
+                for (String text : fragments) {
+                    out.write(("data: " + MAPPER.writeValueAsString(reply(text)) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } else {
+                out.write(MAPPER.writeValueAsBytes(reply(String.join("", fragments))));
+            }
+        }
+    }
+
+    private static Map<String, Object> reply(String text) {
+        return Map.of(
+                "candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))),
+                "usageMetadata", Map.of("promptTokenCount", 10, "candidatesTokenCount", 2));
+    }
+}
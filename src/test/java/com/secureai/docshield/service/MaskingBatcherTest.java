@@ -0,0 +1,148 @@
+package com.secureai.docshield.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 마스킹 묶음 전송 — 동시에 들어온 요청이 묶여서 나가고 결과가 요청별로 돌아가며, 서버가 일괄 API를 모르면 건별로 돌아간다.
+ * 응답이 오지 않으면 호출 스레드는 read-timeout + 여유 시간 뒤에 그 청크를 실패시킨다.
+ */
+class MaskingBatcherTest {
+
+    private final ExecutorService sender = Executors.newCachedThreadPool();
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void shutdown() {
+        sender.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    // 한 번 부를 때마다 30ms 걸리는 가짜 Python 서버 클라이언트
+    private static class FakeClient extends PythonApiClient {
+        final AtomicInteger singleCalls = new AtomicInteger();
+        final AtomicInteger batchCalls = new AtomicInteger();
+        final List<Integer> batchSizes = new ArrayList<>();
+        volatile boolean batchSupported = true;
+        volatile long delayMs = 30;
+
+        FakeClient() {
+            super(null, null);
+        }
+
+        @Override
+        public String sendToPython(String content) {
+            singleCalls.incrementAndGet();
+            sleep();
+            return "{\"markdown\":\"" + content.toUpperCase() + "\"}";
+        }
+
+        @Override
+        public List<String> sendBatch(List<String> contents) {
+            if (!batchSupported) throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+            batchCalls.incrementAndGet();
+            synchronized (batchSizes) {
+                batchSizes.add(contents.size());
+            }
+            sleep();
+            return contents.stream().map(c -> "{\"markdown\":\"" + c.toUpperCase() + "\"}").toList();
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private MaskingBatcher batcher(FakeClient client) {
+        MaskingBatcher batcher = new MaskingBatcher(client, sender, new SimpleMeterRegistry(), true,
+                8, 65536, Duration.ofMillis(20), Duration.ofSeconds(3), 1, Duration.ofMillis(200), Duration.ofMillis(100));
+        batcher.start();
+        return batcher;
+    }
+
+    private List<String> maskConcurrently(MaskingBatcher batcher, int n) throws Exception {
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String content = "chunk-" + i;
+            futures.add(callers.submit(() -> batcher.mask(content)));
+        }
+        List<String> results = new ArrayList<>();
+        for (Future<String> f : futures) results.add(f.get(10, TimeUnit.SECONDS));
+        return results;
+    }
+
+    @Test
+    void groupsConcurrentRequestsAndFansResultsOut() throws Exception {
+        FakeClient client = new FakeClient();
+        MaskingBatcher batcher = batcher(client);
+        try {
+            for (int round = 0; round < 5; round++) {
+                List<String> results = maskConcurrently(batcher, 16);
+                for (int i = 0; i < 16; i++) {
+                    assertThat(results.get(i)).isEqualTo("{\"markdown\":\"CHUNK-" + i + "\"}");
+                }
+            }
+        } finally {
+            batcher.stop();
+        }
+
+        // 80건을 한 번에 하나씩 보내지 않고, 묶음이 커지면서 호출 수가 줄어든다.
+        assertThat(client.singleCalls.get() + client.batchCalls.get()).isLessThan(60);
+        assertThat(client.batchSizes).anyMatch(size -> size > 1);
+        assertThat(batcher.batchSize()).isGreaterThan(1);
+    }
+
+    @Test
+    void fallsBackToSingleRequestsWhenBatchEndpointIsMissing() throws Exception {
+        FakeClient client = new FakeClient();
+        client.batchSupported = false;
+        MaskingBatcher batcher = batcher(client);
+        try {
+            for (int round = 0; round < 3; round++) {
+                List<String> results = maskConcurrently(batcher, 8);
+                for (int i = 0; i < 8; i++) {
+                    assertThat(results.get(i)).isEqualTo("{\"markdown\":\"CHUNK-" + i + "\"}");
+                }
+            }
+        } finally {
+            batcher.stop();
+        }
+        assertThat(client.batchCalls.get()).isZero();
+        assertThat(client.singleCalls.get()).isEqualTo(24);
+    }
+
+    @Test
+    void callerGivesUpAfterReadTimeoutAndGrace() {
+        FakeClient client = new FakeClient();
+        client.delayMs = 3_000;
+        MaskingBatcher batcher = batcher(client);
+        try {
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> batcher.mask("stuck"))
+                    .isInstanceOf(UpstreamUnavailableException.class);
+            // linger 20ms + read-timeout 200ms + 여유 100ms
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(300L, 2_000L);
+        } finally {
+            batcher.stop();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 마스킹 캐시 — 메모리/DB 적중, 미스, LRU 밀려남, 꺼짐, 같은 해시의 동시 업로드는 한 곳만 마스킹.
+ */
+class MaskingCacheServiceTest {
+
+    private final DocumentResultRepository repository = mock(DocumentResultRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void hitsMemoryThenDatabaseAndMissesUnknownHashes() {
+        MaskingCacheService cache = new MaskingCacheService(repository, registry, true, 10);
+        completed("doc-a", "hash-a");
+        cache.remember("hash-a", "doc-a");
+
+        assertThat(cache.lookup("hash-a")).map(DocumentResult::getId).contains("doc-a");
+        verify(repository, never()).findFirstByContentHashAndStatus(anyString(), eq(ProcessingStatus.COMPLETED));
+
+        // 메모리에 없으면 content_hash로 DB를 찾고, 찾은 것은 메모리에 올린다.
+        DocumentResult stored = completed("doc-b", "hash-b");
+        when(repository.findFirstByContentHashAndStatus("hash-b", ProcessingStatus.COMPLETED)).thenReturn(Optional.of(stored));
+        assertThat(cache.lookup("hash-b")).contains(stored);
+        assertThat(cache.lookup("hash-b")).contains(stored);
+        verify(repository, times(1)).findFirstByContentHashAndStatus("hash-b", ProcessingStatus.COMPLETED);
+
+        assertThat(cache.lookup("hash-x")).isEmpty();
+        assertThat(count("hit-memory")).isEqualTo(2);
+        assertThat(count("hit-db")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        MaskingCacheService cache = new MaskingCacheService(repository, registry, true, 2);
+        completed("doc-1", "h1");
+        completed("doc-2", "h2");
+        completed("doc-3", "h3");
+        cache.remember("h1", "doc-1");
+        cache.remember("h2", "doc-2");
+        cache.lookup("h1");
+        cache.remember("h3", "doc-3");
+
+        // h2가 가장 오래 안 쓰였으므로 밀려나 DB 조회(여기서는 없음)로 떨어진다.
+        assertThat(cache.lookup("h2")).isEmpty();
+        assertThat(cache.lookup("h1")).isPresent();
+        assertThat(cache.lookup("h3")).isPresent();
+        assertThat(registry.get("docshield.mask.cache.entries").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledCacheNeverLooksUpOrClaims() throws Exception {
+        MaskingCacheService cache = new MaskingCacheService(repository, registry, false, 10);
+        completed("doc-a", "hash-a");
+        cache.remember("hash-a", "doc-a");
+
+        assertThat(cache.lookup("hash-a")).isEmpty();
+        assertThat(cache.lookupOrClaim("hash-a")).isEqualTo(new MaskingCacheService.Lookup(Optional.empty(), false));
+        verify(repository, never()).findById(anyString());
+        verify(repository, never()).findFirstByContentHashAndStatus(anyString(), eq(ProcessingStatus.COMPLETED));
+    }
+
+    @Test
+    void concurrentUploadOfSameTextWaitsForTheOwner() throws Exception {
+        MaskingCacheService cache = new MaskingCacheService(repository, registry, true, 10);
+        MaskingCacheService.Lookup first = cache.lookupOrClaim("same");
+        assertThat(first.owner()).isTrue();
+
+        CompletableFuture<MaskingCacheService.Lookup> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.lookupOrClaim("same");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat(second).isNotDone();
+
+        DocumentResult done = completed("doc-owner", "same");
+        cache.remember("same", "doc-owner");
+        MaskingCacheService.Lookup joined = second.get(5, TimeUnit.SECONDS);
+        assertThat(joined.owner()).isFalse();
+        assertThat(joined.cached()).contains(done);
+        assertThat(count("joined-in-flight")).isEqualTo(1);
+
+        // 주인이 실패하면 기다리던 쪽은 빈 결과를 받아 직접 마스킹한다.
+        assertThat(cache.lookupOrClaim("other").owner()).isTrue();
+        CompletableFuture<MaskingCacheService.Lookup> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.lookupOrClaim("other");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        cache.release("other");
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(new MaskingCacheService.Lookup(Optional.empty(), false));
+    }
+
+    private DocumentResult completed(String id, String hash) {
+        DocumentResult result = new DocumentResult(id, DocumentType.HR_INFO, id + ".txt", ProcessingStatus.COMPLETED, hash, null);
+        when(repository.findById(id)).thenReturn(Optional.of(result));
+        return result;
+    }
+
+    private double count(String result) {
+        return registry.get("docshield.mask.cache.lookups").tag("result", result).counter().count();
+    }
+}
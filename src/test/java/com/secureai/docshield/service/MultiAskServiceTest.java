@@ -0,0 +1,147 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.dto.AskMetrics;
+import com.secureai.docshield.dto.GenericAiResponse;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 멀티 문서 질의 — 문서별 질의는 동시에 나가고, 마감을 넘긴 문서는 잰 시간과 함께 TIMEOUT, 실패한 문서는 FAILED로 남고
+ * 나머지 답변만 합친다. 동시 호출 자리를 기다리는 시간도 마감 안에서만 기다린다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:multi-ask;DB_CLOSE_DELAY=-1",
+        "docshield.ask.fanout-timeout=PT1S",
+        "docshield.upstream.gemini.max-attempts=1"
+})
+class MultiAskServiceTest {
+
+    private static final PythonStub PYTHON = new PythonStub();
+    private static final GeminiStub GEMINI = new GeminiStub();
+
+    @Autowired
+    private MultiAskService multiAskService;
+
+    @Autowired
+    private DocumentPipelineService pipeline;
+
+    @Autowired
+    private DocumentResultRepository repository;
+
+    @Autowired
+    private AiPromptService aiPromptService;
+
+    @Autowired
+    private AnswerCacheService answerCacheService;
+
+    @Autowired
+    private RetrievalService retrievalService;
+
+    @Autowired
+    @Qualifier("askFanoutExecutor")
+    private ExecutorService askFanoutExecutor;
+
+    @DynamicPropertySource
+    static void upstreams(DynamicPropertyRegistry registry) {
+        registry.add("python.server.url", PYTHON::url);
+        registry.add("gemini.api.base-url", GEMINI::url);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        PYTHON.stop();
+        GEMINI.stop();
+    }
+
+    @BeforeEach
+    void resetGemini() {
+        GEMINI.reset();
+    }
+
+    @Test
+    void fansOutAndKeepsPartialResultsOnTimeoutAndFailure() throws Exception {
+        String fast1 = upload("인사 규정 FAST-ONE 연차 안내");
+        String slow = upload("보안 규정 SLOW-DOC 연차 안내");
+        String failing = upload("총무 규정 FAIL-DOC 연차 안내");
+        String fast2 = upload("복무 규정 FAST-TWO 연차 안내");
+        // 빠른 두 문서도 0.4초씩 걸린다. 차례로 보냈다면 느린 문서 뒤의 FAST-TWO는 마감(1초)을 넘긴다.
+        GEMINI.slow("FAST-ONE", 400);
+        GEMINI.slow("FAST-TWO", 400);
+        GEMINI.slow("SLOW-DOC", 3_000);
+        GEMINI.fail("FAIL-DOC");
+        GEMINI.answer("합친 답변");
+
+        long start = System.nanoTime();
+        GenericAiResponse response = multiAskService.ask(List.of(fast1, slow, failing, fast2, "no-such-doc"), "연차 " + UUID.randomUUID());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(2_500);
+        assertThat(response.getMarkdown()).isEqualTo("합친 답변");
+        AskMetrics metrics = response.getMetrics();
+        assertThat(metrics.getUsedDocs()).containsExactly(fast1, fast2);
+
+        Map<String, AskMetrics.DocumentTiming> byId = byId(metrics);
+        assertThat(byId.get(fast1).getStatus()).isEqualTo("ANSWERED");
+        assertThat(byId.get(fast2).getStatus()).isEqualTo("ANSWERED");
+        assertThat(byId.get(failing).getStatus()).isEqualTo("FAILED");
+        assertThat(byId.get("no-such-doc").getStatus()).isEqualTo("NOT_FOUND");
+        // TIMEOUT은 마감값이 아니라 실제로 잰 시간
+        AskMetrics.DocumentTiming timedOut = byId.get(slow);
+        assertThat(timedOut.getStatus()).isEqualTo("TIMEOUT");
+        assertThat(timedOut.getLatencyMs()).isBetween(900L, elapsedMs);
+        assertThat(byId.get(fast1).getRelevance()).isPositive();
+    }
+
+    @Test
+    void waitingForAFanOutSlotNeverOutlivesTheDeadline() throws Exception {
+        String slow = upload("감사 규정 SLOW-DOC 출장 안내");
+        String queued = upload("여비 규정 QUEUED-DOC 출장 안내");
+        GEMINI.slow("SLOW-DOC", 3_000);
+        // 동시 호출 1개, 마감 0.8초 — 두 번째 문서는 자리를 얻기 전에 마감이 지난다.
+        MultiAskService oneAtATime = new MultiAskService(repository, aiPromptService, answerCacheService, retrievalService,
+                askFanoutExecutor, ObservationRegistry.NOOP, 1, Duration.ofMillis(800));
+
+        long start = System.nanoTime();
+        GenericAiResponse response = oneAtATime.ask(List.of(slow, queued), "출장 " + UUID.randomUUID());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(2_000);
+        Map<String, AskMetrics.DocumentTiming> byId = byId(response.getMetrics());
+        assertThat(byId.get(slow).getStatus()).isEqualTo("TIMEOUT");
+        assertThat(byId.get(queued).getStatus()).isEqualTo("TIMEOUT");
+        assertThat(byId.get(queued).getLatencyMs()).isGreaterThanOrEqualTo(700);
+        assertThat(GEMINI.takeRequests()).noneMatch(body -> body.contains("QUEUED-DOC"));
+    }
+
+    private String upload(String text) throws Exception {
+        DocumentResult doc = pipeline.process(UUID.randomUUID().toString(), UUID.randomUUID() + ".txt",
+                new ByteArrayResource(text.getBytes(StandardCharsets.UTF_8)), PipelineListener.NONE);
+        return doc.getId();
+    }
+
+    private static Map<String, AskMetrics.DocumentTiming> byId(AskMetrics metrics) {
+        return metrics.getDocuments().stream()
+                .collect(Collectors.toMap(AskMetrics.DocumentTiming::getDocId, Function.identity()));
+    }
+}
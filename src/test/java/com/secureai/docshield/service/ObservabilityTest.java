@@ -0,0 +1,77 @@
+package com.secureai.docshield.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 업로드 한 건이 단계별 타이머(파싱/마스킹/저장)와 크기 지표를 남기고, /actuator/prometheus로 노출된다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:observability;DB_CLOSE_DELAY=-1",
+        "docshield.pipeline.chunk-chars=100",
+        "docshield.mask-cache.enabled=false",
+        "management.endpoints.web.exposure.include=prometheus"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ObservabilityTest {
+
+    private static final PythonStub PYTHON = new PythonStub();
+
+    @Autowired
+    private DocumentPipelineService pipeline;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @DynamicPropertySource
+    static void pythonUrl(DynamicPropertyRegistry registry) {
+        registry.add("python.server.url", PYTHON::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        PYTHON.stop();
+    }
+
+    @Test
+    void uploadRecordsStageTimingsAndSizes() throws Exception {
+        String id = UUID.randomUUID().toString();
+        byte[] text = ("주간 보고 " + id + "\n" + "진행 상황과 다음 주 계획을 정리합니다\n".repeat(20)).getBytes(StandardCharsets.UTF_8);
+        pipeline.process(id, "report.txt", new ByteArrayResource(text), PipelineListener.NONE);
+
+        assertThat(meterRegistry.get("docshield.upload").tag("file.type", "txt").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("docshield.upload.parse").tag("file.type", "txt").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("docshield.upload.parse.size").tag("file.type", "txt").summary().totalAmount())
+                .isEqualTo(text.length);
+        // 청크마다 마스킹 한 번, 청크 행 저장 한 번
+        long masked = meterRegistry.get("docshield.upload.mask").timers().stream().mapToLong(t -> t.count()).sum();
+        assertThat(masked).isGreaterThan(1);
+        assertThat(meterRegistry.get("docshield.db.save").tag("entity", "chunk").timer().count()).isEqualTo(masked);
+        assertThat(meterRegistry.get("docshield.db.save").tag("entity", "content").timer().count()).isEqualTo(1);
+
+        String scrape = mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(scrape).contains("docshield_upload_seconds_count", "docshield_upload_parse_size_bytes");
+    }
+}
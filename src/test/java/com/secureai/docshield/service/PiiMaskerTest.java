@@ -0,0 +1,70 @@
+package com.secureai.docshield.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JVM 빠른 마스킹 — 번호는 '-'로 나뉜 것, 공백으로 나뉜 것, 붙여 쓴 것을 모두 가리고
+ * 날짜/금액/숫자 표처럼 형식이 맞지 않는 숫자는 그대로 둔다.
+ */
+class PiiMaskerTest {
+
+    private final PiiMasker masker = new PiiMasker(List.of("프로젝트X"), List.of("성명", "주소"));
+
+    @Test
+    void residentRegistrationNumbers() {
+        assertThat(mask("주민 900101-1234567 끝")).isEqualTo("주민 [MASKED] 끝");
+        assertThat(mask("주민 9001011234567 끝")).isEqualTo("주민 [MASKED] 끝");
+        assertThat(mask("주민 900101 1234567 끝")).isEqualTo("주민 [MASKED] 끝");
+        // 뒷자리 첫 글자가 1~8이 아니면 주민등록번호가 아니다.
+        assertThat(mask("번호 900101-9234567")).isEqualTo("번호 900101-9234567");
+    }
+
+    @Test
+    void phoneNumbers() {
+        assertThat(mask("폰 010-2345-6789, 02-123-4567")).isEqualTo("폰 [MASKED], [MASKED]");
+        assertThat(mask("폰 01023456789 / 021234567")).isEqualTo("폰 [MASKED] / [MASKED]");
+        assertThat(mask("폰 010 2345 6789 끝")).isEqualTo("폰 [MASKED] 끝");
+        // 뒤에 붙은 숫자 묶음은 형식에 맞는 데까지만 가린다.
+        assertThat(mask("폰 010 2345 6789 12")).isEqualTo("폰 [MASKED] 12");
+    }
+
+    @Test
+    void cardAndAccountNumbers() {
+        assertThat(mask("카드 1234-5678-9012-3456")).isEqualTo("카드 [MASKED]");
+        assertThat(mask("카드 1234567890123456")).isEqualTo("카드 [MASKED]");
+        assertThat(mask("카드 1234 5678 9012 3456")).isEqualTo("카드 [MASKED]");
+        assertThat(mask("계좌 110-123-456789")).isEqualTo("계좌 [MASKED]");
+        assertThat(mask("계좌 110123456789")).isEqualTo("계좌 [MASKED]");
+        assertThat(mask("계좌 110 123 456789")).isEqualTo("계좌 [MASKED]");
+    }
+
+    @Test
+    void numbersThatAreNotPiiStay() {
+        assertThat(mask("날짜 2024-01-15, 2024 01 15, 금액 52000원")).isEqualTo("날짜 2024-01-15, 2024 01 15, 금액 52000원");
+        assertThat(mask("표 1 2 3 4 5 6 7 8 9 10")).isEqualTo("표 1 2 3 4 5 6 7 8 9 10");
+        assertThat(mask("표 12 34 56 78 90 11")).isEqualTo("표 12 34 56 78 90 11");
+        // 영문/숫자에 붙어 있으면 번호가 아니라 식별자의 일부다.
+        assertThat(mask("ABC01023456789 01023456789abc")).isEqualTo("ABC01023456789 01023456789abc");
+    }
+
+    @Test
+    void emailsTermsAndCues() {
+        StringBuilder out = new StringBuilder();
+        PiiMasker.Result result = masker.mask("프로젝트X 담당 성명 김민수 minsu.kim@company.com 주소 미기재", out);
+
+        assertThat(out.toString()).isEqualTo("[MASKED] 담당 성명 김민수 [MASKED] 주소 미기재");
+        assertThat(result.masked()).isEqualTo(2);
+        assertThat(result.cues()).isEqualTo(2);
+        assertThat(result.letterRatio()).isEqualTo(1.0);
+    }
+
+    private String mask(String text) {
+        StringBuilder out = new StringBuilder();
+        masker.mask(text, out);
+        return out.toString();
+    }
+}
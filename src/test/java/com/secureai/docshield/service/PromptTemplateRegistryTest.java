@@ -0,0 +1,92 @@
+package com.secureai.docshield.service;
+
+import com.secureai.docshield.domain.DocumentType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 참조 문서/프롬프트 레지스트리 — 클래스패스 파일을 미리 읽어 두고, 덮어쓰기 디렉터리의 파일이 우선하며 다시 읽으면 ETag가 바뀐다.
+ * If-None-Match는 태그 단위로 정확히 비교한다.
+ */
+class PromptTemplateRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadsClasspathReferencesAndRendersPrefixes() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry("", Duration.ofMillis(500));
+
+        PromptTemplateRegistry.Template hr = registry.get(DocumentType.HR_INFO);
+        assertThat(text(hr)).contains("sentence");
+        assertThat(hr.etag()).startsWith("\"").endsWith("\"");
+        assertThat(hr.promptPrefix()).contains("문서 유형: HR_INFO");
+
+        // 예시 파일이 없는 유형과 유형이 정해지지 않은 문서
+        assertThat(registry.get(DocumentType.PERSONAL_INFO).bytes()).isNull();
+        assertThat(registry.get(null).promptPrefix()).contains("문서 유형: 미분류");
+    }
+
+    @Test
+    void overrideDirectoryWinsAndReloadSwapsSnapshot() throws Exception {
+        Path file = dir.resolve(DocumentType.TECH_INFO.getReferenceFile());
+        Files.writeString(file, "v1", StandardCharsets.UTF_8);
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(dir.toString(), Duration.ofMillis(500));
+
+        PromptTemplateRegistry.Template before = registry.get(DocumentType.TECH_INFO);
+        assertThat(text(before)).isEqualTo("v1");
+
+        Files.writeString(file, "v2", StandardCharsets.UTF_8);
+        registry.reload();
+        PromptTemplateRegistry.Template after = registry.get(DocumentType.TECH_INFO);
+        assertThat(text(after)).isEqualTo("v2");
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+        assertThat(text(registry.get(DocumentType.HR_INFO))).contains("sentence");
+    }
+
+    @Test
+    void watcherReloadsOnceWritesSettle() throws Exception {
+        Path file = dir.resolve(DocumentType.TECH_INFO.getReferenceFile());
+        Files.writeString(file, "v1", StandardCharsets.UTF_8);
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(dir.toString(), Duration.ofMillis(300));
+        registry.watch();
+        try {
+            // 저장이 여러 번 이어져도 마지막 내용을 읽는다.
+            for (int i = 2; i <= 5; i++) {
+                Files.writeString(file, "v" + i, StandardCharsets.UTF_8);
+                Thread.sleep(50);
+            }
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (!text(registry.get(DocumentType.TECH_INFO)).equals("v5") && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(text(registry.get(DocumentType.TECH_INFO))).isEqualTo("v5");
+        } finally {
+            registry.stopWatching();
+        }
+    }
+
+    @Test
+    void ifNoneMatchComparesWholeTags() {
+        String etag = "\"0123456789abcdef0123456789abcdef\"";
+
+        assertThat(PromptTemplateRegistry.matches(etag, etag)).isTrue();
+        assertThat(PromptTemplateRegistry.matches("\"other\", W/" + etag, etag)).isTrue();
+        assertThat(PromptTemplateRegistry.matches("*", etag)).isTrue();
+        // etag를 안에 품기만 한 값이나 따옴표 없는 값은 맞지 않는다.
+        assertThat(PromptTemplateRegistry.matches("\"x\"" + etag, etag)).isFalse();
+        assertThat(PromptTemplateRegistry.matches(etag.substring(1, etag.length() - 1), etag)).isFalse();
+        assertThat(PromptTemplateRegistry.matches(null, etag)).isFalse();
+    }
+
+    private static String text(PromptTemplateRegistry.Template template) {
+        return new String(template.bytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 테스트용 Python 서버 스텁. /process 는 받은 content를 <<…>>로 감싸 BUSINESS_INFO로 돌려준다.
+ * hold() 한 뒤에는 release() 될 때까지 응답하지 않는다. (업로드가 처리 중에 머물러 있어야 하는 테스트용)
+ */
+class PythonStub {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    PythonStub() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/process", ex -> {
+            calls.incrementAndGet();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String content = (String) MAPPER.readValue(ex.getRequestBody(), Map.class).get("content");
+            byte[] body = MAPPER.writeValueAsBytes(Map.of("markdown", "<<" + content + ">>", "documentType", "BUSINESS_INFO"));
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** 지금까지 받은 /process 호출 수를 돌려주고 0으로 되돌린다. */
+    int takeCalls() {
+        return calls.getAndSet(0);
+    }
+
+    void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    void release() {
+        gate.countDown();
+    }
+
+    void stop() {
+        release();
+        server.stop(0);
+    }
+}
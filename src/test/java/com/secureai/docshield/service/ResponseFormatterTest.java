@@ -0,0 +1,61 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.dto.PythonResponse;
+import com.secureai.docshield.dto.ReportResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 응답 디코딩 — Gemini 보고서의 코드블록을 벗겨 기본/추가 필드로 나누고, Python 일괄 응답은 결과 객체 원문 그대로 잘린다.
+ */
+class ResponseFormatterTest {
+
+    private final ResponseFormatter formatter = new ResponseFormatter();
+
+    @Test
+    void parsesFencedGeminiReportIntoFieldsAndExtras() {
+        String report = "```json\\n{\\\"summary\\\": \\\"연차 정산 필요\\\", \\\"risks\\\": [\\\"미사용 연차\\\", 3, null],"
+                + " \\\"recommendations\\\": \\\"없음\\\", \\\"confidence\\\": 0.8, \\\"owner\\\": {\\\"team\\\": \\\"인사\\\"}}\\n```";
+        String response = "{\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"" + report + "\"}]}}],"
+                + " \"usageMetadata\": {\"promptTokenCount\": 10}}";
+
+        ReportResponse parsed = formatter.parseGeminiJson(response);
+
+        assertThat(parsed.getSummary()).isEqualTo("연차 정산 필요");
+        assertThat(parsed.getRisks()).containsExactly("미사용 연차", "3", "null");
+        // 배열이 아니면 빈 목록
+        assertThat(parsed.getRecommendations()).isEmpty();
+        assertThat(parsed.getExtra()).containsOnlyKeys("confidence", "owner");
+        assertThat(((JsonNode) parsed.getExtra().get("owner")).path("team").asText()).isEqualTo("인사");
+
+        assertThat(formatter.parseGeminiJson("{\"candidates\": []}").getSummary()).isEqualTo("AI 응답 파싱 실패");
+    }
+
+    @Test
+    void stripsFencesLikeTheRegexPasses() {
+        for (String text : List.of("```json\n{}\n```", "````json{}`", "` `` ```js json", "plain", "```JSON x```")) {
+            String expected = text.replaceAll("(?s)```json", "").replaceAll("(?s)```", "").replaceAll("(?s)`", "").trim();
+            assertThat(ResponseFormatter.stripFences(text)).as(text).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void bindsPythonResponseAndSplitsBatchResultsVerbatim() {
+        assertThat(formatter.parsePythonResponse("{\"markdown\": \"# 제목\", \"documentType\": \"HR_INFO\"}"))
+                .isEqualTo(new PythonResponse("# 제목", DocumentType.HR_INFO));
+
+        String batch = "{\"model\": {\"v\": [1]}, \"results\": [{\"markdown\": \"a}\\\"b\"} , {\"markdown\": \"한글\", \"documentType\": \"TECH_INFO\"}]}";
+        assertThat(PythonApiClient.splitResults(batch, 2))
+                .containsExactly("{\"markdown\": \"a}\\\"b\"}", "{\"markdown\": \"한글\", \"documentType\": \"TECH_INFO\"}");
+
+        assertThatThrownBy(() -> PythonApiClient.splitResults(batch, 3)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> PythonApiClient.splitResults("{\"results\": [{}, \"x\"]}", 2))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
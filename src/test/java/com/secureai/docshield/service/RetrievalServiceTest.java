@@ -0,0 +1,100 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.dto.PythonResponse;
+import com.secureai.docshield.util.TokenEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * /api/ask 문맥 고르기 — 예산 안의 문서는 통째로, 큰 문서는 질문과 관련된 단락만 예산 안에서 원래 순서로 보낸다.
+ * 업로드 때 만든 색인이 있으면 본문을 DB에서 다시 읽지 않는다.
+ */
+class RetrievalServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BUDGET = 200;
+
+    private final DocumentContentService contents = mock(DocumentContentService.class);
+
+    @Test
+    void smallDocumentIsSentWhole() throws Exception {
+        String stored = stored("휴가는 연 15일");
+        when(contents.pythonMarkdown("small")).thenReturn(Optional.of(stored));
+
+        assertThat(retrieval(true).contextFor(doc("small"), "퇴직금은?")).isEqualTo(stored);
+    }
+
+    @Test
+    void largeDocumentSendsOnlyRelevantPassagesWithinBudget() throws Exception {
+        String markdown = largeDocument();
+        when(contents.pythonMarkdown("large")).thenReturn(Optional.of(stored(markdown)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetrievalService retrieval = retrieval(true, registry);
+
+        String context = retrieval.contextFor(doc("large"), "퇴직금 정산 기준은?");
+
+        assertThat(context).contains("퇴직금은 근속 1년마다 30일분 평균임금으로 정산한다")
+                .contains("(…)")
+                .doesNotContain("제1항 ");
+        assertThat(TokenEstimator.estimate(context)).isLessThanOrEqualTo(BUDGET + 20);
+        assertThat(registry.get("docshield.retrieval.context.tokens").tag("mode", "retrieved").summary().count()).isEqualTo(1);
+        assertThat(retrieval.relevance(doc("large"), "퇴직금 출장비")).isEqualTo(0.5);
+
+        // 색인이 없거나 꺼져 있으면 통째로
+        assertThat(retrieval(false).contextFor(doc("large"), "퇴직금 정산 기준은?")).isEqualTo(stored(markdown));
+    }
+
+    @Test
+    void indexBuiltAtUploadAvoidsReadingTheBody() {
+        RetrievalService retrieval = retrieval(true);
+        retrieval.index("indexed", largeDocument());
+
+        assertThat(retrieval.contextFor(doc("indexed"), "퇴직금 정산")).contains("퇴직금은 근속");
+        verify(contents, never()).pythonMarkdown("indexed");
+
+        // LRU에서 빠지면 저장된 본문으로 다시 만든다.
+        retrieval.evict("indexed");
+        when(contents.pythonMarkdown("indexed")).thenReturn(Optional.empty());
+        assertThat(retrieval.contextFor(doc("indexed"), "퇴직금 정산")).isNull();
+    }
+
+    private RetrievalService retrieval(boolean enabled) {
+        return retrieval(enabled, new SimpleMeterRegistry());
+    }
+
+    private RetrievalService retrieval(boolean enabled, SimpleMeterRegistry registry) {
+        return new RetrievalService(MAPPER, contents, registry, ObservationRegistry.NOOP,
+                enabled, 120, 2, BUDGET, 16, false, 256, 0.3);
+    }
+
+    // 관련 단락 하나가 중간에 들어 있는, 예산보다 훨씬 큰 문서
+    private static String largeDocument() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= 40; i++) {
+            if (i == 25) sb.append("퇴직금은 근속 1년마다 30일분 평균임금으로 정산한다.\n");
+            sb.append("제").append(i).append("항 일반 사무 처리 절차와 문서 보관 방법을 설명한다.\n");
+        }
+        return sb.toString();
+    }
+
+    private static String stored(String markdown) throws Exception {
+        return MAPPER.writeValueAsString(new PythonResponse(markdown, DocumentType.HR_INFO));
+    }
+
+    private static DocumentResult doc(String id) {
+        return new DocumentResult(id, DocumentType.HR_INFO, id + ".txt", ProcessingStatus.COMPLETED, null, null);
+    }
+}
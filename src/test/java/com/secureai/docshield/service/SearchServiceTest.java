@@ -0,0 +1,147 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentResult;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.ProcessingStatus;
+import com.secureai.docshield.dto.SearchResponse;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 전체 문서 검색 — 모든 토큰이 들어 있는 문서만 찾고, 유형 필터와 페이지가 맞으며, 다시 색인/삭제가 반영되고, 발췌가 만들어진다.
+ * 지운 문서는 점수(idf)에도 남지 않는다. 재구성은 읽는 동안 업로드가 색인/삭제한 문서를 옛 값으로 덮지 않는다.
+ */
+class SearchServiceTest {
+
+    private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void findsDocumentsContainingAllQueryTokens() {
+        DocumentSearchIndex index = new DocumentSearchIndex();
+        index.put("a", DocumentType.HR_INFO, "a.txt", T0, "김OO 퇴사 예정, 잔여 연차 3일 정산");
+        index.put("b", DocumentType.HR_INFO, "b.txt", T0, "신규 입사자 연차 안내");
+        index.put("c", DocumentType.BUSINESS_INFO, "c.txt", T0, "영업팀 퇴사자 인수인계 — 퇴사 처리 완료");
+
+        DocumentSearchIndex.Result retired = index.search("퇴사", null, 0, 10);
+        assertThat(retired.total()).isEqualTo(2);
+        // 퇴사가 두 번 나오는 c가 위
+        assertThat(retired.hits()).extracting(DocumentSearchIndex.Hit::id).containsExactly("c", "a");
+
+        assertThat(index.search("퇴사 연차", null, 0, 10).hits()).extracting(DocumentSearchIndex.Hit::id).containsExactly("a");
+        assertThat(index.search("퇴사", Set.of(DocumentType.HR_INFO), 0, 10).hits())
+                .extracting(DocumentSearchIndex.Hit::id).containsExactly("a");
+        assertThat(index.search("출장", null, 0, 10).total()).isZero();
+    }
+
+    @Test
+    void pagesByScoreAndReflectsUpdatesAndRemovals() {
+        DocumentSearchIndex index = new DocumentSearchIndex();
+        // 문서 i에는 "보안"이 i번 나온다 → 점수는 i가 클수록 높다.
+        IntStream.rangeClosed(1, 30).forEach(i ->
+                index.put("d" + i, DocumentType.TECH_INFO, i + ".txt", T0.plusSeconds(i), "보안 ".repeat(i) + "점검"));
+
+        DocumentSearchIndex.Result second = index.search("보안", null, 10, 10);
+        assertThat(second.total()).isEqualTo(30);
+        assertThat(second.hits()).extracting(DocumentSearchIndex.Hit::id)
+                .containsExactlyElementsOf(IntStream.iterate(20, i -> i - 1).limit(10).mapToObj(i -> "d" + i).toList());
+
+        // 다시 색인하면 예전 내용은 더 이상 걸리지 않는다.
+        index.put("d30", DocumentType.TECH_INFO, "30.txt", T0, "감사 로그");
+        assertThat(index.search("보안", null, 0, 100).total()).isEqualTo(29);
+        assertThat(index.search("감사", null, 0, 10).hits()).extracting(DocumentSearchIndex.Hit::id).containsExactly("d30");
+
+        index.remove("d29");
+        assertThat(index.search("보안", null, 0, 1).hits()).extracting(DocumentSearchIndex.Hit::id).containsExactly("d28");
+        assertThat(index.size()).isEqualTo(29);
+
+        // 넘친 offset(음수, offset + limit ≤ 0)은 빈 결과
+        assertThat(index.search("보안", null, -20, 20).hits()).isEmpty();
+        assertThat(index.search("보안", null, Integer.MAX_VALUE, 20).hits()).isEmpty();
+    }
+
+    @Test
+    void compactsAfterManyRemovals() {
+        DocumentSearchIndex index = new DocumentSearchIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.put("d" + i, DocumentType.PUBLIC_INFO, i + ".txt", T0, (i % 2 == 0 ? "공지 " : "보도 ") + "자료 " + i);
+        }
+        for (int i = 0; i < 4000; i++) index.remove("d" + i);
+
+        assertThat(index.size()).isEqualTo(1000);
+        assertThat(index.search("자료", null, 0, 10).total()).isEqualTo(1000);
+        assertThat(index.search("공지", null, 0, 10).total()).isEqualTo(500);
+        assertThat(index.search("4999", null, 0, 10).hits()).extracting(DocumentSearchIndex.Hit::id).containsExactly("d4999");
+    }
+
+    @Test
+    void removedDocumentsDoNotCountTowardIdf() {
+        DocumentSearchIndex withRemovals = new DocumentSearchIndex();
+        DocumentSearchIndex fresh = new DocumentSearchIndex();
+        for (DocumentSearchIndex index : List.of(withRemovals, fresh)) {
+            index.put("a", DocumentType.TECH_INFO, "a.txt", T0, "보안 점검 결과");
+            index.put("b", DocumentType.TECH_INFO, "b.txt", T0, "서버 점검 일정");
+            index.put("c", DocumentType.TECH_INFO, "c.txt", T0, "배포 절차");
+        }
+        // 압축이 일어나지 않을 만큼만 "보안" 문서를 더했다 지운다.
+        for (int i = 0; i < 50; i++) withRemovals.put("x" + i, DocumentType.TECH_INFO, i + ".txt", T0, "보안 공지 " + i);
+        for (int i = 0; i < 50; i++) withRemovals.remove("x" + i);
+
+        assertThat(withRemovals.search("보안", null, 0, 10).hits().get(0).score())
+                .isEqualTo(fresh.search("보안", null, 0, 10).hits().get(0).score());
+        // 지운 문서에만 있던 토큰은 아무것도 찾지 않는다.
+        assertThat(withRemovals.search("공지", null, 0, 10).total()).isZero();
+    }
+
+    @Test
+    void rebuildSkipsDocumentsTouchedWhileTheBatchWasRead() {
+        DocumentResultRepository repository = mock(DocumentResultRepository.class);
+        DocumentContentService contentService = mock(DocumentContentService.class);
+        SearchService service = new SearchService(repository, contentService, new ObjectMapper(), new SimpleMeterRegistry(),
+                true, 5, 2, 500);
+        DocumentResult kept = new DocumentResult("a", DocumentType.HR_INFO, "a.txt", ProcessingStatus.COMPLETED, null, T0);
+        DocumentResult removed = new DocumentResult("b", DocumentType.HR_INFO, "b.txt", ProcessingStatus.COMPLETED, null, T0);
+        DocumentResult revised = new DocumentResult("c", DocumentType.HR_INFO, "c.txt", ProcessingStatus.COMPLETED, null, T0);
+        when(repository.findCompletedAfter(eq(""), any())).thenReturn(List.of(kept, removed, revised));
+        when(repository.findCompletedAfter(eq("c"), any())).thenReturn(List.of());
+        // 배치 본문을 읽는 사이에 업로드가 b를 지우고 c를 새 내용으로 색인한다.
+        when(contentService.pythonMarkdowns(anyCollection())).thenAnswer(invocation -> {
+            service.remove("b");
+            service.index(revised, "개정 연차 규정");
+            return Map.of("a", "연차 규정", "b", "연차 규정", "c", "연차 규정");
+        }).thenReturn(Map.of());
+
+        service.rebuild();
+
+        assertThat(service.search("연차", Set.of(), 0, 10).getItems()).extracting(SearchResponse.Item::getId)
+                .containsExactlyInAnyOrder("a", "c");
+        assertThat(service.search("개정", Set.of(), 0, 10).getItems()).extracting(SearchResponse.Item::getId)
+                .containsExactly("c");
+    }
+
+    @Test
+    void highlightsMatchesWithEscapedContext() {
+        SearchService service = new SearchService(null, null, new ObjectMapper(), new SimpleMeterRegistry(),
+                true, 5, 2, 500);
+        String text = "<b>공지</b> 퇴사자 면담 일정. " + "-".repeat(40) + " 퇴사 처리";
+
+        List<String> snippets = service.highlight(text, List.of("퇴사", "사자"));
+        assertThat(snippets).hasSize(2);
+        assertThat(snippets.get(0)).isEqualTo("…&lt;/b&gt; <em>퇴사자</em> 면담 일…");
+        assertThat(snippets.get(1)).isEqualTo("…---- <em>퇴사</em> 처리");
+    }
+}
@@ -0,0 +1,107 @@
+package com.secureai.docshield.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secureai.docshield.domain.DocumentType;
+import com.secureai.docshield.domain.UploadJob;
+import com.secureai.docshield.repository.DocumentResultRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 비동기 업로드: 작업자 1명 + 대기열 1칸이 차면 429, 풀리면 작업이 끝까지 돌고 결과가 저장된다.
+ * 처리가 끝나기 전의 /api/result는 202로 작업 상태를 알려준다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:upload-jobs;DB_CLOSE_DELAY=-1",
+        "docshield.jobs.workers=1",
+        "docshield.jobs.queue-capacity=1"
+})
+@AutoConfigureMockMvc
+class UploadJobServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final PythonStub PYTHON = new PythonStub();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UploadJobService uploadJobService;
+
+    @Autowired
+    private DocumentResultRepository repository;
+
+    @DynamicPropertySource
+    static void pythonUrl(DynamicPropertyRegistry registry) {
+        registry.add("python.server.url", PYTHON::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        PYTHON.stop();
+    }
+
+    @Test
+    void rejectsUploadsBeyondWorkersPlusQueueAndFinishesAdmittedOnes() throws Exception {
+        PYTHON.hold();
+        String running = submit("a.txt");
+        String queued = submit("b.txt");
+
+        mvc.perform(multipart("/api/upload").file(file("c.txt")).param("async", "true"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "5"));
+
+        // 끝나기 전의 결과 조회는 500이 아니라 202 + 작업 상태, 모르는 id는 404
+        mvc.perform(get("/api/result/{id}", queued))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+        mvc.perform(get("/api/result/{id}", running)).andExpect(status().isAccepted());
+        mvc.perform(get("/api/result/{id}", "no-such-job")).andExpect(status().isNotFound());
+
+        PYTHON.release();
+        assertThat(await(running)).isEqualTo(UploadJob.State.COMPLETED);
+        assertThat(await(queued)).isEqualTo(UploadJob.State.COMPLETED);
+        mvc.perform(get("/api/jobs/{id}", running))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.progress").value(1.0));
+        assertThat(repository.findById(running).orElseThrow().getType()).isEqualTo(DocumentType.BUSINESS_INFO);
+    }
+
+    private String submit(String name) throws Exception {
+        String body = mvc.perform(multipart("/api/upload").file(file(name)).param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return (String) MAPPER.readValue(body, Map.class).get("jobId");
+    }
+
+    private UploadJob.State await(String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            UploadJob.State state = uploadJobService.find(jobId).orElseThrow().getState();
+            if (state == UploadJob.State.COMPLETED || state == UploadJob.State.FAILED) return state;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("작업이 끝나지 않음: " + jobId);
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("file", name, "text/plain", (name + " 본문\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
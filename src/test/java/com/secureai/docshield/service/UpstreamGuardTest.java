@@ -0,0 +1,204 @@
+package com.secureai.docshield.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 격벽/재시도/회로 차단기 — 장애를 주입하는 로컬 스텁 서버(503, 지연, 멈춤)를 상대로 확인한다.
+ * 백그라운드 호출은 격벽에서 줄을 서고, 시험 호출이 Error로 끝나도 회로가 반쯤 열린 채 멈추지 않는다.
+ */
+class UpstreamGuardTest {
+
+    private HttpServer server;
+    private final AtomicInteger calls = new AtomicInteger();
+    // 앞으로 몇 번의 요청에 503을 줄지
+    private final AtomicInteger failNext = new AtomicInteger();
+    private volatile long delayMs;
+    private volatile CountDownLatch hang = new CountDownLatch(0);
+    private RestTemplate restTemplate;
+    private String url;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/process", ex -> {
+            calls.incrementAndGet();
+            ex.getRequestBody().readAllBytes();
+            try {
+                hang.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            boolean fail = failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+            byte[] body = (fail ? "{\"error\":\"injected\"}" : "{\"markdown\":\"ok\"}").getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(fail ? 503 : 200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/process";
+
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(1000);
+        factory.setReadTimeout(300);
+        restTemplate = new RestTemplate(factory);
+    }
+
+    @AfterEach
+    void stopStub() {
+        hang.countDown();
+        server.stop(0);
+    }
+
+    private UpstreamGuard guard(int maxConcurrent, int maxAttempts, Duration budget, int minCalls) {
+        return new UpstreamGuard("stub", new SimpleMeterRegistry(), maxConcurrent, Duration.ofMillis(50),
+                maxAttempts, Duration.ofMillis(10), Duration.ofMillis(50), budget,
+                10, minCalls, 50, Duration.ofSeconds(30));
+    }
+
+    private String post(UpstreamGuard guard) {
+        return guard.call(remaining -> restTemplate.postForObject(url, "{}", String.class));
+    }
+
+    @Test
+    void retriesTransientErrorsWithBackoff() {
+        failNext.set(2);
+        UpstreamGuard guard = guard(4, 3, Duration.ofSeconds(5), 10);
+
+        assertThat(post(guard)).contains("ok");
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotRetryWhenCallerSaysItIsUnsafe() {
+        failNext.set(1);
+        UpstreamGuard guard = guard(4, 3, Duration.ofSeconds(5), 10);
+
+        assertThatThrownBy(() -> guard.call(() -> false, remaining -> restTemplate.postForObject(url, "{}", String.class)))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void opensCircuitAndFailsFastWithoutCallingUpstream() {
+        failNext.set(100);
+        UpstreamGuard guard = guard(4, 1, Duration.ofSeconds(5), 4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> post(guard)).isInstanceOf(HttpServerErrorException.class);
+        }
+        int before = calls.get();
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> post(guard))
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .satisfies(e -> assertThat(((UpstreamUnavailableException) e).getRetryAfter()).isPositive());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(50);
+        assertThat(calls.get()).isEqualTo(before);
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.OPEN);
+    }
+
+    @Test
+    void hangingUpstreamStopsAtDeadline() {
+        hang = new CountDownLatch(1);
+        UpstreamGuard guard = guard(4, 10, Duration.ofMillis(800), 10);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> post(guard)).isInstanceOf(ResourceAccessException.class);
+        // 시도마다 read-timeout(300ms)으로 끊기고, 마감(800ms)을 넘겨 재시도하지 않는다.
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1500);
+        assertThat(calls.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void outerDeadlineIsPropagated() {
+        hang = new CountDownLatch(1);
+        UpstreamGuard guard = guard(4, 10, Duration.ofSeconds(30), 10);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long[] remaining = {0};
+        assertThatThrownBy(() -> UpstreamGuard.withDeadline(deadline, () -> guard.call(left -> {
+            remaining[0] = left.toMillis();
+            return restTemplate.postForObject(url, "{}", String.class);
+        }))).isInstanceOf(ResourceAccessException.class);
+        assertThat(remaining[0]).isBetween(1L, 200L);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void bulkheadRejectsInsteadOfQueueing() throws Exception {
+        delayMs = 250;
+        UpstreamGuard guard = guard(1, 1, Duration.ofSeconds(5), 10);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = pool.submit(() -> post(guard));
+            while (calls.get() == 0) Thread.sleep(5);
+
+            assertThatThrownBy(() -> post(guard)).isInstanceOf(UpstreamUnavailableException.class);
+            assertThat(first.get(2, TimeUnit.SECONDS)).contains("ok");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void queuedCallWaitsForBulkheadInsteadOfFailing() throws Exception {
+        delayMs = 250;
+        UpstreamGuard guard = guard(1, 1, Duration.ofSeconds(5), 10);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = pool.submit(() -> post(guard));
+            while (calls.get() == 0) Thread.sleep(5);
+
+            // max-wait(50ms)보다 오래 기다려 앞 호출이 끝난 뒤 자리를 얻는다.
+            assertThat(guard.callQueued(remaining -> restTemplate.postForObject(url, "{}", String.class))).contains("ok");
+            assertThat(first.get(2, TimeUnit.SECONDS)).contains("ok");
+            assertThat(calls.get()).isEqualTo(2);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorInTrialCallStillFreesTheTrialSlot() throws Exception {
+        failNext.set(4);
+        UpstreamGuard guard = new UpstreamGuard("stub", new SimpleMeterRegistry(), 4, Duration.ofMillis(50),
+                1, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5),
+                10, 4, 50, Duration.ofMillis(100));
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> post(guard)).isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.OPEN);
+        Thread.sleep(150);
+
+        assertThatThrownBy(() -> guard.call(remaining -> {
+            throw new StackOverflowError("injected");
+        })).isInstanceOf(StackOverflowError.class);
+        // 시험 호출 자리가 풀려 있어 다음 호출이 나가고, 성공하면 회로가 닫힌다.
+        assertThat(post(guard)).contains("ok");
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.CLOSED);
+    }
+}
@@ -0,0 +1,53 @@
+package com.secureai.docshield.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Aho-Corasick — 겹치는 단어와 다른 단어 안에 들어 있는 단어는 그 자리에서 끝나는 가장 긴 단어로 잡히고,
+ * 실패 링크를 따라가 놓치는 단어가 없다. ASCII는 대소문자를 가리지 않는다.
+ */
+class AhoCorasickTest {
+
+    @Test
+    void overlappingTermsAreFoundThroughFailureLinks() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "his", "hers"), new int[]{1, 2, 3, 4});
+
+        // "ushers": she(…3)와 hers(…5)가 겹치고, he는 she 안에 들어 있어 더 긴 she로 보고된다.
+        assertThat(scan(automaton, "ushers")).containsExactly("3:she/2", "5:hers/4");
+        assertThat(scan(automaton, "USHERS ahishe")).containsExactly("3:SHE/2", "5:HERS/4", "10:his/3", "12:she/2");
+    }
+
+    @Test
+    void nestedTermsReportTheLongestEndingHere() {
+        AhoCorasick automaton = new AhoCorasick(List.of("보안", "정보보안", "보안정책", "정책"), new int[]{1, 2, 3, 4});
+
+        assertThat(scan(automaton, "정보보안정책 수립")).containsExactly("3:정보보안/2", "5:보안정책/3");
+        // 정보보안의 앞부분에서 어긋나도 실패 링크로 보안을 찾는다.
+        assertThat(scan(automaton, "보보안정")).containsExactly("2:보안/1");
+    }
+
+    @Test
+    void emptyDictionaryNeverMatches() {
+        AhoCorasick automaton = new AhoCorasick(List.of(), new int[0]);
+        assertThat(scan(automaton, "아무 글자 abc")).isEmpty();
+    }
+
+    // 매칭이 끝나는 위치마다 "끝위치:단어/payload"
+    private static List<String> scan(AhoCorasick automaton, String text) {
+        List<String> found = new ArrayList<>();
+        int state = automaton.start();
+        for (int i = 0; i < text.length(); i++) {
+            state = automaton.step(state, text.charAt(i));
+            int length = automaton.matchLength(state);
+            if (length > 0) {
+                found.add(i + ":" + text.substring(i + 1 - length, i + 1) + "/" + automaton.matchPayload(state));
+            }
+        }
+        return found;
+    }
+}